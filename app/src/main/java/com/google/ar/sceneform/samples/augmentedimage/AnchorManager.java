@@ -0,0 +1,154 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.util.Log;
+import com.google.ar.core.Anchor;
+import com.google.ar.core.AugmentedImage;
+import com.google.ar.core.TrackingState;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the ARCore anchors of the exhibit nodes: at most one per image, indexed by exhibit.
+ *
+ * ARCore updates every live anchor every frame, so anchors that are no longer used cost frame time
+ * for the rest of the session. Anchors are detached when their image stops tracking, when the image
+ * hasn't been seen for lostMillis (see sweep()), and when more than maxAnchors would be alive, in
+ * which case the least recently seen one goes. The listener is told when an anchor is detached by
+ * the manager itself, so the node using it can be recycled.
+ *
+ * Must be used on the main thread.
+ */
+public class AnchorManager {
+
+    private static final String TAG = "AnchorManager";
+
+    // Images tracked at once in one room, with a margin.
+    public static final int DEFAULT_MAX_ANCHORS = 12;
+    // An image out of view this long is assumed to be in another room.
+    public static final long DEFAULT_LOST_MILLIS = 30_000;
+    // How often sweep() actually looks for lost anchors.
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    public interface Listener {
+        // The anchor of the exhibit was detached by the manager (lost or over the ceiling).
+        void onAnchorDetached(int exhibitIndex);
+    }
+
+    private final int maxAnchors;
+    private final long lostMillis;
+    private final Listener listener;
+    private final Anchor[] anchors;
+    private final long[] lastSeenMillis;
+    private int liveCount;
+    private long lastSweepMillis;
+
+    private final AtomicLong created = Metrics.getInstance().counter("anchors.created");
+    private final AtomicLong detached = Metrics.getInstance().counter("anchors.detached");
+    private final AtomicLong live = Metrics.getInstance().counter("anchors.live");
+
+    public AnchorManager(int exhibitCount, Listener listener) {
+        this(exhibitCount, DEFAULT_MAX_ANCHORS, DEFAULT_LOST_MILLIS, listener);
+    }
+
+    public AnchorManager(int exhibitCount, int maxAnchors, long lostMillis, Listener listener) {
+        this.maxAnchors = maxAnchors;
+        this.lostMillis = lostMillis;
+        this.listener = listener;
+        anchors = new Anchor[exhibitCount];
+        lastSeenMillis = new long[exhibitCount];
+    }
+
+    /**
+     * Returns the anchor of the image, creating it at the center of the image if it has none (or
+     * its anchor stopped tracking). May detach the least recently seen other anchor first.
+     */
+    public Anchor acquire(AugmentedImage image, int exhibitIndex, long nowMillis) {
+        Anchor anchor = anchors[exhibitIndex];
+        if (anchor != null && anchor.getTrackingState() != TrackingState.STOPPED) {
+            lastSeenMillis[exhibitIndex] = nowMillis;
+            return anchor;
+        }
+        release(exhibitIndex);
+        if (liveCount >= maxAnchors) {
+            int oldest = leastRecentlySeen(exhibitIndex);
+            if (oldest != -1) {
+                Log.d(TAG, "Too many anchors, detaching the one of exhibit " + oldest);
+                release(oldest);
+                listener.onAnchorDetached(oldest);
+            }
+        }
+        anchor = image.createAnchor(image.getCenterPose());
+        anchors[exhibitIndex] = anchor;
+        lastSeenMillis[exhibitIndex] = nowMillis;
+        liveCount++;
+        created.incrementAndGet();
+        live.set(liveCount);
+        return anchor;
+    }
+
+    // Records that the image was tracked this frame. Doesn't allocate.
+    public void markSeen(int exhibitIndex, long nowMillis) {
+        if (anchors[exhibitIndex] != null) {
+            lastSeenMillis[exhibitIndex] = nowMillis;
+        }
+    }
+
+    // Detaches the anchor of the exhibit, if it has one. The listener is not called.
+    public void release(int exhibitIndex) {
+        Anchor anchor = anchors[exhibitIndex];
+        if (anchor == null) {
+            return;
+        }
+        anchors[exhibitIndex] = null;
+        anchor.detach();
+        liveCount--;
+        detached.incrementAndGet();
+        live.set(liveCount);
+    }
+
+    // Detaches the anchors of images not seen for lostMillis. Cheap to call every frame.
+    public void sweep(long nowMillis) {
+        if (liveCount == 0 || nowMillis - lastSweepMillis < SWEEP_INTERVAL_MILLIS) {
+            return;
+        }
+        lastSweepMillis = nowMillis;
+        for (int i = 0; i < anchors.length; i++) {
+            if (anchors[i] != null && nowMillis - lastSeenMillis[i] >= lostMillis) {
+                Log.d(TAG, "Exhibit " + i + " not seen for " + (nowMillis - lastSeenMillis[i]) + " ms");
+                release(i);
+                listener.onAnchorDetached(i);
+            }
+        }
+    }
+
+    // Detaches every anchor, e.g. when the session is reconfigured. The listener is not called.
+    public void releaseAll() {
+        for (int i = 0; i < anchors.length; i++) {
+            release(i);
+        }
+    }
+
+    public boolean hasAnchor(int exhibitIndex) {
+        return anchors[exhibitIndex] != null;
+    }
+
+    // Anchors currently attached.
+    public int liveCount() {
+        return liveCount;
+    }
+
+    public long createdCount() {
+        return created.get();
+    }
+
+    private int leastRecentlySeen(int exceptIndex) {
+        int oldest = -1;
+        for (int i = 0; i < anchors.length; i++) {
+            if (i != exceptIndex && anchors[i] != null
+                    && (oldest == -1 || lastSeenMillis[i] < lastSeenMillis[oldest])) {
+                oldest = i;
+            }
+        }
+        return oldest;
+    }
+}
@@ -0,0 +1,262 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.SystemClock;
+import android.util.Log;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Plays the audio of the exhibit being tracked, from a small pool of MediaPlayers.
+ *
+ * Players are keyed by media id (see Exhibits), so a clip shared by many exhibits (imagine,
+ * beachcroc_song) is prepared once and reused. Players are prepared with prepareAsync(), so asking for an exhibit's
+ * audio never blocks the frame: it starts as soon as the codec is ready. Switching exhibits pauses
+ * the old player instead of releasing it, so walking back to a recent exhibit starts instantly.
+ * While a player is still preparing, the start of the clip is played from AudioIntroCache.
+ *
+ * All methods must be called on the main thread (the prepared callbacks are delivered there).
+ */
+public class AudioEngine {
+
+    private static final String TAG = "AudioEngine";
+
+    // Players kept prepared at once. Each holds a codec, so keep this small.
+    private static final int POOL_SIZE = 3;
+
+    private final Exhibits exhibits;
+    // Downloaded clips, used instead of the bundled ones when present.
+    private final ContentRepository content;
+    // Decoded first seconds of likely clips, played while a player is still preparing.
+    private final AudioIntroCache introCache;
+
+    // Media id -> player, least recently used first.
+    private final LinkedHashMap<Integer, PooledPlayer> pool = new LinkedHashMap<>(POOL_SIZE + 1, 0.75f, true);
+
+    // Player that is playing (or will play as soon as it is prepared), or null.
+    private PooledPlayer current;
+    private int currentExhibit = -1;
+
+    // Time from play() to the clip actually starting, per exhibit.
+    private final long[] lastStartLatencyNanos;
+    private final long[] totalStartLatencyNanos;
+    private final int[] startCount;
+    private final Histogram startLatency = Metrics.getInstance().histogram("audio.start_us");
+    private final Histogram prepareTime = Metrics.getInstance().histogram("audio.prepare_us");
+
+    private static class PooledPlayer {
+        final int mediaId;
+        final MediaPlayer player;
+        boolean prepared;
+        // Exhibit waiting for this player to be prepared, or -1.
+        int pendingExhibit = -1;
+        long requestedAtNanos;
+        // The intro of this clip is playing and the player takes over once it has seeked.
+        boolean handingOff;
+
+        PooledPlayer(int mediaId, MediaPlayer player) {
+            this.mediaId = mediaId;
+            this.player = player;
+        }
+    }
+
+    public AudioEngine(Context context) {
+        this.exhibits = Exhibits.get(context);
+        this.content = ContentRepository.get(context);
+        this.introCache = new AudioIntroCache(context);
+        lastStartLatencyNanos = new long[exhibits.count()];
+        totalStartLatencyNanos = new long[exhibits.count()];
+        startCount = new int[exhibits.count()];
+    }
+
+    /**
+     * Starts the audio of the exhibit at exhibitIndex, pausing whatever was playing. If the
+     * exhibit shares its clip with the one already playing, the clip just keeps playing.
+     */
+    public void play(int exhibitIndex) {
+        int mediaId = exhibits.musicId(exhibitIndex);
+        if (mediaId == 0) {
+            stop();
+            return;
+        }
+        if (current != null && current.mediaId == mediaId) {
+            currentExhibit = exhibitIndex;
+            return;
+        }
+        stop();
+
+        PooledPlayer pooled = acquire(mediaId);
+        if (pooled == null) {
+            return;
+        }
+        current = pooled;
+        currentExhibit = exhibitIndex;
+        pooled.requestedAtNanos = SystemClock.elapsedRealtimeNanos();
+        if (pooled.prepared) {
+            start(pooled, exhibitIndex);
+        } else {
+            pooled.pendingExhibit = exhibitIndex;
+            // Fill the prepare time with the cached intro, if there is one.
+            if (introCache.play(exhibitIndex)) {
+                recordStart(exhibitIndex, pooled.requestedAtNanos);
+            }
+        }
+    }
+
+    // Prepares the exhibit's clip (and decodes its intro) in the background without playing it,
+    // e.g. when it is first seen.
+    public void prefetch(int exhibitIndex) {
+        int mediaId = exhibits.musicId(exhibitIndex);
+        if (mediaId != 0) {
+            introCache.prefetch(exhibitIndex);
+            acquire(mediaId);
+        }
+    }
+
+    // Pauses the current clip. The player stays prepared in the pool.
+    public void stop() {
+        if (current == null) {
+            return;
+        }
+        current.pendingExhibit = -1;
+        current.handingOff = false;
+        introCache.stop();
+        if (current.prepared) {
+            if (current.player.isPlaying()) {
+                current.player.pause();
+            }
+            current.player.seekTo(0);
+        }
+        current = null;
+        currentExhibit = -1;
+    }
+
+    // Exhibit whose audio is playing or about to play, or -1.
+    public int currentExhibit() {
+        return currentExhibit;
+    }
+
+    // Releases every player and the intro cache. Call when the activity is destroyed.
+    public void release() {
+        introCache.release();
+        current = null;
+        currentExhibit = -1;
+        for (PooledPlayer pooled : pool.values()) {
+            pooled.player.release();
+        }
+        pool.clear();
+    }
+
+    // Start latency of the last play() of this exhibit in milliseconds, or -1 if it never started.
+    public long lastStartLatencyMillis(int exhibitIndex) {
+        return startCount[exhibitIndex] == 0 ? -1 : lastStartLatencyNanos[exhibitIndex] / 1_000_000;
+    }
+
+    // Average start latency of this exhibit in milliseconds, or -1 if it never started.
+    public long averageStartLatencyMillis(int exhibitIndex) {
+        int count = startCount[exhibitIndex];
+        return count == 0 ? -1 : totalStartLatencyNanos[exhibitIndex] / count / 1_000_000;
+    }
+
+    private PooledPlayer acquire(int mediaId) {
+        PooledPlayer pooled = pool.get(mediaId);
+        if (pooled != null) {
+            return pooled;
+        }
+        pooled = create(mediaId);
+        if (pooled == null) {
+            return null;
+        }
+        pool.put(mediaId, pooled);
+        trimPool();
+        return pooled;
+    }
+
+    // Releases least recently used players beyond POOL_SIZE, never the one that is playing.
+    private void trimPool() {
+        Iterator<Map.Entry<Integer, PooledPlayer>> it = pool.entrySet().iterator();
+        while (pool.size() > POOL_SIZE && it.hasNext()) {
+            PooledPlayer pooled = it.next().getValue();
+            if (pooled != current) {
+                pooled.player.release();
+                it.remove();
+            }
+        }
+    }
+
+    private PooledPlayer create(int mediaId) {
+        MediaPlayer player = new MediaPlayer();
+        player.setAudioAttributes(
+                new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                        .build());
+        try {
+            content.setDataSource(player, mediaId);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Unable to open audio " + mediaId, e);
+            player.release();
+            return null;
+        }
+
+        PooledPlayer pooled = new PooledPlayer(mediaId, player);
+        long prepareStartNanos = System.nanoTime();
+        player.setOnPreparedListener(mp -> {
+            pooled.prepared = true;
+            prepareTime.recordSinceNanos(prepareStartNanos);
+            if (pooled.pendingExhibit != -1 && pooled == current) {
+                if (introCache.isPlaying()) {
+                    // Pick the clip up where the intro is, then stop the intro (see OnSeekComplete).
+                    pooled.handingOff = true;
+                    mp.seekTo((int) introCache.positionMillis());
+                    return;
+                }
+                start(pooled, pooled.pendingExhibit);
+            }
+            pooled.pendingExhibit = -1;
+        });
+        player.setOnSeekCompleteListener(mp -> {
+            if (!pooled.handingOff) {
+                return;
+            }
+            pooled.handingOff = false;
+            pooled.pendingExhibit = -1;
+            if (pooled == current) {
+                mp.start();
+                introCache.stop();
+            }
+        });
+        player.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "Audio " + mediaId + " failed: " + what + "/" + extra);
+            if (pooled == current) {
+                current = null;
+                currentExhibit = -1;
+            }
+            pool.remove(mediaId);
+            mp.release();
+            return true;
+        });
+        player.prepareAsync();
+        return pooled;
+    }
+
+    private void start(PooledPlayer pooled, int exhibitIndex) {
+        pooled.player.start();
+        recordStart(exhibitIndex, pooled.requestedAtNanos);
+    }
+
+    private void recordStart(int exhibitIndex, long requestedAtNanos) {
+        long latency = SystemClock.elapsedRealtimeNanos() - requestedAtNanos;
+        lastStartLatencyNanos[exhibitIndex] = latency;
+        totalStartLatencyNanos[exhibitIndex] += latency;
+        startCount[exhibitIndex]++;
+        startLatency.record(latency / 1000);
+        Log.d(TAG, "Exhibit " + exhibitIndex + " audio started after " + latency / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,343 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.Log;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.IntLruCache;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the first few seconds of exhibit audio decoded to PCM, so sound starts the moment an
+ * image is tracked instead of after the MediaPlayer has prepared the mp3.
+ *
+ * Intros are decoded on a background thread into direct (off-heap) buffers when an exhibit is
+ * prefetched, and kept in an LRU bounded by bytes. play() streams an intro to a low-latency
+ * AudioTrack; AudioEngine then seeks its MediaPlayer to positionMillis() and calls stop() once the
+ * player is ready, handing off to streaming playback of the rest of the file. The track is only
+ * started, flushed and released on the writer thread, after the writer of the previous intro has
+ * returned, so stop() never waits for it.
+ *
+ * Intros are keyed by Exhibits.musicClip(), so exhibits sharing a clip share one intro.
+ * play(), stop() and positionMillis() must be called on the main thread.
+ */
+public class AudioIntroCache {
+
+    private static final String TAG = "AudioIntroCache";
+
+    // Long enough to cover MediaPlayer prepare time for the biggest clips.
+    private static final int INTRO_MILLIS = 3000;
+    // About a dozen stereo 44.1 kHz intros.
+    private static final long DEFAULT_BUDGET_BYTES = 8L * 1024 * 1024;
+    // Decoder dequeue timeout.
+    private static final long TIMEOUT_US = 10_000;
+    // Bytes handed to the AudioTrack per write, small so stop() takes effect quickly.
+    private static final int WRITE_CHUNK_BYTES = 4096;
+
+    // Decoded PCM (16 bit, interleaved) for the start of one clip.
+    private static class Intro {
+        final ByteBuffer pcm;
+        final int sampleRate;
+        final int channelCount;
+
+        Intro(ByteBuffer pcm, int sampleRate, int channelCount) {
+            this.pcm = pcm;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+    }
+
+    private final Exhibits exhibits;
+    private final ContentRepository content;
+    private final IntLruCache<Intro> intros;
+    // Clips being decoded, so a clip is only decoded once at a time.
+    private final boolean[] decoding;
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final Histogram decodeTime = Metrics.getInstance().histogram("audio.intro_decode_us");
+
+    private AudioTrack track;
+    // The intro playing, until it is stopped or has played to its end.
+    private Intro playing;
+    // Head position of the track when the current intro started (flush() doesn't always reset it),
+    // set by the writer once it starts the track; -1 until then.
+    private volatile long startHeadPosition = -1;
+    // Bumped on every play() and stop(), so a writer left over from an earlier intro gives up.
+    private volatile int generation;
+    // Generation of the intro the track's end marker was set for.
+    private volatile int markedGeneration;
+
+    public AudioIntroCache(Context context) {
+        this.exhibits = Exhibits.get(context);
+        this.content = ContentRepository.get(context);
+        intros = new IntLruCache<>(exhibits.musicClipCount(), DEFAULT_BUDGET_BYTES);
+        decoding = new boolean[exhibits.musicClipCount()];
+    }
+
+    // Decodes the exhibit's intro in the background if it isn't cached yet.
+    public void prefetch(int exhibitIndex) {
+        int clip = exhibits.musicClip(exhibitIndex);
+        int mediaId = exhibits.musicId(exhibitIndex);
+        if (clip == -1 || intros.contains(clip)) {
+            return;
+        }
+        synchronized (decoding) {
+            if (decoding[clip]) {
+                return;
+            }
+            decoding[clip] = true;
+        }
+        decoder.execute(() -> {
+            try {
+                long startNanos = System.nanoTime();
+                Intro intro = decode(mediaId);
+                if (intro != null) {
+                    decodeTime.recordSinceNanos(startNanos);
+                    intros.put(clip, intro, intro.pcm.capacity());
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Unable to decode intro of exhibit " + exhibitIndex, e);
+            } finally {
+                synchronized (decoding) {
+                    decoding[clip] = false;
+                }
+            }
+        });
+    }
+
+    // Starts the exhibit's intro. Returns false (and plays nothing) when it isn't cached.
+    public boolean play(int exhibitIndex) {
+        stop();
+        int clip = exhibits.musicClip(exhibitIndex);
+        Intro intro = clip == -1 ? null : intros.get(clip);
+        if (intro == null) {
+            return false;
+        }
+        AudioTrack audioTrack = trackFor(intro);
+        if (audioTrack == null) {
+            return false;
+        }
+        playing = intro;
+        startHeadPosition = -1;
+        int playGeneration = ++generation;
+
+        // AudioTrack.write() blocks, so feed it from the writer thread, which also starts the track:
+        // the writer of the previous intro has returned by then, so the flush drops what it left.
+        // The intro buffer is only read through a duplicate, so the cached copy can be played again.
+        ByteBuffer pcm = intro.pcm.duplicate();
+        pcm.position(0);
+        int frames = pcm.remaining() / (2 * intro.channelCount);
+        writer.execute(() -> {
+            if (generation != playGeneration) {
+                return;
+            }
+            audioTrack.flush();
+            long head = audioTrack.getPlaybackHeadPosition() & 0xffffffffL;
+            startHeadPosition = head;
+            // The marker tells the main thread when the intro has played to its end.
+            markedGeneration = playGeneration;
+            audioTrack.setNotificationMarkerPosition((int) (head + frames));
+            audioTrack.play();
+            while (generation == playGeneration && pcm.hasRemaining()) {
+                int chunk = Math.min(WRITE_CHUNK_BYTES, pcm.remaining());
+                int written = audioTrack.write(pcm, chunk, AudioTrack.WRITE_BLOCKING);
+                if (written <= 0) {
+                    break;
+                }
+            }
+            if (generation != playGeneration) {
+                // stop() ran, maybe before the track was started: pause it (again) and drop the
+                // rest of this intro.
+                audioTrack.pause();
+                audioTrack.flush();
+            }
+        });
+        return true;
+    }
+
+    public boolean isPlaying() {
+        return playing != null;
+    }
+
+    // How far into the clip the intro has played, which is where streaming playback should resume.
+    public long positionMillis() {
+        long start = startHeadPosition;
+        if (playing == null || track == null || start < 0) {
+            return 0;
+        }
+        long frames = (track.getPlaybackHeadPosition() & 0xffffffffL) - start;
+        return Math.max(0, frames) * 1000 / playing.sampleRate;
+    }
+
+    public void stop() {
+        if (playing == null) {
+            return;
+        }
+        // pause() also interrupts a blocking write() on the writer thread, which then sees the new
+        // generation, flushes the track and exits. Nothing waits for it here.
+        generation++;
+        track.pause();
+        playing = null;
+    }
+
+    public void release() {
+        stop();
+        decoder.shutdownNow();
+        if (track != null) {
+            // Released once the writer is done with it; shutdown() still runs the queued task.
+            writer.execute(track::release);
+            track = null;
+        }
+        writer.shutdown();
+        intros.clear();
+    }
+
+    public long cachedBytes() {
+        return intros.sizeBytes();
+    }
+
+    // Reuses the track when the format matches the last intro, which is the common case.
+    private AudioTrack trackFor(Intro intro) {
+        if (track != null && track.getSampleRate() == intro.sampleRate
+                && track.getChannelCount() == intro.channelCount) {
+            return track;
+        }
+        if (track != null) {
+            // The writer may still be in write() on it.
+            writer.execute(track::release);
+            track = null;
+        }
+        int channelMask = intro.channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        AudioFormat format = new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(intro.sampleRate)
+                .setChannelMask(channelMask)
+                .build();
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                        .build())
+                .setAudioFormat(format)
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(AudioTrack.getMinBufferSize(
+                        intro.sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        try {
+            track = builder.build();
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            Log.w(TAG, "Unable to create intro track", e);
+            return null;
+        }
+        // Called on the main thread, which creates the track.
+        AudioTrack created = track;
+        track.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+            @Override
+            public void onMarkerReached(AudioTrack audioTrack) {
+                // The intro played to its end, so there is nothing left to hand off from. The writer
+                // has written all of it, so the track can be paused for the next flush.
+                if (audioTrack == created && track == created && markedGeneration == generation
+                        && playing != null) {
+                    playing = null;
+                    audioTrack.pause();
+                }
+            }
+
+            @Override
+            public void onPeriodicNotification(AudioTrack audioTrack) {
+            }
+        });
+        return track;
+    }
+
+    // Decodes the first INTRO_MILLIS of a clip. Runs on the decoder thread.
+    private Intro decode(int mediaId) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            content.setDataSource(extractor, mediaId);
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                return null;
+            }
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            if (channelCount > 2) {
+                return null;
+            }
+            ByteBuffer pcm = ByteBuffer
+                    .allocateDirect(sampleRate * channelCount * 2 * INTRO_MILLIS / 1000)
+                    .order(ByteOrder.nativeOrder());
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            while (pcm.hasRemaining()) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        int size = extractor.readSampleData(codec.getInputBuffer(inputIndex), 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outputIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    if (output != null && info.size > 0) {
+                        output.position(info.offset);
+                        output.limit(info.offset + Math.min(info.size, pcm.remaining()));
+                        pcm.put(output);
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    if (outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE) != sampleRate
+                            || outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT) != channelCount) {
+                        // The handoff position relies on the container's rate, give up on odd files.
+                        return null;
+                    }
+                }
+            }
+            pcm.flip();
+            return new Intro(pcm.asReadOnlyBuffer().order(ByteOrder.nativeOrder()), sampleRate, channelCount);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -26,17 +26,21 @@ import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import com.google.ar.core.AugmentedImage;
+import com.google.ar.core.Camera;
 import com.google.ar.core.Frame;
+import com.google.ar.core.Pose;
 import com.google.ar.core.TrackingState;
 import com.google.ar.sceneform.FrameTime;
 import com.google.ar.sceneform.rendering.ModelRenderable;
+import com.google.ar.sceneform.samples.augmentedimage.core.ActivationStateMachine;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.LodLevels;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.samples.augmentedimage.core.TrackingDiffer;
 import com.google.ar.sceneform.samples.common.helpers.SnackbarHelper;
-import com.google.ar.sceneform.ux.ArFragment;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import android.media.MediaPlayer;
+import java.util.concurrent.atomic.AtomicLong;
 import android.widget.ToggleButton;
 import android.os.Build;
 import android.support.v4.app.ActivityCompat;
@@ -51,6 +55,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This application demonstrates using augmented images to place anchor nodes. app to include image
@@ -65,25 +70,70 @@ Also works with playing audio files instead of video files (see imagePlaysBoolea
 public class AugmentedImageActivity extends AppCompatActivity {
 
 
+    // Value of the index fields below when nothing is playing.
+    public static final int NONE = -1;
+
+    // An image takes over the audio/video after it is the closest one for this many frames and ms...
+    private static final int ACTIVATION_DWELL_FRAMES = 10;
+    private static final long ACTIVATION_DWELL_MILLIS = 300;
+    // ...and is at least this much closer (meters) than the image that has it now.
+    private static final float ACTIVATION_SWITCH_MARGIN = 0.1f;
+    // The audio/video of an image out of view keeps playing this long, in case it is seen again.
+    private static final long ACTIVATION_RELEASE_MILLIS = 3000;
+
     // Used to keep track of which video is currently playing (is changed ONLY in AugmentedImageNode)
-    public static Integer augmentedImageVideoPlayerIndex = null;
-    // mediaAugmentedImage is used to check if an image has been detected before, and is also used to remove specific keys from the augmented image hashmap. TODO: This will absolutely have to be changed for placing renderables and keeping renderables placed. This makes sense for videos and music, but not for renderables (ARTGallery)
-    private AugmentedImage mediaAugmentedImage = null;
+    public static int augmentedImageVideoPlayerIndex = NONE;
     // Both videoRenderable and videoPlacedRenderable are used by AugmentedImageNode, and are declared in this class to only require them to be rendered/loaded once.
     public static CompletableFuture<ModelRenderable> videoRenderable;
     @Nullable public static ModelRenderable videoPlacedRenderable;
 
-    // audioMediaPlayer and currentSongIndex are used to play audio files (generally from musicList in AugmentedImageFragment)
-    private MediaPlayer audioMediaPlayer;
-    public static Integer currentSongIndex = null;
+    // audioEngine and currentSongIndex are used to play audio files (the music of each exhibit, see Exhibits)
+    private AudioEngine audioEngine;
+    // Decoders and textures for the exhibits that play video.
+    private VideoPool videoPool;
+    // Node trees are reused across detections instead of being rebuilt for every image.
+    private final NodePool nodePool = new NodePool();
+    // One anchor per tracked image, detached when the image is stopped or lost.
+    private AnchorManager anchorManager;
+    // Swaps in the smaller image database of the room the visitor is in.
+    private ZoneSwitcher zoneSwitcher;
+    // Timestamp of the frame being processed, in ms.
+    private long frameMillis;
+    public static int currentSongIndex = NONE;
+
+    // Images, audio, video and model placement for each database index.
+    private Exhibits exhibits;
 
     // Required ARCore ArFragment and ImageView.
-    private ArFragment arFragment;
+    private AugmentedImageFragment arFragment;
     private ImageView fitToScanView;
 
-    // Augmented image and its associated center pose anchor, keyed by the augmented image in
-    // the database.
-    private final Map<AugmentedImage, AugmentedImageNode> augmentedImageMap = new HashMap<>();
+    // Per-frame state, indexed by the index of the image in the database (see Exhibits) so the
+    // frame loop needs no map lookups or boxing.
+    // Last AugmentedImage reported for each index, and the node placed on it (null if none).
+    private AugmentedImage[] augmentedImages;
+    private AugmentedImageNode[] augmentedImageNodes;
+    // Camera distance of each image in meters, as of the last frame it was tracked.
+    private float[] cameraDistances;
+    private String[] detectedMessages;
+    // Turns the tracking state reported every frame into transitions (see onTrackingTransition).
+    private TrackingDiffer trackingDiffer;
+    // Picks the one image that owns the audio/video, so two images in view don't fight over it.
+    private ActivationStateMachine activation;
+
+    // Frame timings and tracking counts, written to a file by metricsExporter (see Metrics).
+    private final Histogram frameUpdateTime = Metrics.getInstance().histogram("frame.update_us");
+    private final Histogram frameDelta = Metrics.getInstance().histogram("frame.delta_us");
+    private final AtomicLong activations = Metrics.getInstance().counter("activation.switches");
+    // Transitions into each TrackingDiffer state, indexed by the state.
+    private final AtomicLong[] transitions = {
+            Metrics.getInstance().counter("tracking.to_none"),
+            Metrics.getInstance().counter("tracking.to_paused"),
+            Metrics.getInstance().counter("tracking.to_tracking"),
+            Metrics.getInstance().counter("tracking.to_stopped")
+    };
+    private MetricsExporter metricsExporter;
+    private boolean fitToScanVisible = true;
     public boolean videoIsPlaying = false;
 
     // DISPLAY_WIDTH and DISPLAY_HEIGHT are set default to 480 by 640, but are changed relative to the size of the phone being used in the onCreate() method.
@@ -106,10 +156,39 @@ public class AugmentedImageActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        arFragment = (ArFragment) getSupportFragmentManager().findFragmentById(R.id.ux_fragment);
+        exhibits = Exhibits.get(this);
+        augmentedImages = new AugmentedImage[exhibits.count()];
+        augmentedImageNodes = new AugmentedImageNode[exhibits.count()];
+        cameraDistances = new float[exhibits.count()];
+        detectedMessages = new String[exhibits.count()];
+        trackingDiffer = new TrackingDiffer(exhibits.count(), this::onTrackingTransition);
+        anchorManager = new AnchorManager(exhibits.count(), this::onAnchorDetached);
+        activation = new ActivationStateMachine(exhibits.count(), ACTIVATION_DWELL_FRAMES,
+                ACTIVATION_DWELL_MILLIS, ACTIVATION_RELEASE_MILLIS, ACTIVATION_SWITCH_MARGIN,
+                new ActivationStateMachine.Listener() {
+                    @Override
+                    public void onActivated(int exhibitIndex) {
+                        onExhibitActivated(exhibitIndex);
+                    }
+
+                    @Override
+                    public void onDeactivated(int exhibitIndex) {
+                        onExhibitDeactivated(exhibitIndex);
+                    }
+                });
+        // Downloads newer exhibit content on Wi-Fi; audio, video and models use it once cached.
+        ContentRepository.get(this).start();
+        audioEngine = new AudioEngine(this);
+        videoPool = new VideoPool(this);
+        videoPool.warm();
+        metricsExporter = new MetricsExporter(this);
+
+        arFragment = (AugmentedImageFragment) getSupportFragmentManager().findFragmentById(R.id.ux_fragment);
         fitToScanView = findViewById(R.id.image_view_fit_to_scan);
 
         arFragment.getArSceneView().getScene().addOnUpdateListener(this::onUpdateFrame);
+        arFragment.setOnImageDatabaseChangedListener(this::onImageDatabaseChanged);
+        zoneSwitcher = new ZoneSwitcher(this, arFragment);
 
         DisplayMetrics metrics = new DisplayMetrics();
         getWindowManager().getDefaultDisplay().getMetrics(metrics);
@@ -142,17 +221,40 @@ public class AugmentedImageActivity extends AppCompatActivity {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        audioEngine.release();
+        videoPool.releaseAll();
+        zoneSwitcher.shutdown();
+        ContentRepository.get(this).stop();
         if (mMediaProjection != null) {
             mMediaProjection.stop();
             mMediaProjection = null;
         }
     }
 
+    // Writes the last metrics snapshot, so it is on disk even if the kiosk is switched off.
+    @Override
+    protected void onPause() {
+        super.onPause();
+        metricsExporter.stop();
+    }
+
+    // Cached exhibit models are rebuilt on demand, so they are the first thing to give back.
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            RenderableRegistry.getInstance(this).trimMemory();
+            nodePool.clear();
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        if (augmentedImageMap.isEmpty()) {
+        metricsExporter.start();
+        if (trackingDiffer.trackingCount() == 0) {
             fitToScanView.setVisibility(View.VISIBLE);
+            fitToScanVisible = true;
         }
     }
     @Override
@@ -309,154 +411,249 @@ private class MediaProjectionCallback extends MediaProjection.Callback {
 
     /**
      * Registered with the Sceneform Scene object, this method is called at the start of each frame.
+     * It only records the state of each updated image; the scene changes happen in
+     * onTrackingTransition(), once per actual change of state, and the audio/video changes in
+     * onExhibitActivated()/onExhibitDeactivated(), once an image has been dominant for a while.
+     * Nothing here allocates in the steady state, apart from what ARCore itself returns.
      *
      * @param frameTime - time since last frame.
      */
     private void onUpdateFrame(FrameTime frameTime) {
+        long startNanos = System.nanoTime();
+        frameDelta.record(frameTime.getDeltaTime(TimeUnit.MICROSECONDS));
+        updateFrame();
+        frameUpdateTime.recordSinceNanos(startNanos);
+    }
+
+    private void updateFrame() {
         Frame frame = arFragment.getArSceneView().getArFrame();
 
         // If there is no frame or ARCore is not tracking yet, just return.
-        if (frame == null || frame.getCamera().getTrackingState() != TrackingState.TRACKING) {
+        if (frame == null) {
             return;
         }
-
+        Camera camera = frame.getCamera();
+        if (camera.getTrackingState() != TrackingState.TRACKING) {
+            return;
+        }
+        Pose cameraPose = camera.getPose();
+        frameMillis = frame.getTimestamp() / 1_000_000;
 
         Collection<AugmentedImage> updatedAugmentedImages =
                 frame.getUpdatedTrackables(AugmentedImage.class);
         for (AugmentedImage augmentedImage : updatedAugmentedImages) {
+            // getIndex() is a JNI call, so it is read once per image. In the entrance or a zone
+            // database it is the index within that database, the fragment maps it to the exhibit.
+            int index = arFragment.exhibitIndex(augmentedImage.getIndex());
+            if (index == NONE) {
+                continue;
+            }
+            augmentedImages[index] = augmentedImage;
+            TrackingState trackingState = augmentedImage.getTrackingState();
+            if (trackingState == TrackingState.TRACKING) {
+                // Measured before the transition, which places a new model at the level of detail for it.
+                cameraDistances[index] =
+                        (float) Math.sqrt(distanceSquared(cameraPose, augmentedImage.getCenterPose()));
+            }
+            trackingDiffer.update(index, toDifferState(trackingState));
+            if (trackingState == TrackingState.TRACKING) {
+                anchorManager.markSeen(index, frameMillis);
+                zoneSwitcher.seen(index);
+                // The closest image is the one the visitor is looking at. The score is in meters, so
+                // ACTIVATION_SWITCH_MARGIN is the same at any distance.
+                activation.offer(index, -cameraDistances[index]);
+            }
+        }
+        updateLevelsOfDetail();
+        activation.endFrame(frameMillis);
+        anchorManager.sweep(frameMillis);
+        zoneSwitcher.endFrame(frameMillis);
+    }
 
-            if (!(AugmentedImageFragment.imagePlaysVideoBooleanList[augmentedImage.getIndex()])) {
-                if (videoIsPlaying) {
-                    if ((AugmentedImageStaticNode.node != null) && (!(AugmentedImageStaticNode.node.nodeMediaPlayer == null)) && augmentedImage.getIndex() != augmentedImageVideoPlayerIndex) {
-                        // Video is stopped.
-                        AugmentedImageStaticNode.node.stopVideo();
-                        // Node that the video is placed on is removed from the scene.
-                        AugmentedImageStaticNode.node.removeChild(AugmentedImageStaticNode.node.videoNode);
-                        // the image that correlates to the video that is being stopped is removed from the hashmap of detected images (makes it so if that same image is detected later, a video will be played)
-                        augmentedImageMap.remove(mediaAugmentedImage);
-                    }
-                }
-                switch (augmentedImage.getTrackingState()) {
-                    case PAUSED:
-                        // When an image is in PAUSED state, but the camera is not PAUSED, it has been detected,
-                        // but not yet tracked.
-                        String text = "Detected Image " + augmentedImage.getIndex();
-                        SnackbarHelper.getInstance().showMessage(this, text);
+    // Keeps every tracked model at the level of detail for its distance (see LodLevels).
+    private void updateLevelsOfDetail() {
+        int placed = placedModels();
+        for (int i = 0; i < augmentedImageNodes.length; i++) {
+            if (augmentedImageNodes[i] != null && trackingDiffer.state(i) == TrackingDiffer.STATE_TRACKING) {
+                augmentedImageNodes[i].updateLevelOfDetail(LodLevels.effectiveDistance(cameraDistances[i], placed));
+            }
+        }
+    }
 
-                        break;
+    // Number of exhibit models in the scene; video exhibits don't count.
+    private int placedModels() {
+        int placed = 0;
+        for (int i = 0; i < augmentedImageNodes.length; i++) {
+            if (augmentedImageNodes[i] != null && !exhibits.playsVideo(i)) {
+                placed++;
+            }
+        }
+        return placed;
+    }
 
-                    case TRACKING:
+    private static float distanceSquared(Pose a, Pose b) {
+        float dx = a.tx() - b.tx();
+        float dy = a.ty() - b.ty();
+        float dz = a.tz() - b.tz();
+        return dx * dx + dy * dy + dz * dz;
+    }
 
-                        // Have to switch to UI Thread to update View.
-                        fitToScanView.setVisibility(View.GONE);
+    private static int toDifferState(TrackingState trackingState) {
+        switch (trackingState) {
+            case TRACKING:
+                return TrackingDiffer.STATE_TRACKING;
+            case PAUSED:
+                return TrackingDiffer.STATE_PAUSED;
+            case STOPPED:
+            default:
+                return TrackingDiffer.STATE_STOPPED;
+        }
+    }
 
-                        if (currentSongIndex == null) {
-                            // If there is no song playing, set currentSongIndex to the song that aligns with
-                            // the detected image
-                            currentSongIndex = augmentedImage.getIndex();
+    // Called by trackingDiffer when an image changes state (new, paused, tracking or stopped).
+    private void onTrackingTransition(int index, int from, int to) {
+        transitions[to].incrementAndGet();
+        switch (to) {
+            case TrackingDiffer.STATE_PAUSED:
+                if (from == TrackingDiffer.STATE_NONE || from == TrackingDiffer.STATE_STOPPED) {
+                    // When an image is in PAUSED state, but the camera is not PAUSED, it has been detected,
+                    // but not yet tracked.
+                    SnackbarHelper.getInstance().showMessage(this, detectedMessage(index));
+                    // The visitor is likely to stop at this image, get its audio (or video poster) ready.
+                    audioEngine.prefetch(index);
+                    if (exhibits.playsVideo(index)) {
+                        VideoPosters.getInstance(this).prefetch(index);
+                    }
+                }
+                break;
 
-                            audioMediaPlayer = MediaPlayer.create(this, AugmentedImageFragment.Music_list[currentSongIndex]);
-                            audioMediaPlayer.start();
-                            // Create a new mediaPlayer object with the correct song
-                            // Start the song
-                        } else if ((currentSongIndex != augmentedImage.getIndex())) {
+            case TrackingDiffer.STATE_TRACKING:
+                if (fitToScanVisible) {
+                    fitToScanView.setVisibility(View.GONE);
+                    fitToScanVisible = false;
+                }
+                // Models are placed right away. Video exhibits get their node once they are activated.
+                if (!exhibits.playsVideo(index) && augmentedImageNodes[index] == null) {
+                    // Create a new anchor for newly found images.
+                    AugmentedImageNode node = nodePool.acquire(this, index);
+                    node.setAnchor(anchorManager.acquire(augmentedImages[index], index, frameMillis));
+                    node.setImage(augmentedImages[index], index,
+                            LodLevels.effectiveDistance(cameraDistances[index], placedModels() + 1));
+                    augmentedImageNodes[index] = node;
+                    arFragment.getArSceneView().getScene().addChild(node);
+                }
+                break;
 
-                            // If the song that is playing does not match up with the song the image it detects
-                            // is assigned to:
-                            // Assign the correct song to currentSongIndex
-                            // Stop playing the song, reset the mediaPlayer object
-                            currentSongIndex = augmentedImage.getIndex();
-                            audioMediaPlayer.stop();
-                            audioMediaPlayer.release();
-                            //audioMediaPlayer = null;
+            case TrackingDiffer.STATE_STOPPED:
+                // Makes it so if that same image is detected later, its node (and video) is created again.
+                // The node goes back to the pool for the next image, and its anchor is detached.
+                dropNode(index);
+                augmentedImages[index] = null;
+                break;
 
-                            audioMediaPlayer = MediaPlayer.create(this, AugmentedImageFragment.Music_list[currentSongIndex]);
-                            audioMediaPlayer.start();
-                            // Recreate the mediaPlayer object with the correct song
-                            // Start the song
+            default:
+        }
+    }
 
-                        }
+    // Called by activation once an image has been the dominant one for long enough.
+    // The previous exhibit was already deactivated.
+    private void onExhibitActivated(int index) {
+        activations.incrementAndGet();
+        if (exhibits.playsVideo(index)) {
+            startVideoExhibit(index);
+        } else if (currentSongIndex != index) {
+            // If no song is playing, or the song that is playing does not match up with the
+            // image it detects, play the song assigned to the detected image.
+            // The engine prepares players asynchronously and reuses them, so this never blocks the frame.
+            currentSongIndex = index;
+            audioEngine.play(currentSongIndex);
+        }
+    }
 
-                        // Create a new anchor for newly found images.
+    // Called by activation when another image takes over, or the image was out of view for a while.
+    private void onExhibitDeactivated(int index) {
+        if (currentSongIndex == index) {
+            audioEngine.stop();
+            currentSongIndex = NONE;
+        }
+        if (videoIsPlaying && augmentedImageVideoPlayerIndex == index) {
+            stopVideoExhibit();
+        }
+    }
 
-                        if (!augmentedImageMap.containsKey(augmentedImage)) {
-                            AugmentedImageNode node = new AugmentedImageNode(this, AugmentedImageFragment.Image_list, augmentedImage.getIndex());
-                            node.setImage(augmentedImage, augmentedImage.getIndex());
-                            augmentedImageMap.put(augmentedImage, node);
-                            arFragment.getArSceneView().getScene().addChild(node);
-                        }
-                        break;
+    // Places the video of the activated image and starts it.
+    private void startVideoExhibit(int index) {
+        AugmentedImage augmentedImage = augmentedImages[index];
+        if (augmentedImage == null || augmentedImageNodes[index] != null) {
+            return;
+        }
+        AugmentedImageStaticNode.node = nodePool.acquire(this, index);
+        AugmentedImageStaticNode.node.setAnchor(anchorManager.acquire(augmentedImage, index, frameMillis));
+        // startVideo takes arguments: videoPool and imageIndex. This method takes a (usually already prepared) decoder and texture for the video from the pool.
+        AugmentedImageStaticNode.node.startVideo(videoPool, index);
+        // createVideo places the video on a renderable.
+        AugmentedImageStaticNode.node.createVideo(this, augmentedImage, index);
+        augmentedImageNodes[index] = AugmentedImageStaticNode.node;
+        arFragment.getArSceneView().getScene().addChild(AugmentedImageStaticNode.node);
+        videoIsPlaying = true;
+    }
 
-                    case STOPPED:
+    // Stops the video that is playing and removes its node.
+    private void stopVideoExhibit() {
+        // The video is stopped (the decoder goes back to VideoPool) and the node the video is placed
+        // on, with its frame, is removed from the scene and goes back to nodePool.
+        nodePool.release(AugmentedImageStaticNode.node);
+        // The image whose video was stopped forgets its node, so if it is activated again a video will be played again.
+        if (augmentedImageVideoPlayerIndex != NONE) {
+            augmentedImageNodes[augmentedImageVideoPlayerIndex] = null;
+            anchorManager.release(augmentedImageVideoPlayerIndex);
+        }
+        augmentedImageVideoPlayerIndex = NONE;
+        AugmentedImageStaticNode.node = null;
+        videoIsPlaying = false;
+    }
 
-                        augmentedImageMap.remove(augmentedImage);
+    // Gives the node of the image back to nodePool and detaches its anchor.
+    private void dropNode(int index) {
+        if (videoIsPlaying && augmentedImageVideoPlayerIndex == index) {
+            stopVideoExhibit();
+            return;
+        }
+        nodePool.release(augmentedImageNodes[index]);
+        augmentedImageNodes[index] = null;
+        anchorManager.release(index);
+    }
 
-                        break;
+    // Called by anchorManager when it detached the anchor of an image that was lost for a while, or
+    // to stay under its anchor ceiling.
+    private void onAnchorDetached(int index) {
+        dropNode(index);
+        // If the image is tracked again, it is handled like a newly found image.
+        trackingDiffer.forget(index);
+    }
 
-                    default:
-                }
-                // Video is playing
-            } else {
-                //TODO: Make it place the frame corners with the video
-                if(audioMediaPlayer != null) {
-                    audioMediaPlayer.release();
-                    currentSongIndex = null;
-                }
-                switch (augmentedImage.getTrackingState()) {
-                    case PAUSED:
-                        // When an image is in PAUSED state, but the camera is not PAUSED, it has been detected,
-                        // but not yet tracked.
-                        String text = "Detected Image " + augmentedImage.getIndex();
-                        SnackbarHelper.getInstance().showMessage(this, text);
-                        break;
-                    // If an image is detected
-                    case TRACKING:
-                        // Have to switch to UI Thread to update View.
-                        fitToScanView.setVisibility(View.GONE);
-
-                        // Checks if the node that is used for the video is not null, if the node's mediaplayer is not null, and if the current image detected is not the same image as the last image detected.
-                        // This section is used to stop the video from playing.
-                        if(videoIsPlaying) {
-                            if ((AugmentedImageStaticNode.node != null) && (!(AugmentedImageStaticNode.node.nodeMediaPlayer == null)) && augmentedImage.getIndex() != augmentedImageVideoPlayerIndex) {
-                                // Video is stopped.
-                                AugmentedImageStaticNode.node.stopVideo();
-                                // Node that the video is placed on is removed from the scene.
-                                AugmentedImageStaticNode.node.removeChild(AugmentedImageStaticNode.node.videoNode);
-                                // the image that correlates to the video that is being stopped is removed from the hashmap of detected images (makes it so if that same image is detected later, a video will be played)
-                                augmentedImageMap.remove(mediaAugmentedImage);
-                            }
-                        }
-                            // If the augmentedImageMap (HASHMAP) has not seen the image before (the augmentedImage key is not in the hashmap), then a video or audio file is played.
-                            if (!augmentedImageMap.containsKey(augmentedImage)) {
-
-                                AugmentedImageStaticNode.node = new AugmentedImageNode(this, AugmentedImageFragment.Image_list, augmentedImage.getIndex());
-
-                                // Used to check if a video will be played or if an audio file will be played. This, when true, creates a video.
-
-                                if (AugmentedImageFragment.imagePlaysVideoBooleanList[augmentedImage.getIndex()]) {
-                                    // In the event that there is already music playing, the mediaplayer is stopped and released.
-
-                                    // startVideo takes arguments: context, imageIndex, and texture. This method starts the video (using .create()), and places it on the surface.
-                                    AugmentedImageStaticNode.node.startVideo(this, augmentedImage.getIndex(), AugmentedImageStaticNode.node.texture);
-                                    // Set image places the video on a renderable.
-                                    AugmentedImageStaticNode.node.createVideo(this, augmentedImage, augmentedImage.getIndex());
-                                    // augmentedImage is put in a hashmap, will be used to detect if the image has already been detected (deprecated in this version)
-                                    augmentedImageMap.put(augmentedImage, AugmentedImageStaticNode.node);
-                                    arFragment.getArSceneView().getScene().addChild(AugmentedImageStaticNode.node);
-                                    // Fixes the issue of videos not playing with their specific image if that image has been detected before.
-                                    mediaAugmentedImage = augmentedImage;
-                                    videoIsPlaying = true;
-                                }
-                                // Otherwise, an audio file is created and started.
-                            }
-
-                        break;
-                    case STOPPED:
-                        augmentedImageMap.remove(augmentedImage);
-                        break;
-                    default:
-                }
+    // Called by the fragment once the session uses another image database (the full one after the
+    // entrance one, or a zone's, see zoneSwitcher). The images (and their anchors) of the previous
+    // database are gone, so everything placed on them is dropped and the images of the new database
+    // are handled as newly found. Activation is reset along with them, releasing the active exhibit,
+    // so it is activated again (and its video placed again) once its image is found in the new one.
+    private void onImageDatabaseChanged() {
+        for (int i = 0; i < augmentedImageNodes.length; i++) {
+            if (augmentedImageNodes[i] != null) {
+                dropNode(i);
             }
+            augmentedImages[i] = null;
         }
+        anchorManager.releaseAll();
+        trackingDiffer.reset();
+        activation.reset();
     }
-}
\ No newline at end of file
+
+    // "Detected Image N", built once per image instead of once per frame.
+    private String detectedMessage(int index) {
+        if (detectedMessages[index] == null) {
+            detectedMessages[index] = "Detected Image " + index;
+        }
+        return detectedMessages[index];
+    }
+}
@@ -18,11 +18,13 @@ package com.google.ar.sceneform.samples.augmentedimage;
 
 import android.app.ActivityManager;
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -31,10 +33,17 @@ import android.view.ViewGroup;
 import com.google.ar.core.AugmentedImageDatabase;
 import com.google.ar.core.Config;
 import com.google.ar.core.Session;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogCompiler;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogWriter;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
 import com.google.ar.sceneform.samples.common.helpers.SnackbarHelper;
 import com.google.ar.sceneform.ux.ArFragment;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Extend the ArFragment to customize the ARCore session configuration to include Augmented Images.
@@ -43,343 +52,52 @@ public class AugmentedImageFragment extends ArFragment {
   private static final String TAG = "AugmentedImageFragment";
 
   // NOTE: The way that the correct files are loaded depends on the INDEX loaded from the database.
-  // Look at the order of the images in the assets folder to find out what the order of the images/songs/videos should be.
-
-  // Create a list of the images to be used (the order must match the order of the Music_list, videoList, and the database of images.)
-  public static final String[] Image_list = {
-          "afrikanische_weisheit",
-          "andrej_sacharow",
-          "ashton_kutcher_ian",
-          "beachcroc",
-          "beachcroc_text",
-          "beachflag",
-          "berlin",
-          "bigger_elephant",
-          "birds",
-          "blue_face",
-          "bunny_windows",
-          "burial_hill",
-          "coles_hill",
-          "communist_kiss", // should be sunset monorail
-          "couple_beach",
-          "courthous_1749",
-          "courthouse_1820",
-          "curriculum_vita",
-          "dog",
-          "dumbbell",
-          "erich_fried",
-          "escaping_the_east",
-          "fancyballroom",
-          "fancyballroom_text",
-          "firebreathingchicken",
-          "flag_ks",
-          "forefathers_munument",
-          "forest",
-          "garbage_day",
-          "geeksphone_firefoxos",
-          "harlow_house_museum",
-          "heatjerseybosh_codeposter", // should be sunset monorail
-          "hedge_house",
-          "howland_house",
-          "i_am_malala_book",
-          "immigrant_monument",
-          "jenney_grist_mill",
-          "king_phillips_war_plaque",
-          "lavaeye",
-          "leyden_st",
-          "lightbulb_ks",
-          "loomia_logo",
-          "mark_poster",
-          "massasoit_statue",
-          "mayflower_ii",
-          "mayflower_society_house",
-          "nathan_jones",
-          "obama_campaignlogo_ks",
-          "obscure_faces",
-          "pilgrim_hall_museum",
-          "pilgrim_maiden_statue",
-          "pilgrim_mother",
-          "plimouth_plantation",
-          "plymouth_rock",
-          "red_curtain",
-          "rk_shovel",
-          "robot_war",
-          "seven_stages",
-          "skater",
-          "skater_text",
-          "sparrow_house",
-          "spooner_house_museum",
-          "sunsetmonorail",
-          "sushi",
-          "thumbs_up",
-          "tolerance",
-          "town_brook",
-          "town_square",
-          "training_green",
-          "uaine",
-          "ufosighting",
-          "wall_car",
-          "waterfall",
-          "william_bradford_statue",
-          "women_in_power",
-          "youtube_logo"
-  };
-
-  // Create a list of the song file paths to be used (the order must match the order of Image_list)
-  // Again, the index MUST match up with the images from the database!
-  public static final int[] Music_list = {
-         R.raw.afrikanische_weisheit_wind_cropped,
-          R.raw.andrej_sacharow_speech,
-          R.raw.imagine, //ashton_kutcher
-          R.raw.beachcroc_song,
-          R.raw.beachcroc_song,
-          R.raw.beachflag,
-          R.raw.berlin_wire_zap_cropped,
-          R.raw.elephant,//bigger_elephant
-          R.raw.imagine, //birds
-          R.raw.blue_face_wind_chime_sounds,
-          R.raw.bunny_window_piano_jazz_improvisation,
-          R.raw.burial_hill,
-          R.raw.coles_hill,
-          R.raw.communist_kiss_cold_jorge_mendez_cropped,
-          R.raw.couple,
-          R.raw.courthouse_1749,
-          R.raw.courthouse_1820,
-          R.raw.curriculum_vita_cropped,
-          R.raw.dog_squeaky_toy_sound_effect,
-          R.raw.imagine,//dumbbell
-          R.raw.erich_fried_mellow_sound,
-          R.raw.escaping_the_east_cropped_real,
-          R.raw.fancyballroom_song,
-          R.raw.fancyballroom_song,
-          R.raw.firebreathingchicken,
-          R.raw.imagine, //flag
-          R.raw.forefathers_monument,
-          R.raw.dh_reiter_patagonian_nature_sounds, //forrest target
-          R.raw.garbage_day_cropped,
-          R.raw.imagine, //geeksphone
-          R.raw.harlow_house_museum,
-          R.raw.imagine, //heatjersheybosh
-          R.raw.hedge_house,
-          R.raw.howland_house,
-          R.raw.imagine,//I am malala book
-          R.raw.immigrant_monument,
-          R.raw.jenney_grist_mill,
-          R.raw.king_philips_war_plaque,
-          R.raw.lavaeye,
-          R.raw.leyden_st,
-          R.raw.imagine, //lightbulb_ks
-          R.raw.imagine, //loomia,
-          R.raw.imagine, //mark_poster,
-          R.raw.massasoit_statue,
-          R.raw.mayflower_ii,
-          R.raw.mayflower_society_house,
-          R.raw.nathan_jones_industrial_sounds_with_soul,
-          R.raw.imagine, //obama_campaign
-          R.raw.obscure_faces_people_talking,
-          R.raw.pilgrim_hall_museum,
-          R.raw.pilgrim_maiden_statue,
-          R.raw.pilgrim_mother,
-          R.raw.plimouth_plantation,
-          R.raw.plymouth_rock,
-          R.raw.red_curtain_calm_ocean,
-          R.raw.imagine, //rk_shovel
-          R.raw.robot_war_factory,
-          R.raw.seven_stages_cropped,
-          R.raw.skater_song,
-          R.raw.skater_song,
-          R.raw.sparrow_house,
-          R.raw.spooner_house_museum,
-          R.raw.sunsetmonorail,
-          R.raw.sushi,
-          R.raw.thumbs_up_metal_chain_sound_effect,
-          R.raw.tolerance_jazz_piano,
-          R.raw.town_brook,
-          R.raw.town_square,
-          R.raw.training_green,
-          R.raw.uaine,
-          R.raw.ufosighting,
-          R.raw.the_berlin_wall_falls, //wall car target image sound
-          R.raw.imagine, //waterfalldino
-          R.raw.william_bradford_statue,
-          R.raw.women_in_power_cropped,
-          R.raw.imagine //youtube_logo
-  };
-
-  // Create a list of the video file paths to be used (the order must match the order of Image_list)
-  // Again, the index MUST match up with the images from the database!
-  public static final int[] Video_list = {
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.beachcroc,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.fancyballroom,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater,
-          R.raw.skater
-  };
-
-
-  // List of booleans used to say whether a video is playing or not.
-  // If an element is true, a video will be played when that image is detected.
-  public static final boolean[] imagePlaysVideoBooleanList = {
-          false,
-          false,
-          false,
-          false,
-          false,//beachcroc_text
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,//beachcroc_text
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,//beachcroc_text
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,//beachcroc_text
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false,
-          false
-  };
+  // The images, songs, videos and model placement for each index are listed in app/exhibits/exhibits.csv
+  // (see Exhibits). The build checks that file against the image list of the database.
 
   public boolean usePreloadedDatabase = true;
   // Link to database file, this file is in the assets folder.
   private static final String SAMPLE_IMAGE_DATABASE = "ARTAugmentedImages1819DB.imgdb";
 
+  // Start with the small database of the exhibits near the door (the entrance column of
+  // exhibits.csv) and swap in the full one once it is loaded in the background, so the camera is
+  // scanning right away. Needs ENTRANCE_IMAGE_DATABASE, built with
+  // ./gradlew :app:buildExhibitZoneDatabases; without it the full database is loaded up front.
+  public boolean useStagedDatabase = true;
+  private static final String ENTRANCE_IMAGE_DATABASE = "entrance.imgdb";
+
+  // Told when the session switches to another database, whose images have different indices.
+  public interface OnImageDatabaseChangedListener {
+    void onImageDatabaseChanged();
+  }
+
   // Do a runtime check for the OpenGL level available at runtime to avoid Sceneform crashing the
   // application.
   private static final double MIN_OPENGL_VERSION = 3.0;
 
+  // The session configuration and the database of every exhibit, kept to switch databases later
+  // (see ZoneSwitcher).
+  private Config sessionConfig;
+  private AugmentedImageDatabase fullImageDatabase;
+  // Exhibit of each image of the database in use, null when it is the full database.
+  @Nullable private int[] databaseExhibits;
+  private int exhibitCount;
+  private OnImageDatabaseChangedListener onImageDatabaseChangedListener;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // Builds (or loads the cached) database from the exhibit images when usePreloadedDatabase is off.
+  private ImageDatabaseBuilder imageDatabaseBuilder;
+
   @Override
   public void onAttach(Context context) {
     super.onAttach(context);
+    exhibitCount = Exhibits.get(context).count();
+
+    if (!usePreloadedDatabase) {
+      // Hash the images while the camera starts, the session needs the result.
+      imageDatabaseBuilder = new ImageDatabaseBuilder(context);
+      imageDatabaseBuilder.prefetch();
+    }
 
     // Check for Sceneform being supported on this device.  This check will be integrated into
     // Sceneform eventually.
@@ -419,18 +137,133 @@ public class AugmentedImageFragment extends ArFragment {
       SnackbarHelper.getInstance()
               .showError(getActivity(), "Could not setup augmented image database");
     }
+    sessionConfig = config;
     return config;
   }
 
-  private boolean setupAugmentedImageDatabase(Config config, Session session) {
-    AugmentedImageDatabase augmentedImageDatabase;
+  public void setOnImageDatabaseChangedListener(OnImageDatabaseChangedListener listener) {
+    onImageDatabaseChangedListener = listener;
+  }
+
+  // Exhibit of image databaseIndex (AugmentedImage.getIndex()) of the database in use, or -1.
+  public int exhibitIndex(int databaseIndex) {
+    if (databaseExhibits == null) {
+      return databaseIndex < exhibitCount ? databaseIndex : -1;
+    }
+    return databaseIndex < databaseExhibits.length ? databaseExhibits[databaseIndex] : -1;
+  }
+
+  // False while the session still uses the entrance database.
+  public boolean hasFullImageDatabase() {
+    return fullImageDatabase != null;
+  }
+
+  /**
+   * Makes the running session use database, whose image j is exhibit exhibits[j], or the full
+   * database if it is null. The camera keeps running. Must be called on the main thread. Returns
+   * false if the session couldn't be configured.
+   */
+  public boolean useImageDatabase(@Nullable AugmentedImageDatabase database, @Nullable int[] exhibits) {
+    Session session = getArSceneView().getSession();
+    if (session == null || sessionConfig == null || fullImageDatabase == null) {
+      return false;
+    }
+    sessionConfig.setAugmentedImageDatabase(database != null ? database : fullImageDatabase);
+    try {
+      session.configure(sessionConfig);
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Unable to switch augmented image database.", e);
+      return false;
+    }
+    databaseExhibits = database != null ? exhibits : null;
+    if (onImageDatabaseChangedListener != null) {
+      onImageDatabaseChangedListener.onImageDatabaseChanged();
+    }
+    return true;
+  }
 
-    AssetManager assetManager = getContext() != null ? getContext().getAssets() : null;
-    if (assetManager == null) {
+  private boolean setupAugmentedImageDatabase(Config config, Session session) {
+    Context context = getContext();
+    if (context == null) {
       Log.e(TAG, "Context is null, cannot intitialize image database.");
       return false;
     }
 
+    if (useStagedDatabase) {
+      AugmentedImageDatabase entranceDatabase = loadEntranceImageDatabase(context, session);
+      if (entranceDatabase != null) {
+        config.setAugmentedImageDatabase(entranceDatabase);
+        databaseExhibits = Exhibits.get(context).zones().entrance();
+        recordReady("startup.entrance_ready_ms");
+        loadFullImageDatabaseInBackground(context.getApplicationContext(), session);
+        return true;
+      }
+    }
+
+    AugmentedImageDatabase augmentedImageDatabase = loadFullImageDatabase(context, session);
+    if (augmentedImageDatabase == null) {
+      return false;
+    }
+    config.setAugmentedImageDatabase(augmentedImageDatabase);
+    fullImageDatabase = augmentedImageDatabase;
+    databaseExhibits = null;
+    recordReady("startup.full_ready_ms");
+    return true;
+  }
+
+  // The entrance database, or null if there is none (or no exhibit is marked as entrance).
+  @Nullable
+  private AugmentedImageDatabase loadEntranceImageDatabase(Context context, Session session) {
+    if (Exhibits.get(context).zones().entrance().length == 0) {
+      return null;
+    }
+    try (InputStream is = context.getAssets().open(ENTRANCE_IMAGE_DATABASE)) {
+      return AugmentedImageDatabase.deserialize(session, is);
+    } catch (IOException e) {
+      Log.w(TAG, "No entrance database, loading the full one before scanning.", e);
+      return null;
+    }
+  }
+
+  // Loads the full database on a background thread and switches the session to it on the main thread.
+  private void loadFullImageDatabaseInBackground(Context context, Session session) {
+    new Thread(() -> {
+      AugmentedImageDatabase augmentedImageDatabase = loadFullImageDatabase(context, session);
+      mainHandler.post(() -> {
+        if (augmentedImageDatabase == null) {
+          SnackbarHelper.getInstance()
+                  .showError(getActivity(), "Could not setup augmented image database");
+          return;
+        }
+        if (!isAdded() || getArSceneView().getSession() != session) {
+          // The session was replaced meanwhile, it loaded its own database.
+          return;
+        }
+        fullImageDatabase = augmentedImageDatabase;
+        if (useImageDatabase(null, null)) {
+          recordReady("startup.full_ready_ms");
+        }
+      });
+    }, "FullImageDatabase").start();
+  }
+
+  // Every exhibit's image, in catalog order, with the exhibits added at runtime (see ExhibitOverlay).
+  // Returns null on failure. Any thread.
+  @Nullable
+  private AugmentedImageDatabase loadFullImageDatabase(Context context, Session session) {
+    try {
+      return new ExhibitOverlay(context).loadDatabase(
+              session, ExhibitOverlay.baseKey(context, usePreloadedDatabase),
+              () -> loadBundledImageDatabase(context, session));
+    } catch (IOException | RuntimeException e) {
+      Log.e(TAG, "Exception loading augmented image database.", e);
+      return null;
+    }
+  }
+
+  // The images of the exhibits shipped in the APK, in catalog order.
+  private AugmentedImageDatabase loadBundledImageDatabase(Context context, Session session)
+          throws IOException {
     // There are two ways to configure an AugmentedImageDatabase:
     // 1. Add Bitmap to DB directly
     // 2. Load a pre-built AugmentedImageDatabase
@@ -438,47 +271,125 @@ public class AugmentedImageFragment extends ArFragment {
     // * shorter setup time
     // * doesn't require images to be packaged in apk.
     if(!usePreloadedDatabase) {
-      augmentedImageDatabase = new AugmentedImageDatabase(session);
-
-      for (int i = 0; i < Image_list.length; i++) {
-
-        // For each item in the Image_list, add the image to the database
-
-        Bitmap augmentedImageBitmap = loadAugmentedImageBitmap(assetManager, Image_list[i] + ".jpg");
-        if (augmentedImageBitmap == null) {
-          return false;
-        }
-        augmentedImageDatabase.addImage(Image_list[i] + ".jpg", augmentedImageBitmap);
+      // The images are decoded in parallel and downsampled, and the database is cached in the
+      // app's files keyed by the image contents, so only the first launch after the prints
+      // change pays for the build. Physical widths (width_m in exhibits.csv) are passed along.
+      // Read once, onDetach() may clear the field while this runs in the background.
+      ImageDatabaseBuilder builder = imageDatabaseBuilder;
+      if (builder == null) {
+        builder = new ImageDatabaseBuilder(context);
+        imageDatabaseBuilder = builder;
       }
-      // If the physical size of the image is known, you can instead use:
-      //     augmentedImageDatabase.addImage("image_name", augmentedImageBitmap, widthInMeters);
-      // This will improve the initial detection speed. ARCore will still actively estimate the
-      // physical size of the image as it is viewed from multiple viewpoints.
-
-      config.setAugmentedImageDatabase(augmentedImageDatabase);
-      return true;
+      return builder.build(session);
     }
     else{
       // This is an alternative way to initialize an AugmentedImageDatabase instance,
-      // load a pre-existing augmented image database.
-      try (InputStream is = getContext().getAssets().open(SAMPLE_IMAGE_DATABASE)) {
-        augmentedImageDatabase = AugmentedImageDatabase.deserialize(session, is);
-      } catch (IOException e) {
-        Log.e(TAG, "IO exception loading augmented image database.", e);
-        return false;
+      // load a pre-existing augmented image database. It carries the physical sizes it was built
+      // with, rebuild it with ./gradlew :app:buildExhibitImageDatabase after measuring prints.
+      try (InputStream is = context.getAssets().open(SAMPLE_IMAGE_DATABASE)) {
+        return AugmentedImageDatabase.deserialize(session, is);
+      }
+    }
+  }
+
+  /**
+   * Adds exhibits at runtime: entries[i] describes the exhibit (its name must be new, its music and
+   * video must be content/raw names of the APK, and it can't have a zone or be an entrance exhibit,
+   * as those databases are built from the bundled exhibits only) and images[i] is its image.
+   * Invalid entries throw IllegalArgumentException and nothing is added. Only the new images are
+   * processed: they are added to a copy of the full database, which is then saved with the new
+   * entries (see ExhibitOverlay), so later launches load it as is. The session switches to it
+   * right away.
+   *
+   * Exhibit indices are sized when the activity starts, so the new exhibits are only placed after
+   * it is recreated; onAdded runs on the main thread once the exhibits are saved, e.g. to call
+   * Activity.recreate(). Must be called on the main thread, once the full database is loaded.
+   */
+  public void addExhibits(List<ExhibitCatalogWriter.Entry> entries, List<Bitmap> images,
+                          @Nullable Runnable onAdded) {
+    Context context = getContext();
+    Session session = getArSceneView().getSession();
+    AugmentedImageDatabase live = fullImageDatabase;
+    if (context == null || session == null || live == null) {
+      throw new IllegalStateException("The full augmented image database is not loaded yet");
+    }
+    if (entries.size() != images.size()) {
+      throw new IllegalArgumentException(entries.size() + " entries but " + images.size() + " images");
+    }
+    ExhibitCatalog catalog = Exhibits.get(context).catalog();
+    for (ExhibitCatalogWriter.Entry entry : entries) {
+      if (catalog.indexOf(entry.name) != -1) {
+        throw new IllegalArgumentException("Exhibit " + entry.name + " already exists");
       }
+      // Zone and entrance databases are built from the bundled exhibits only.
+      if (entry.zone != null || (entry.flags & ExhibitCatalog.FLAG_ENTRANCE) != 0) {
+        throw new IllegalArgumentException("Exhibit " + entry.name
+                + " can't be added to a zone or the entrance at runtime");
+      }
+    }
+    if (catalog.size() + entries.size() > ExhibitCatalogCompiler.MAX_EXHIBITS) {
+      throw new IllegalArgumentException("ARCore supports at most "
+              + ExhibitCatalogCompiler.MAX_EXHIBITS + " images");
     }
+    Context appContext = context.getApplicationContext();
+    String baseKey = ExhibitOverlay.baseKey(appContext, usePreloadedDatabase);
 
-    config.setAugmentedImageDatabase(augmentedImageDatabase);
-    return true;
+    new Thread(() -> {
+      long startNanos = System.nanoTime();
+      AugmentedImageDatabase merged;
+      try {
+        // A copy, the live database stays untouched while the session uses it.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        live.serialize(bytes);
+        merged = AugmentedImageDatabase.deserialize(session, new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < entries.size(); i++) {
+          ExhibitCatalogWriter.Entry entry = entries.get(i);
+          if (entry.widthMeters > 0) {
+            merged.addImage(entry.name + ".jpg", images.get(i), entry.widthMeters);
+          } else {
+            merged.addImage(entry.name + ".jpg", images.get(i));
+          }
+        }
+        ExhibitOverlay overlay = new ExhibitOverlay(appContext);
+        overlay.add(entries, images);
+        overlay.saveDatabase(merged, baseKey);
+      } catch (IOException | RuntimeException e) {
+        Log.e(TAG, "Unable to add exhibits.", e);
+        mainHandler.post(() -> SnackbarHelper.getInstance()
+                .showError(getActivity(), "Could not add exhibits: " + e.getMessage()));
+        return;
+      }
+      Metrics.getInstance().histogram("exhibits.add_us").recordSinceNanos(startNanos);
+      Log.d(TAG, "Added " + entries.size() + " exhibits");
+      mainHandler.post(() -> {
+        Exhibits.reload();
+        if (isAdded() && getArSceneView().getSession() == session) {
+          boolean onFullDatabase = databaseExhibits == null;
+          fullImageDatabase = merged;
+          if (onFullDatabase) {
+            useImageDatabase(null, null);
+          }
+        }
+        if (onAdded != null) {
+          onAdded.run();
+        }
+      });
+    }, "AddExhibits").start();
   }
 
-  private Bitmap loadAugmentedImageBitmap (AssetManager assetManager, String IMAGE_NAME){
-    try (InputStream is = assetManager.open(IMAGE_NAME)) {
-      return BitmapFactory.decodeStream(is);
-    } catch (IOException e) {
-      Log.e(TAG, "IO exception loading augmented image bitmap.", e);
+  // Time from the start of the process until a database was in the session config.
+  private static void recordReady(String metric) {
+    long millis = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    Metrics.getInstance().histogram(metric).record(millis);
+    Log.d(TAG, metric + " " + millis);
+  }
+
+  @Override
+  public void onDetach() {
+    super.onDetach();
+    if (imageDatabaseBuilder != null) {
+      imageDatabaseBuilder.shutdown();
+      imageDatabaseBuilder = null;
     }
-    return null;
   }
 }
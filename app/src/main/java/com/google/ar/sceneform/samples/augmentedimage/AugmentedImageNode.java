@@ -19,7 +19,6 @@ package com.google.ar.sceneform.samples.augmentedimage;
 import android.content.Context;
 import android.graphics.SurfaceTexture;
 import android.media.MediaPlayer;
-import android.net.Uri;
 import android.util.Log;
 import com.google.ar.core.AugmentedImage;
 import com.google.ar.sceneform.AnchorNode;
@@ -29,15 +28,24 @@ import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.ExternalTexture;
 import com.google.ar.sceneform.rendering.ModelRenderable;
-import java.util.ArrayList;
-import java.util.Arrays;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.LodLevels;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.samples.augmentedimage.core.TransformTable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Node for rendering an augmented image. The image is framed by placing the virtual picture frame
  * at the corners of the augmented image trackable.
+ *
+ * Nodes are reused through NodePool: recycle() takes the node out of the scene and clears its
+ * renderables, and bind() points it at another exhibit, keeping the child nodes.
+ *
+ * Exhibit models are shown at the level of detail for the camera distance (see LodLevels), which
+ * the activity updates every frame through updateLevelOfDetail().
  */
 @SuppressWarnings({"AndroidApiChecker"})
 
@@ -45,357 +53,42 @@ public class AugmentedImageNode extends AnchorNode {
 
     private static final String TAG = "AugmentedImageNode";
 
-    // The augmented image represented by this node.
-    private AugmentedImage augmentedImage;
-
-    // We use completable futures here to simplify
-    // the error handling and asynchronous loading.  The loading is started with the
-    // first construction of an instance, and then used when the image is set.
-
-    // Each obj file needs its own CompletableFuture, regardless of whether or not
-    // the obj files are being used on the same augmented image or not (ex: 4 obj files for each of the
-    // corners of a frame and each needs its own CompletableFuture)
-
-
-    // List of CompletableFutures, are used to add new renderables.
-    // Add new CompletableFuture for each OBJ file.
-    //ARTGallery Renderables
-    private static CompletableFuture<ModelRenderable> sushi;
-    private static CompletableFuture<ModelRenderable> fancyballroom;
-    private static CompletableFuture<ModelRenderable> fancyballroom_text;
-    private static CompletableFuture<ModelRenderable> beachflag;
-    private static CompletableFuture<ModelRenderable> sunsetmonorail;
-    private static CompletableFuture<ModelRenderable> bigger_elephant;
-    private static CompletableFuture<ModelRenderable> lavaeye;
-    private static CompletableFuture<ModelRenderable> firebreathingchicken;
-    private static CompletableFuture<ModelRenderable> beachcroc;
-    private static CompletableFuture<ModelRenderable> beachcroc_text;
-    private static CompletableFuture<ModelRenderable> skater;
-    private static CompletableFuture<ModelRenderable> skater_text;
-    private static CompletableFuture<ModelRenderable> ufosighting;
-    private static CompletableFuture<ModelRenderable> waterfall;
-    private static CompletableFuture<ModelRenderable> couple;
-    private static CompletableFuture<ModelRenderable> birds;
-    private static CompletableFuture<ModelRenderable> frame;
-    private static CompletableFuture<ModelRenderable> frame_ul;
-    private static CompletableFuture<ModelRenderable> frame_ur;
-    private static CompletableFuture<ModelRenderable> frame_ll;
-    private static CompletableFuture<ModelRenderable> frame_lr;
-    //east side gallery renderables
-    private static CompletableFuture<ModelRenderable> afrikanische_weisheit;
-    private static CompletableFuture<ModelRenderable> andrej_sacharow;
-    private static CompletableFuture<ModelRenderable> berlin;
-    private static CompletableFuture<ModelRenderable> blue_face;
-    private static CompletableFuture<ModelRenderable> bunny_windows;
-    private static CompletableFuture<ModelRenderable> communist_kiss;
-    private static CompletableFuture<ModelRenderable> curriculum_vita;
-    private static CompletableFuture<ModelRenderable> dog;
-    private static CompletableFuture<ModelRenderable> erich_fried;
-    private static CompletableFuture<ModelRenderable> escaping_the_east;
-    private static CompletableFuture<ModelRenderable> forest;
-    private static CompletableFuture<ModelRenderable> garbage_day;
-    private static CompletableFuture<ModelRenderable> nathan_jones;
-    private static CompletableFuture<ModelRenderable> obscure_faces;
-    private static CompletableFuture<ModelRenderable> red_curtain;
-    private static CompletableFuture<ModelRenderable> robot_war;
-    private static CompletableFuture<ModelRenderable> seven_stages;
-    private static CompletableFuture<ModelRenderable> thumbs_up;
-    private static CompletableFuture<ModelRenderable> tolerance;
-    private static CompletableFuture<ModelRenderable> uaine;
-    private static CompletableFuture<ModelRenderable> wall_car;
-    private static CompletableFuture<ModelRenderable> women_in_power;
-//code.org renderables
-    private static CompletableFuture<ModelRenderable> ashton_kutcher_ian;
-    private static CompletableFuture<ModelRenderable> dumbbell;
-    private static CompletableFuture<ModelRenderable> flag_ks;
-    private static CompletableFuture<ModelRenderable> geeksphone_firefoxos;
-    private static CompletableFuture<ModelRenderable> heatjerseybosh_codeposter;
-    private static CompletableFuture<ModelRenderable> i_am_malala_book;
-    private static CompletableFuture<ModelRenderable> lightbulb_ks;
-    private static CompletableFuture<ModelRenderable> loomia_logo;
-    private static CompletableFuture<ModelRenderable> mark_poster;
-    private static CompletableFuture<ModelRenderable> obama_campaignlogo_ks;
-    private static CompletableFuture<ModelRenderable> rk_shovel;
-    private static CompletableFuture<ModelRenderable> youtube_logo;
-    //plymouth400 renderables
-    private static CompletableFuture<ModelRenderable> burial_hill;
-    private static CompletableFuture<ModelRenderable> coles_hill;
-    private static CompletableFuture<ModelRenderable> courthouse_1749;
-    private static CompletableFuture<ModelRenderable> courthouse_1820;
-    private static CompletableFuture<ModelRenderable> forefathers_monument;
-    private static CompletableFuture<ModelRenderable> harlow_house_museum;
-    private static CompletableFuture<ModelRenderable> hedge_house;
-    private static CompletableFuture<ModelRenderable> howland_house;
-    private static CompletableFuture<ModelRenderable> immigrant_monument;
-    private static CompletableFuture<ModelRenderable> jenney_grist_mill;
-    private static CompletableFuture<ModelRenderable> king_philips_war_plaque;
-    private static CompletableFuture<ModelRenderable> leyden_st;
-    private static CompletableFuture<ModelRenderable> massasoit_statue;
-    private static CompletableFuture<ModelRenderable> mayflower_ii;
-    private static CompletableFuture<ModelRenderable> mayflower_society_house;
-    private static CompletableFuture<ModelRenderable> pilgrim_hall_museum;
-    private static CompletableFuture<ModelRenderable> pilgrim_maiden_statue;
-    private static CompletableFuture<ModelRenderable> pilgrim_mother;
-    private static CompletableFuture<ModelRenderable> plimouth_plantation;
-    private static CompletableFuture<ModelRenderable> plymouth_rock;
-    private static CompletableFuture<ModelRenderable> sparrow_house;
-    private static CompletableFuture<ModelRenderable> spooner_house_museum;
-    private static CompletableFuture<ModelRenderable> town_brook;
-    private static CompletableFuture<ModelRenderable> town_square;
-    private static CompletableFuture<ModelRenderable> training_green;
-    private static CompletableFuture<ModelRenderable> william_bradford_statue;
+    // Models are shared through RenderableRegistry, so detecting an exhibit again reuses the
+    // renderable that was built the first time instead of loading the .sfb again.
+    // The four frame corners are only used by video exhibits.
+    private CompletableFuture<ModelRenderable> frame_ul;
+    private CompletableFuture<ModelRenderable> frame_ur;
+    private CompletableFuture<ModelRenderable> frame_ll;
+    private CompletableFuture<ModelRenderable> frame_lr;
+
+
+    // Child nodes, created the first time they are needed and kept when the node is recycled.
+    private Node modelNode;
+    private final Node[] frameCorners = new Node[4];
 
+    // Exhibit the node is bound to, or -1 while it is in the NodePool.
+    private int exhibitIndex = -1;
+    private Context context;
+    // Level of detail of the exhibit model (see LodLevels).
+    private int levelOfDetail;
+    // Set by NodePool while the node is idle in the pool.
+    boolean pooled;
 
+    // The video decoder and texture come from VideoPool, and only video exhibits get one.
     public MediaPlayer nodeMediaPlayer;
     public Node videoNode;
-    public ExternalTexture texture = new ExternalTexture();
-
-
-    // make sure the order of this list is the same as the order of imageList (which can be found in Fragment)
-
-    // List of renderables, used for effiency.
-    public ArrayList<CompletableFuture<ModelRenderable>> renderableList = new ArrayList<CompletableFuture<ModelRenderable>>(Arrays.asList(
-            afrikanische_weisheit,
-            andrej_sacharow,
-            ashton_kutcher_ian,
-            beachcroc,
-            beachcroc_text,
-            beachflag,
-            berlin,
-            bigger_elephant,
-            birds,
-            blue_face,
-            bunny_windows,
-            burial_hill,
-            coles_hill,
-            communist_kiss, // should be sunset monorail
-            couple,
-            courthouse_1749,
-            courthouse_1820,
-            curriculum_vita,
-            dog,
-            dumbbell,
-            erich_fried,
-            escaping_the_east,
-            fancyballroom,
-            fancyballroom_text,
-            firebreathingchicken,
-            flag_ks,
-            forefathers_monument,
-            forest,
-            garbage_day,
-            geeksphone_firefoxos,
-            harlow_house_museum,
-            heatjerseybosh_codeposter, // should be sunset monorail
-            hedge_house,
-            howland_house,
-            i_am_malala_book,
-            immigrant_monument,
-            jenney_grist_mill,
-            king_philips_war_plaque,
-            lavaeye,
-            leyden_st,
-            lightbulb_ks,
-            loomia_logo,
-            mark_poster,
-            massasoit_statue,
-            mayflower_ii,
-            mayflower_society_house,
-            nathan_jones,
-            obama_campaignlogo_ks,
-            obscure_faces,
-            pilgrim_hall_museum,
-            pilgrim_maiden_statue,
-            pilgrim_mother,
-            plimouth_plantation,
-            plymouth_rock,
-            red_curtain,
-            rk_shovel,
-            robot_war,
-            seven_stages,
-            skater,
-            skater_text,
-            sparrow_house,
-            spooner_house_museum,
-            sunsetmonorail,
-            sushi,
-            thumbs_up,
-            tolerance,
-            town_brook,
-            town_square,
-            training_green,
-            uaine,
-            ufosighting,
-            wall_car,
-            waterfall,
-            william_bradford_statue,
-            women_in_power,
-            youtube_logo));
-
-
-    // Change the numbers in order to translate the position of the renderable
-    public static Vector3[] nodePosition = {
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachflag
-            new Vector3 (0.0f, 0.0f, 0.0f), //bigger_elephant
-            new Vector3 (0.0f, 0.0f, 0.0f), //birds
-            new Vector3 (0.0f, 0.0f, 0.0f), //couple
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f), //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f),  //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachflag
-            new Vector3 (0.0f, 0.0f, 0.0f), //bigger_elephant
-            new Vector3 (0.0f, 0.0f, 0.0f), //birds
-            new Vector3 (0.0f, 0.0f, 0.0f), //couple
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f), //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f),  //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachflag
-            new Vector3 (0.0f, 0.0f, 0.0f), //bigger_elephant
-            new Vector3 (0.0f, 0.0f, 0.0f), //birds
-            new Vector3 (0.0f, 0.0f, 0.0f), //couple
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f), //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //fancyballroom
-            new Vector3 (0.0f, 0.0f, 0.0f), //firebreathingchicken
-            new Vector3 (0.0f, 0.0f, 0.0f), //lavaeye
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater_text
-            new Vector3 (0.0f, 0.0f, 0.0f), //skater
-            new Vector3 (0.0f, 0.0f, 0.0f), //sunsetmonorail
-            new Vector3 (0.0f, 0.0f, 0.0f), //sushi
-            new Vector3 (0.0f, 0.0f, 0.0f), //ufosighting
-            new Vector3 (0.0f, 0.0f, 0.0f),  //waterfall
-            new Vector3 (0.0f, 0.0f, 0.0f), //beachcroc_text
-
-    };
-
-    // Change the numbers to rotate the renderable
-    public static Vector4[] nodeRotation = {
-            new Vector4 (1, 0, 0, 0f), //beachcroc_text
-            new Vector4 (1, 0, 0, 0f), //beachcroc
-            new Vector4 (0, 0, 0, 0f), //beachflag
-            new Vector4 (0, 0, 0, 0f), //bigger_elephant
-            new Vector4 (0, 0, 0, 0f), //birds
-            new Vector4 (0, 0, 0, 0f), //couple
-            new Vector4 (0, 0, 0, 0f), //fancyballroom_text
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f),  //waterfall
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f),  //waterfall
-            new Vector4 (1, 0, 0, 0f), //beachcroc_text
-            new Vector4 (1, 0, 0, 0f), //beachcroc
-            new Vector4 (0, 0, 0, 0f), //beachflag
-            new Vector4 (0, 0, 0, 0f), //bigger_elephant
-            new Vector4 (0, 0, 0, 0f), //birds
-            new Vector4 (0, 0, 0, 0f), //couple
-            new Vector4 (0, 0, 0, 0f), //fancyballroom_text
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f),  //waterfall
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f),  //waterfall
-            new Vector4 (1, 0, 0, 0f), //beachcroc_text
-            new Vector4 (1, 0, 0, 0f), //beachcroc
-            new Vector4 (0, 0, 0, 0f), //beachflag
-            new Vector4 (0, 0, 0, 0f), //bigger_elephant
-            new Vector4 (0, 0, 0, 0f), //birds
-            new Vector4 (0, 0, 0, 0f), //couple
-            new Vector4 (0, 0, 0, 0f), //fancyballroom_text
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f), //waterfall
-            new Vector4 (0, 0, 0, 0f), //fancyballroom
-            new Vector4 (0, 0, 0, 0f), //firebreathingchicken
-            new Vector4 (0, 0, 0, 0f), //lavaeye
-            new Vector4 (0, 0, 0, 0f), //skater_text
-            new Vector4 (0, 0, 0, 0f), //skater
-            new Vector4 (0, 0, 0, 0f), //sunsetmonorail
-            new Vector4 (0, 0, 0, 0f), //sushi
-            new Vector4 (0, 0, 0, 0f), //ufosighting
-            new Vector4 (0, 0, 0, 0f),  //waterfall
-            new Vector4 (0, 0, 0, 0f)  //waterfall
-    };
-
-// currentRenderable is the generic renderable variable used to store the one renderable being loaded (in AugmentedImageNode())
-    public CompletableFuture<ModelRenderable> currentRenderable;
+    public ExternalTexture texture;
+    private VideoPool videoPool;
+    private VideoPool.Slot videoSlot;
+
+
+    // Position, rotation and scale of each exhibit's model come from the exhibit catalog, computed
+    // once at load (see Exhibits.transforms()).
+    private final Exhibits exhibits;
+
+    // The exhibit model at the current level of detail, loaded or being loaded. Null for video
+    // exhibits and while the node is in the pool.
+    private CompletableFuture<ModelRenderable> currentRenderable;
 
     // The augmented image represented by this node.
     private AugmentedImage image;
@@ -406,63 +99,86 @@ public class AugmentedImageNode extends AnchorNode {
     // Controls the height of the video in world space.
     private static final float VIDEO_HEIGHT_METERS = 0.2f;
 
-    // Creates an AugmentedImageNode object. Uses the list of images (see AugmentedImageFragment) to fetch renderables
-    // augmentedImageIndex is used to index imageList.
-    public AugmentedImageNode(Context context, String[] imageList, Integer augmentedImageIndex) {
-
-        // we check if sushi is null
-        // sushi is used in order to check if the renderables are null
-        // because the renderables are built using the same block of code all at once, if sushi (or any other completable future) is null,
-        // then they all are null
-        if (sushi == null) {
-
-            if (!(AugmentedImageFragment.imagePlaysVideoBooleanList[augmentedImageIndex])) {
-                currentRenderable = renderableList.get(augmentedImageIndex);
-                currentRenderable =
-                        // build the renderable using the image that is detected
-                        ModelRenderable.builder()
-                                .setSource(context, Uri.parse("models/" + imageList[augmentedImageIndex] + ".sfb"))
-                                .build();
-                Log.d("modelrenderable", ("conditional is running! filepath: " + Uri.parse("models/" + imageList[augmentedImageIndex] + ".sfb")));
-
-            } else {
-
-                frame_ul =
-                        ModelRenderable.builder()
-                                .setSource(context, Uri.parse("models/frame_upper_left.sfb"))
-                                .build();
-                Log.d("running", ("running"));
-                frame_ur =
-                        ModelRenderable.builder()
-                                .setSource(context, Uri.parse("models/frame_upper_right.sfb"))
-                                .build();
-                frame_ll =
-                        ModelRenderable.builder()
-                                .setSource(context, Uri.parse("models/frame_lower_left.sfb"))
-                                .build();
-                frame_lr =
-                        ModelRenderable.builder()
-                                .setSource(context, Uri.parse("models/frame_lower_right.sfb"))
-                                .build();
+    // Scale of the frame corner models.
+    private static final float FRAME_SCALE = 0.1f;
 
-            }
+    // Turns the video quad from perpendicular to parallel to the image, and lifts it off the image.
+    private static final Quaternion VIDEO_ROTATION = Quaternion.axisAngle(new Vector3(1.0f, 0f, 0f), -90f);
+    private static final Vector3 VIDEO_POSITION = new Vector3(0.0f, 0.0f, 0.07f); // x, z, y
+
+    // Nodes copy the vectors and quaternions they are given, so placing a node reuses these
+    // instead of allocating. Only used on the main thread.
+    private static final Vector3 scratchVector = new Vector3();
+    private static final Quaternion scratchRotation = new Quaternion();
 
+    // Time spent in setImage() and createVideo(), see Metrics.
+    private static final Histogram setImageTime = Metrics.getInstance().histogram("node.set_image_us");
+    private static final Histogram createVideoTime = Metrics.getInstance().histogram("node.create_video_us");
+    private static final AtomicLong lodSwitches = Metrics.getInstance().counter("node.lod_switches");
 
+    // Creates an AugmentedImageNode object. Renderables are fetched from RenderableRegistry,
+    // augmentedImageIndex is the index of the image in the database (see AugmentedImageFragment).
+    public AugmentedImageNode(Context context, int augmentedImageIndex) {
+
+        exhibits = Exhibits.get(context);
+        bind(context, augmentedImageIndex);
+    }
+
+    // Points the node at the exhibit at augmentedImageIndex, fetching its renderables. The exhibit
+    // model is fetched by setImage(), once the distance to the image is known.
+    void bind(Context context, int augmentedImageIndex) {
+        this.context = context;
+        exhibitIndex = augmentedImageIndex;
+        RenderableRegistry registry = RenderableRegistry.getInstance(context);
+        if (exhibits.playsVideo(augmentedImageIndex)) {
+            frame_ul = registry.getSharedRenderable(context, "frame_upper_left");
+            frame_ur = registry.getSharedRenderable(context, "frame_upper_right");
+            frame_ll = registry.getSharedRenderable(context, "frame_lower_left");
+            frame_lr = registry.getSharedRenderable(context, "frame_lower_right");
         }
 
         // Checks if videoRenderable is null, if it is, videoRenderable is loaded from models.
         // Will be used as the thing that the video is placed on.
         if (AugmentedImageActivity.videoRenderable == null) {
-            AugmentedImageActivity.videoRenderable =
-                    ModelRenderable.builder()
-                            .setSource(context, Uri.parse("models/chroma_key_video.sfb"))
-                            .build();
+            AugmentedImageActivity.videoRenderable = registry.getSharedRenderable(context, "chroma_key_video");
+        }
+    }
+
+    public int exhibitIndex() {
+        return exhibitIndex;
+    }
+
+    // Stops the video, lets go of the anchor (AnchorManager detaches it) and takes the node out of
+    // the scene. The child nodes are kept, without renderables, for the next exhibit the node is bound to.
+    void recycle() {
+        stopVideo();
+        setAnchor(null);
+        setParent(null);
+        if (modelNode != null) {
+            modelNode.setRenderable(null);
+        }
+        for (Node corner : frameCorners) {
+            if (corner != null) {
+                corner.setRenderable(null);
+            }
+        }
+        if (videoNode != null) {
+            videoNode.setRenderable(null);
         }
+        currentRenderable = null;
+        levelOfDetail = 0;
+        frame_ul = null;
+        frame_ur = null;
+        frame_ll = null;
+        frame_lr = null;
+        image = null;
+        exhibitIndex = -1;
+        context = null;
     }
 
     /**
      * Called when the AugmentedImage is detected and should be rendered. A Sceneform node tree is
-     * created based on an Anchor created from the image. The corners are then positioned based on the
+     * created based on the node's anchor (set by AnchorManager before this is called). The corners are then positioned based on the
      * extents of the image. There is no need to worry about world coordinates since everything is
      * relative to the center of the image, which is the parent node of the corners.
      */
@@ -470,63 +186,147 @@ public class AugmentedImageNode extends AnchorNode {
     @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
     // setImage is used to place an animated file.
     // setImage takes arguments image, and augmentedImageIndex, which is used to index the list of renderables.
-    public void setImage(AugmentedImage image, Integer augmentedImageIndex) {
-        this.augmentedImage = image;
+    // lodDistance is the camera distance the level of detail is picked for (see updateLevelOfDetail()).
+    public void setImage(AugmentedImage image, int augmentedImageIndex, float lodDistance) {
+        long startNanos = System.nanoTime();
+        this.image = image;
 
+        // build the renderable using the image that is detected (or reuse it if it was built before)
+        levelOfDetail = LodLevels.level(lodDistance, 0);
+        currentRenderable = RenderableRegistry.getInstance(context)
+                .getExhibitRenderable(context, augmentedImageIndex, levelOfDetail);
         if (!currentRenderable.isDone()) {
-            CompletableFuture.allOf(currentRenderable)
-                    // in the case that more than one renderable is used to create a scene,
-                    // use CompletableFuture.allOf(currentRenderable, other renderables needed for the scene)
-                    .thenAccept((Void aVoid) -> setImage(image, augmentedImageIndex))
-                    .exceptionally(
-                            throwable -> {
-                                Log.e(TAG, "Exception loading", throwable);
-                                return null;
-                            });
-            }
-
-        // Set the anchor based on the center of the image.
-        setAnchor(image.createAnchor(image.getCenterPose()));
-
+            // The model node is placed now and only gets its renderable once the model is loaded,
+            // so the anchor and the node are not created a second time.
+            showWhenLoaded(currentRenderable);
+        }
 
         // creates the node
         // in the case that there is more than one renderable in the scene, run the code again, replacing
         // currentRenderable with the other renderables
 
-        Node fullnode;
-
-        fullnode = new Node();
+        if (modelNode == null) {
+            modelNode = new Node();
+        }
+        Node fullnode = modelNode;
         fullnode.setParent(this);
-        fullnode.setWorldPosition(new Vector3((this.getWorldPosition().x + (nodePosition[augmentedImageIndex].x)), (this.getWorldPosition().y + (nodePosition[augmentedImageIndex].y)), (this.getWorldPosition().z + (nodePosition[augmentedImageIndex].z))));
-        fullnode.setLocalScale(new Vector3(0.1f, 0.1f, 0.1f));
-        Quaternion newQuaternion = Quaternion.axisAngle(new Vector3(nodeRotation[augmentedImageIndex].x, nodeRotation[augmentedImageIndex].y, nodeRotation[augmentedImageIndex].z), nodeRotation[augmentedImageIndex].q);
-        fullnode.setLocalRotation(Quaternion.multiply(fullnode.getLocalRotation(), newQuaternion));
+        TransformTable transforms = exhibits.transforms();
+        Vector3 anchorPosition = this.getWorldPosition();
+        scratchVector.set(
+                anchorPosition.x + transforms.positionX(augmentedImageIndex),
+                anchorPosition.y + transforms.positionY(augmentedImageIndex),
+                anchorPosition.z + transforms.positionZ(augmentedImageIndex));
+        fullnode.setWorldPosition(scratchVector);
+        float scale = transforms.scale(augmentedImageIndex);
+        scratchVector.set(scale, scale, scale);
+        fullnode.setLocalScale(scratchVector);
+        // A new node has no rotation, so the exhibit's rotation is used as is.
+        fullnode.setLocalRotation(exhibitRotation(augmentedImageIndex));
         fullnode.setRenderable(currentRenderable.getNow(null));
+        setImageTime.recordSinceNanos(startNanos);
 
         }
 
-    public void startVideo(Context context, int augmentedImageIndex, ExternalTexture texture) {
-        nodeMediaPlayer = MediaPlayer.create(context, AugmentedImageFragment.Video_list[augmentedImageIndex]);
-        nodeMediaPlayer.setSurface(texture.getSurface());
-        nodeMediaPlayer.setLooping(true);
+    /**
+     * Switches the exhibit model to the level of detail for lodDistance, the camera distance in
+     * meters (see LodLevels.effectiveDistance()). The current level stays on screen until the new
+     * one is loaded. Called every frame the image is tracked; cheap while the level doesn't change.
+     */
+    public void updateLevelOfDetail(float lodDistance) {
+        if (currentRenderable == null || modelNode == null) {
+            // A video exhibit, or not placed yet.
+            return;
+        }
+        int level = LodLevels.level(lodDistance, levelOfDetail);
+        if (level == levelOfDetail) {
+            return;
+        }
+        levelOfDetail = level;
+        lodSwitches.incrementAndGet();
+        currentRenderable = RenderableRegistry.getInstance(context)
+                .getExhibitRenderable(context, exhibitIndex, level);
+        // Runs right away when the level is cached.
+        showWhenLoaded(currentRenderable);
     }
 
-    // Used to stop the video.
+    // Puts the model on the model node once it is loaded, unless another one was asked for meanwhile.
+    private void showWhenLoaded(CompletableFuture<ModelRenderable> loading) {
+        loading
+                .thenAccept(renderable -> {
+                    // The node may have been recycled for another exhibit, or switched to another
+                    // level of detail, meanwhile.
+                    if (currentRenderable == loading && modelNode != null) {
+                        modelNode.setRenderable(renderable);
+                    }
+                })
+                .exceptionally(
+                        throwable -> {
+                            Log.e(TAG, "Exception loading", throwable);
+                            return null;
+                        });
+    }
+
+    // Rotation of the exhibit's model, precomputed from the axis and angle in the exhibit catalog.
+    // Returns scratchRotation, copy it before calling again.
+    private Quaternion exhibitRotation(int augmentedImageIndex) {
+        TransformTable transforms = exhibits.transforms();
+        scratchRotation.set(
+                transforms.rotationX(augmentedImageIndex), transforms.rotationY(augmentedImageIndex),
+                transforms.rotationZ(augmentedImageIndex), transforms.rotationW(augmentedImageIndex));
+        return scratchRotation;
+    }
+
+    // Places the four corners of the picture frame around the image.
+    private void placeFrameCorners(AugmentedImage image, int augmentedImageIndex) {
+        // The four corners share the exhibit's rotation, so it is looked up once.
+        Quaternion cornerRotation = exhibitRotation(augmentedImageIndex);
+        float halfWidth = 0.5f * image.getExtentX();
+        float halfHeight = 0.5f * image.getExtentZ();
+        placeFrameCorner(0, -halfWidth, halfHeight, cornerRotation, frame_ll);
+        placeFrameCorner(1, halfWidth, halfHeight, cornerRotation, frame_lr);
+        placeFrameCorner(2, -halfWidth, -halfHeight, cornerRotation, frame_ul);
+        placeFrameCorner(3, halfWidth, -halfHeight, cornerRotation, frame_ur);
+    }
+
+    // Places frame corner number cornerIndex at (x, z) from the center of the image.
+    private void placeFrameCorner(int cornerIndex, float x, float z, Quaternion rotation, CompletableFuture<ModelRenderable> corner) {
+        if (frameCorners[cornerIndex] == null) {
+            frameCorners[cornerIndex] = new Node();
+        }
+        Node fullnode = frameCorners[cornerIndex];
+        fullnode.setParent(this);
+        scratchVector.set(x, 0.0f, z);
+        fullnode.setWorldPosition(scratchVector);
+        scratchVector.set(FRAME_SCALE, FRAME_SCALE, FRAME_SCALE);
+        fullnode.setLocalScale(scratchVector);
+        fullnode.setLocalRotation(rotation);
+        fullnode.setRenderable(corner.getNow(null));
+    }
+
+    // Takes a decoder and texture for the exhibit's video from the pool. The video is prepared
+    // in the background and started by createVideo() once it is ready.
+    public void startVideo(VideoPool videoPool, int augmentedImageIndex) {
+        this.videoPool = videoPool;
+        videoSlot = videoPool.acquire(augmentedImageIndex);
+        if (videoSlot != null) {
+            nodeMediaPlayer = videoSlot.player;
+            texture = videoSlot.texture;
+        }
+    }
+
+    // Used to stop the video. The decoder goes back to the pool still prepared.
     public void stopVideo() {
-        try {
-            texture.getSurfaceTexture().release();
-            nodeMediaPlayer.reset();
-            nodeMediaPlayer.prepare();
-            nodeMediaPlayer.stop();
-            nodeMediaPlayer.release();
-            nodeMediaPlayer = null;
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (videoSlot != null) {
+            texture.getSurfaceTexture().setOnFrameAvailableListener(null);
+            videoPool.release(videoSlot);
+            videoSlot = null;
         }
+        nodeMediaPlayer = null;
     }
 
     // Used to place the renderable on the image (video is also placed on the renderable)
     public void createVideo(Context context, AugmentedImage image, int augmentedImageIndex) {
+        long startNanos = System.nanoTime();
         this.image = image;
 
 
@@ -537,7 +337,7 @@ public class AugmentedImageNode extends AnchorNode {
                     // returning a CompletableFuture. Call handle(), thenAccept(), or check isDone()
                     // before calling get().
 
-                    if (throwable != null) {
+                    if (throwable != null || texture == null) {
                         return null;
                     }
 
@@ -549,14 +349,21 @@ public class AugmentedImageNode extends AnchorNode {
 
                         // Everything finished loading successfully.
                     } catch (InterruptedException | ExecutionException ex) {
+                        Log.e(TAG, "Unable to set up the video material", ex);
                     }
 
                     return null;
                 });
 
         if (!frame_lr.isDone() || !frame_ll.isDone() || !frame_ur.isDone() || !frame_ul.isDone()) {
+            // Only the corners are placed again once the frame models are loaded.
             CompletableFuture.allOf(frame_ll, frame_lr, frame_ul, frame_ur)
-                    .thenAccept((Void aVoid) -> setImage(image, augmentedImageIndex))
+                    .thenAccept((Void aVoid) -> {
+                        // The node may have been recycled for another image meanwhile.
+                        if (this.image == image && exhibitIndex == augmentedImageIndex) {
+                            placeFrameCorners(image, augmentedImageIndex);
+                        }
+                    })
                     .exceptionally(
                             throwable -> {
                                 Log.e(TAG, "Exception loading", throwable);
@@ -564,51 +371,61 @@ public class AugmentedImageNode extends AnchorNode {
                             });
         }
 
-        Node fullnode;
+        placeFrameCorners(image, augmentedImageIndex);
 
-        fullnode = new Node();
-        fullnode.setParent(this);
-        fullnode.setWorldPosition(new Vector3(-0.5f * image.getExtentX(), 0.0f, 0.5f * image.getExtentZ()));
-        fullnode.setLocalScale(new Vector3(0.1f, 0.1f, 0.1f));
-        Quaternion lowerLeft = Quaternion.axisAngle(new Vector3(nodeRotation[augmentedImageIndex].x, nodeRotation[augmentedImageIndex].y, nodeRotation[augmentedImageIndex].z), nodeRotation[augmentedImageIndex].q);
-        fullnode.setLocalRotation(Quaternion.multiply(fullnode.getLocalRotation(), lowerLeft));
-        fullnode.setRenderable(frame_ll.getNow(null));
+        // augmentedImageIndex is taken from the arguments of this method - (setImage)
+        AugmentedImageActivity.augmentedImageVideoPlayerIndex = augmentedImageIndex;
 
-        fullnode = new Node();
-        fullnode.setParent(this);
-        fullnode.setWorldPosition(new Vector3(0.5f * image.getExtentX(), 0.0f, 0.5f * image.getExtentZ()));
-        fullnode.setLocalScale(new Vector3(0.1f, 0.1f, 0.1f));
-        Quaternion lowerRight = Quaternion.axisAngle(new Vector3(nodeRotation[augmentedImageIndex].x, nodeRotation[augmentedImageIndex].y, nodeRotation[augmentedImageIndex].z), nodeRotation[augmentedImageIndex].q);
-        fullnode.setLocalRotation(Quaternion.multiply(fullnode.getLocalRotation(), lowerRight));
-        fullnode.setRenderable(frame_lr.getNow(null));
 
-        fullnode = new Node();
-        fullnode.setParent(this);
-        fullnode.setWorldPosition(new Vector3(-0.5f * image.getExtentX(), 0.0f, -0.5f * image.getExtentZ()));
-        fullnode.setLocalScale(new Vector3(0.1f, 0.1f, 0.1f));
-        Quaternion upperLeft = Quaternion.axisAngle(new Vector3(nodeRotation[augmentedImageIndex].x, nodeRotation[augmentedImageIndex].y, nodeRotation[augmentedImageIndex].z), nodeRotation[augmentedImageIndex].q);
-        fullnode.setLocalRotation(Quaternion.multiply(fullnode.getLocalRotation(), upperLeft));
-        fullnode.setRenderable(frame_ul.getNow(null));
+        // videoNode is created (or reused) and will be placed on the image, directly parallel to the image.
+        if (videoNode == null) {
+            videoNode = new Node();
+        }
+        videoNode.setRenderable(null);
+        videoNode.setParent(this);
 
-        fullnode = new Node();
-        fullnode.setParent(this);
-        fullnode.setWorldPosition(new Vector3(0.5f * image.getExtentX(), 0.0f, -0.5f * image.getExtentZ()));
-        fullnode.setLocalScale(new Vector3(0.1f, 0.1f, 0.1f));
-        Quaternion upperRight = Quaternion.axisAngle(new Vector3(nodeRotation[augmentedImageIndex].x, nodeRotation[augmentedImageIndex].y, nodeRotation[augmentedImageIndex].z), nodeRotation[augmentedImageIndex].q);
-        fullnode.setLocalRotation(Quaternion.multiply(fullnode.getLocalRotation(), upperRight));
-        fullnode.setRenderable(frame_ur.getNow(null));
 
-        // augmentedImageIndex is taken from the arguments of this method - (setImage)
-        AugmentedImageActivity.augmentedImageVideoPlayerIndex = augmentedImageIndex;
-        // Set the anchor based on the center of the image.
-        setAnchor(image.createAnchor(image.getCenterPose()));
+        // Sets the video's position from perpendicular to the image to parallel to the detected image.
+        videoNode.setLocalPosition(VIDEO_POSITION);
+        videoNode.setLocalRotation(VIDEO_ROTATION);
 
+        // The poster frame stands in for the video until the decoder has its first frame.
+        showPoster(context, augmentedImageIndex);
 
-        // videoNode is created and will be placed on the image, directly parallel to the image.
-        videoNode = new Node();
-        videoNode.setParent(this);
+        // The decoder is prepared asynchronously by VideoPool, the video is sized and started once it is ready.
+        if (videoSlot != null) {
+            videoSlot.whenPrepared(this::playVideo);
+        }
+
+        createVideoTime.recordSinceNanos(startNanos);
+
+    }
 
+    // Puts the exhibit's poster (see VideoPosters) on the video quad, unless the video shows first.
+    private void showPoster(Context context, int augmentedImageIndex) {
+        CompletableFuture<VideoPosters.Poster> poster =
+                VideoPosters.getInstance(context).get(augmentedImageIndex);
+        if (poster == null) {
+            return;
+        }
+        poster.thenAccept(built -> {
+            // The node may have been recycled for another image, or the video started, meanwhile.
+            if (videoSlot == null || exhibitIndex != augmentedImageIndex
+                    || videoNode.getRenderable() != null) {
+                return;
+            }
+            videoNode.setLocalScale(
+                    new Vector3(VIDEO_HEIGHT_METERS * built.aspectRatio, VIDEO_HEIGHT_METERS, 1.4f));
+            videoNode.setRenderable(built.renderable);
+        });
+    }
 
+    // Sizes the video quad to the clip and starts it. Called once the pooled decoder is prepared.
+    private void playVideo() {
+        if (videoSlot == null) {
+            // The video was stopped before the decoder was ready.
+            return;
+        }
         float videoWidth = nodeMediaPlayer.getVideoWidth();
         float videoHeight = nodeMediaPlayer.getVideoHeight();
 
@@ -616,13 +433,6 @@ public class AugmentedImageNode extends AnchorNode {
                 new Vector3(
                         VIDEO_HEIGHT_METERS * (videoWidth / videoHeight), VIDEO_HEIGHT_METERS, 1.4f));
 
-
-        // Sets the video's position from perpendicular to the image to parallel to the detected image.
-        Quaternion q1 = videoNode.getLocalRotation();
-        Quaternion q2 = Quaternion.axisAngle(new Vector3(1.0f, 0f, 0f), -90f);
-        videoNode.setLocalPosition(new Vector3(0.0f, 0.0f, 0.07f)); // x, z, y
-        videoNode.setLocalRotation(Quaternion.multiply(q1, q2));
-
         // If the video is not playing, it will be started.
         if (!nodeMediaPlayer.isPlaying()) {
             nodeMediaPlayer.start();
@@ -641,7 +451,5 @@ public class AugmentedImageNode extends AnchorNode {
             videoNode.setRenderable(AugmentedImageActivity.videoPlacedRenderable);
         }
 
-        Log.d("node", "creating!!!");
-
     }
 }
@@ -0,0 +1,112 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaExtractor;
+import android.media.MediaPlayer;
+import android.system.ErrnoException;
+import android.system.Os;
+import com.google.ar.sceneform.samples.augmentedimage.core.ByteBufferInputStream;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentArchive;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The exhibit audio, video and models bundled in the APK, as one content.pack asset (see
+ * ContentArchive, built from app/content by the packExhibitContent task).
+ *
+ * The pack is stored uncompressed, opened once and memory-mapped, so a lookup is an index read
+ * instead of a resource or asset lookup. Media is handed to MediaPlayer and MediaExtractor as a
+ * range of the APK's file descriptor, so the platform (and its hardware decoders) read the bytes
+ * directly; models are read from the mapping through an InputStream, without copying.
+ *
+ * Media and models are identified by their archive id (see Exhibits), 0 meaning none.
+ */
+public class ContentPack {
+
+    // Stored uncompressed in the APK (see aaptOptions in build.gradle) so it can be mapped.
+    private static final String PACK_ASSET = "content.pack";
+
+    private static ContentPack instance;
+
+    // Bytes of an entry compared through the descriptor and the mapping when the pack is opened.
+    private static final int CHECK_BYTES = 64;
+
+    // Kept open for the life of the app: the media ranges are read through its descriptor, which
+    // closing the stream (or its channel) would close as well.
+    private final AssetFileDescriptor fd;
+    private final FileInputStream in;
+    private final ContentArchive archive;
+
+    public static synchronized ContentPack get(Context context) {
+        if (instance == null) {
+            try {
+                ContentPack pack = new ContentPack(context.getAssets().openFd(PACK_ASSET));
+                pack.checkDescriptor();
+                instance = pack;
+            } catch (IOException e) {
+                // The build always packs the content, so this only happens with a broken APK.
+                throw new IllegalStateException("Unable to open " + PACK_ASSET, e);
+            }
+        }
+        return instance;
+    }
+
+    private ContentPack(AssetFileDescriptor fd) throws IOException {
+        this.fd = fd;
+        in = fd.createInputStream();
+        archive = ContentArchive.read(
+                in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength()));
+    }
+
+    // Media is read through the descriptor rather than the mapping: makes sure that, once the pack
+    // is opened, it is still open and reads the first entry the same as the mapping does.
+    private void checkDescriptor() throws IOException {
+        if (archive.size() == 0) {
+            return;
+        }
+        ByteBuffer mapped = archive.slice(1);
+        byte[] expected = new byte[(int) Math.min(CHECK_BYTES, mapped.remaining())];
+        mapped.get(expected);
+        byte[] actual = new byte[expected.length];
+        try {
+            int read = Os.pread(fd.getFileDescriptor(), actual, 0, actual.length,
+                    fd.getStartOffset() + archive.offset(1));
+            if (read != actual.length || !Arrays.equals(expected, actual)) {
+                throw new IOException("The descriptor of " + PACK_ASSET + " doesn't read its entries");
+            }
+        } catch (ErrnoException e) {
+            throw new IOException("Unable to read " + PACK_ASSET + " through its descriptor", e);
+        }
+    }
+
+    // Id of "raw/<name>" or "models/<name>", or 0 if the pack has no such file.
+    public int id(String key) {
+        return archive.id(key);
+    }
+
+    public String key(int id) {
+        return archive.key(id);
+    }
+
+    public long length(int id) {
+        return archive.length(id);
+    }
+
+    public void setDataSource(MediaPlayer player, int id) throws IOException {
+        player.setDataSource(fd.getFileDescriptor(), fd.getStartOffset() + archive.offset(id), archive.length(id));
+    }
+
+    public void setDataSource(MediaExtractor extractor, int id) throws IOException {
+        extractor.setDataSource(fd.getFileDescriptor(), fd.getStartOffset() + archive.offset(id), archive.length(id));
+    }
+
+    // The file's bytes, read straight from the mapping. Safe to call from any thread.
+    public InputStream open(int id) {
+        return new ByteBufferInputStream(archive.slice(id));
+    }
+}
@@ -0,0 +1,394 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.media.MediaPlayer;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.util.Log;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentCache;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentDownloader;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exhibit audio, video and models from the content server (BuildConfig.CONTENT_BASE_URL, set with
+ * -PcontentBaseUrl), kept in a ContentCache under no_backup/content/.
+ *
+ * Lookups (setDataSource(), modelSource(), posterSource()) return the downloaded file when it is
+ * cached and fall back to the content pack in the APK (see ContentPack) otherwise, so the app works
+ * the same offline, before the first download, and in builds without a content server. The
+ * manifest of the server is saved with the cache, so lookups work offline too.
+ *
+ * Downloads only run on an unmetered network: as soon as one is available, the content of the
+ * venue is prefetched in catalog order (audio, video, then model of each exhibit), and a lookup
+ * that misses queues its file. Losing the network stops the transfer; it resumes from where it
+ * stopped (see ContentDownloader). Everything runs on one background thread.
+ *
+ * When the manifest changes, a file with a patch from the version in the cache is rebuilt from it
+ * (see ContentDelta), so an update costs what changed. Until the new version is in the cache,
+ * lookups keep returning the old one; it is replaced in one rename.
+ */
+public class ContentRepository {
+
+    private static final String TAG = "ContentRepository";
+
+    private static final String DIR = "content";
+    private static final String CACHE_DIR = "files";
+    // Room for all of the venue's content (about 177 MB) with some to spare.
+    private static final long BUDGET_BYTES = 256L * 1024 * 1024;
+
+    private static ContentRepository instance;
+
+    // The catalog is looked up on each use (see Exhibits.get()), as Exhibits.reload() replaces it.
+    private final Context context;
+    private final ContentPack pack;
+    private final File dir;
+    // Null when there is no content server, or the cache can't be created.
+    private final ContentDownloader downloader;
+    private final ContentCache cache;
+    private final ConnectivityManager connectivity;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private volatile ContentManifest manifest;
+    private volatile boolean manifestRefreshed;
+    // Unmetered networks that are up; downloads run while there is one.
+    private final Set<Network> unmeteredNetworks = new HashSet<>();
+    private volatile boolean unmetered;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    private final AtomicLong hits = Metrics.getInstance().counter("content.hits");
+    private final AtomicLong misses = Metrics.getInstance().counter("content.misses");
+
+    public static synchronized ContentRepository get(Context context) {
+        if (instance == null) {
+            instance = new ContentRepository(context.getApplicationContext(), BuildConfig.CONTENT_BASE_URL);
+        }
+        return instance;
+    }
+
+    private ContentRepository(Context context, String baseUrl) {
+        this.context = context;
+        this.pack = ContentPack.get(context);
+        this.dir = new File(context.getNoBackupFilesDir(), DIR);
+        this.connectivity = context.getSystemService(ConnectivityManager.class);
+        ContentCache contentCache = null;
+        if (!baseUrl.isEmpty()) {
+            try {
+                contentCache = new ContentCache(new File(dir, CACHE_DIR), BUDGET_BYTES);
+            } catch (IOException e) {
+                Log.e(TAG, "Content cache unusable, using the bundled content only", e);
+            }
+            if (contentCache != null) {
+                try {
+                    manifest = readManifest();
+                } catch (IOException e) {
+                    Log.w(TAG, "Saved content manifest unreadable, waiting for the server's", e);
+                }
+            }
+        }
+        this.cache = contentCache;
+        this.downloader = contentCache != null ? new ContentDownloader(baseUrl) : null;
+    }
+
+    public boolean isEnabled() {
+        return downloader != null;
+    }
+
+    // Starts refreshing the manifest and watching for unmetered networks. Call on the main thread.
+    public void start() {
+        if (!isEnabled() || networkCallback != null) {
+            return;
+        }
+        worker.execute(this::refreshManifest);
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                synchronized (unmeteredNetworks) {
+                    unmeteredNetworks.add(network);
+                    unmetered = true;
+                }
+                worker.execute(ContentRepository.this::prefetch);
+            }
+
+            @Override
+            public void onLost(Network network) {
+                synchronized (unmeteredNetworks) {
+                    unmeteredNetworks.remove(network);
+                    unmetered = !unmeteredNetworks.isEmpty();
+                }
+            }
+        };
+        connectivity.registerNetworkCallback(
+                new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+                        .build(),
+                networkCallback);
+    }
+
+    // Stops downloading; a transfer in progress stops at its next buffer and resumes after start().
+    public void stop() {
+        if (networkCallback == null) {
+            return;
+        }
+        connectivity.unregisterNetworkCallback(networkCallback);
+        networkCallback = null;
+        synchronized (unmeteredNetworks) {
+            unmeteredNetworks.clear();
+            unmetered = false;
+        }
+    }
+
+    /**
+     * Points player at a clip (a media id, see Exhibits): the downloaded file when it is cached,
+     * otherwise its range of the content pack.
+     */
+    public void setDataSource(MediaPlayer player, int mediaId) throws IOException {
+        File file = resolve(pack.key(mediaId));
+        if (file != null) {
+            player.setDataSource(file.getPath());
+        } else {
+            pack.setDataSource(player, mediaId);
+        }
+    }
+
+    // Same for an extractor.
+    public void setDataSource(MediaExtractor extractor, int mediaId) throws IOException {
+        File file = resolve(pack.key(mediaId));
+        if (file != null) {
+            extractor.setDataSource(file.getPath());
+        } else {
+            pack.setDataSource(extractor, mediaId);
+        }
+    }
+
+    // Source of models/<modelName>.sfb for ModelRenderable.Builder: the cached file or the pack's.
+    public Callable<InputStream> modelSource(String modelName) {
+        return source(modelKey(modelName));
+    }
+
+    // Source of the poster frame of a video (see VideoPosters), by the key of the video.
+    public Callable<InputStream> posterSource(String videoKey) {
+        return source(posterKey(videoKey));
+    }
+
+    // Whether there is a poster for the video, in the pack or the cache.
+    public boolean hasPoster(String videoKey) {
+        String key = posterKey(videoKey);
+        ContentManifest current = manifest;
+        return pack.id(key) != 0 || (current != null && current.get(key) != null);
+    }
+
+    // Size of the file modelSource() reads, e.g. to weigh the model in a cache. 0 if there is none.
+    public long modelBytes(String modelName) {
+        String key = modelKey(modelName);
+        ContentManifest current = manifest;
+        ContentManifest.Entry entry = current != null ? current.get(key) : null;
+        if (entry != null && cache.contains(entry.sha256)) {
+            return entry.size;
+        }
+        int id = pack.id(key);
+        return id != 0 ? pack.length(id) : 0;
+    }
+
+    @Override
+    public String toString() {
+        ContentManifest current = manifest;
+        return "ContentRepository{manifest=" + (current != null ? current.version() : "none")
+                + ", unmetered=" + unmetered + ", " + cache + "}";
+    }
+
+    private static String modelKey(String modelName) {
+        return "models/" + modelName;
+    }
+
+    // "raw/beachcroc" -> "posters/beachcroc".
+    private static String posterKey(String videoKey) {
+        return "posters/" + videoKey.substring(videoKey.indexOf('/') + 1);
+    }
+
+    // The cached file for key, or the pack's.
+    private Callable<InputStream> source(String key) {
+        File file = resolve(key);
+        if (file != null) {
+            return () -> new FileInputStream(file);
+        }
+        int id = pack.id(key);
+        return () -> {
+            if (id == 0) {
+                throw new FileNotFoundException("No " + key + " in the content pack");
+            }
+            return pack.open(id);
+        };
+    }
+
+    // The cached file for key, or null. A miss on a file the server has queues its download.
+    private File resolve(String key) {
+        ContentManifest current = manifest;
+        ContentManifest.Entry entry = current != null ? current.get(key) : null;
+        if (entry == null) {
+            return null;
+        }
+        File file = cache.get(entry.sha256);
+        if (file != null) {
+            hits.incrementAndGet();
+            return file;
+        }
+        misses.incrementAndGet();
+        if (unmetered) {
+            worker.execute(() -> download(current, entry));
+        }
+        // The previous version, if it is cached and about to be patched.
+        for (ContentManifest.Patch patch : current.patchesTo(entry.sha256)) {
+            File previous = cache.get(patch.fromSha256);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    // Runs on the worker thread.
+    private void prefetch() {
+        if (!manifestRefreshed) {
+            refreshManifest();
+        }
+        ContentManifest current = manifest;
+        if (current == null) {
+            return;
+        }
+        for (ContentManifest.Entry entry : venueContent(current)) {
+            if (!unmetered) {
+                Log.d(TAG, "Prefetch paused, no unmetered network");
+                return;
+            }
+            download(current, entry);
+        }
+        Log.d(TAG, "Prefetch done: " + cache);
+    }
+
+    // Every file of the manifest, those used by the exhibits first, in catalog order.
+    private List<ContentManifest.Entry> venueContent(ContentManifest current) {
+        Set<ContentManifest.Entry> ordered = new LinkedHashSet<>();
+        ExhibitCatalog catalog = Exhibits.get(context).catalog();
+        for (int i = 0; i < catalog.size(); i++) {
+            ordered.addAll(current.exhibitEntries(catalog, i));
+        }
+        ordered.addAll(current.entries());
+        return new ArrayList<>(ordered);
+    }
+
+    // Runs on the worker thread.
+    private void download(ContentManifest current, ContentManifest.Entry entry) {
+        if (cache.contains(entry.sha256) || !unmetered) {
+            return;
+        }
+        for (ContentManifest.Patch patch : current.patchesTo(entry.sha256)) {
+            if (!cache.contains(patch.fromSha256)) {
+                continue;
+            }
+            try {
+                downloader.downloadPatched(entry, patch, cache, () -> !unmetered);
+                Log.d(TAG, "Patched " + entry.path);
+                if (!current.hasFile(patch.fromSha256)) {
+                    cache.remove(patch.fromSha256);
+                }
+                return;
+            } catch (InterruptedIOException e) {
+                Log.d(TAG, "Stopped patching " + entry.path);
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to patch " + entry.path + ", downloading all of it", e);
+            }
+        }
+        try {
+            downloader.download(entry, cache, () -> !unmetered);
+            Log.d(TAG, "Downloaded " + entry.path);
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "Stopped downloading " + entry.path);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to download " + entry.path, e);
+        }
+    }
+
+    // Fetches the server's manifest and saves it if it is new. Runs on the worker thread.
+    private void refreshManifest() {
+        ContentManifest fetched;
+        try {
+            fetched = downloader.fetchManifest();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to fetch the content manifest", e);
+            return;
+        }
+        manifestRefreshed = true;
+        ContentManifest current = manifest;
+        if (current != null && current.version() == fetched.version()) {
+            return;
+        }
+        try {
+            saveManifest(fetched);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to save the content manifest", e);
+        }
+        manifest = fetched;
+        // Older versions are only kept to be patched.
+        List<String> hashes = new ArrayList<>();
+        for (ContentManifest.Entry entry : fetched.entries()) {
+            hashes.add(entry.sha256);
+        }
+        for (ContentManifest.Patch patch : fetched.patches()) {
+            if (!cache.contains(patch.toSha256)) {
+                hashes.add(patch.fromSha256);
+            }
+        }
+        cache.retainAll(hashes);
+        Log.d(TAG, "Content manifest version " + fetched.version() + ", " + fetched.entries().size() + " files"
+                + (current != null ? ", " + fetched.changedExhibits(Exhibits.get(context).catalog(), current).length
+                        + " exhibits changed since version " + current.version() : ""));
+    }
+
+    private ContentManifest readManifest() throws IOException {
+        File file = new File(dir, ContentManifest.FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return ContentManifest.parse(in);
+        }
+    }
+
+    private void saveManifest(ContentManifest fetched) throws IOException {
+        File partial = new File(dir, ContentManifest.FILE_NAME + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(partial), StandardCharsets.UTF_8)) {
+            fetched.writeTo(out);
+        }
+        if (!partial.renameTo(new File(dir, ContentManifest.FILE_NAME))) {
+            partial.delete();
+            throw new IOException("Unable to write " + ContentManifest.FILE_NAME);
+        }
+    }
+}
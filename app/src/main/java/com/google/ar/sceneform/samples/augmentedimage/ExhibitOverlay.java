@@ -0,0 +1,221 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import com.google.ar.core.AugmentedImageDatabase;
+import com.google.ar.core.Session;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Exhibits added at runtime (see AugmentedImageFragment.addExhibits()), on top of the ones
+ * shipped in the APK.
+ *
+ * Everything lives in files/exhibits/: the catalog entries of the added exhibits (overlay.cat, in
+ * the exhibits.cat format), their images, and the merged database, i.e. the full database of the
+ * APK with the added images appended. The merged database is only valid for the APK it was made
+ * from (see baseKey()); after an update the added images are appended to the new base database
+ * again, which only costs the added images.
+ *
+ * Added exhibits come after the bundled ones, in the order they were added, in both the catalog
+ * (see Exhibits) and the database, so their indices match.
+ */
+public class ExhibitOverlay {
+
+    private static final String TAG = "ExhibitOverlay";
+
+    private static final String DIR = "exhibits";
+    private static final String CATALOG_FILE = "overlay.cat";
+    private static final String DATABASE_FILE = "merged.imgdb";
+    // Holds the baseKey() the merged database was made with.
+    private static final String DATABASE_KEY_FILE = "merged.key";
+    private static final String IMAGE_DIR = "images";
+    private static final int IMAGE_QUALITY = 95;
+
+    private final File dir;
+    private final File imageDir;
+
+    public ExhibitOverlay(Context context) {
+        dir = new File(context.getFilesDir(), DIR);
+        imageDir = new File(dir, IMAGE_DIR);
+    }
+
+    // The added exhibits, or null if none was added.
+    public ExhibitCatalog readCatalog() throws IOException {
+        File file = new File(dir, CATALOG_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+        return ExhibitCatalog.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    // base followed by the added exhibits, or base itself if none was added.
+    public ExhibitCatalog merge(ExhibitCatalog base) {
+        ExhibitCatalog added;
+        try {
+            added = readCatalog();
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Ignoring the added exhibits, " + CATALOG_FILE + " is unreadable", e);
+            return base;
+        }
+        if (added == null) {
+            return base;
+        }
+        ExhibitCatalogWriter writer = new ExhibitCatalogWriter();
+        for (int i = 0; i < base.size(); i++) {
+            writer.add(ExhibitCatalogWriter.Entry.copyOf(base, i));
+        }
+        for (int i = 0; i < added.size(); i++) {
+            writer.add(ExhibitCatalogWriter.Entry.copyOf(added, i));
+        }
+        return ExhibitCatalog.read(ByteBuffer.wrap(writer.toByteArray()));
+    }
+
+    /**
+     * Stores the entries and their images after the exhibits added before. The images are stored
+     * under the entry names, which must be new. The merged database is invalidated first, so until
+     * saveDatabase() saves one with the new images, loadDatabase() merges them again instead of
+     * loading a database that lacks them. Call from a background thread.
+     */
+    public synchronized void add(List<ExhibitCatalogWriter.Entry> entries, List<Bitmap> images)
+            throws IOException {
+        ExhibitCatalogWriter writer = new ExhibitCatalogWriter();
+        ExhibitCatalog added = readCatalog();
+        if (added != null) {
+            for (int i = 0; i < added.size(); i++) {
+                writer.add(ExhibitCatalogWriter.Entry.copyOf(added, i));
+            }
+        }
+        mkdirs(imageDir);
+        for (int i = 0; i < entries.size(); i++) {
+            writer.add(entries.get(i));
+            File image = imageFile(entries.get(i).name);
+            File partial = new File(imageDir, image.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(partial)) {
+                images.get(i).compress(Bitmap.CompressFormat.JPEG, IMAGE_QUALITY, out);
+            }
+            rename(partial, image);
+        }
+        File key = new File(dir, DATABASE_KEY_FILE);
+        if (key.exists() && !key.delete()) {
+            throw new IOException("Unable to invalidate " + DATABASE_FILE);
+        }
+        File partial = new File(dir, CATALOG_FILE + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            writer.writeTo(out);
+        }
+        rename(partial, new File(dir, CATALOG_FILE));
+    }
+
+    // Image of an added exhibit, decoded for AugmentedImageDatabase.addImage().
+    public Bitmap readImage(String name) throws IOException {
+        Bitmap bitmap = BitmapFactory.decodeFile(imageFile(name).getPath());
+        if (bitmap == null) {
+            throw new IOException("Unable to decode the image of added exhibit " + name);
+        }
+        return bitmap;
+    }
+
+    /**
+     * The merged database, if it was saved for baseKey. Otherwise appends the images of the added
+     * exhibits to base (the database of the bundled exhibits, in catalog order), saves it for baseKey
+     * and returns it. Returns base as is if no exhibit was added. Call from a background thread.
+     */
+    public synchronized AugmentedImageDatabase loadDatabase(
+            Session session, String baseKey, AugmentedImageDatabaseLoader base) throws IOException {
+        ExhibitCatalog added = readCatalog();
+        if (added == null) {
+            return base.load();
+        }
+        File database = new File(dir, DATABASE_FILE);
+        File key = new File(dir, DATABASE_KEY_FILE);
+        if (database.isFile() && key.isFile()
+                && baseKey.equals(new String(Files.readAllBytes(key.toPath()), StandardCharsets.UTF_8))) {
+            try (InputStream in = new FileInputStream(database)) {
+                return AugmentedImageDatabase.deserialize(session, in);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Merged database is unusable, merging again", e);
+            }
+        }
+        Log.d(TAG, "Appending " + added.size() + " added exhibits to the bundled database");
+        AugmentedImageDatabase merged = base.load();
+        for (int i = 0; i < added.size(); i++) {
+            addImage(merged, added, i, readImage(added.name(i)));
+        }
+        saveDatabase(merged, baseKey);
+        return merged;
+    }
+
+    // Saves the merged database, which is valid as long as baseKey is the same. The key is written
+    // last, once the database is complete.
+    public synchronized void saveDatabase(AugmentedImageDatabase merged, String baseKey) throws IOException {
+        mkdirs(dir);
+        File partial = new File(dir, DATABASE_FILE + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            merged.serialize(out);
+        }
+        rename(partial, new File(dir, DATABASE_FILE));
+        Files.write(new File(dir, DATABASE_KEY_FILE).toPath(), baseKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Adds image as exhibit index of catalog, with its physical width if known.
+    public static void addImage(AugmentedImageDatabase database, ExhibitCatalog catalog, int index, Bitmap image) {
+        String imageName = catalog.name(index) + ".jpg";
+        float widthInMeters = catalog.physicalWidth(index);
+        if (widthInMeters > 0) {
+            database.addImage(imageName, image, widthInMeters);
+        } else {
+            database.addImage(imageName, image);
+        }
+    }
+
+    /**
+     * Identifies the bundled database: it only changes with an APK update, and with the way it is
+     * made (prebuilt or built from the images).
+     */
+    public static String baseKey(Context context, boolean preloaded) {
+        long updated;
+        try {
+            updated = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            updated = 0;
+        }
+        return (preloaded ? "preloaded:" : "built:") + updated;
+    }
+
+    // Loads the database of the bundled exhibits.
+    public interface AugmentedImageDatabaseLoader {
+        AugmentedImageDatabase load() throws IOException;
+    }
+
+    private File imageFile(String name) {
+        return new File(imageDir, name + ".jpg");
+    }
+
+    private static void mkdirs(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            from.delete();
+            throw new IOException("Unable to write " + to);
+        }
+    }
+}
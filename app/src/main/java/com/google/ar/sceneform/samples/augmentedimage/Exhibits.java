@@ -0,0 +1,185 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import android.util.SparseIntArray;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogCompiler;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.samples.augmentedimage.core.TransformTable;
+import com.google.ar.sceneform.samples.augmentedimage.core.ZoneMap;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * The exhibit catalog (exhibits.cat, generated from app/exhibits/exhibits.csv) for this app.
+ *
+ * Everything is looked up by AugmentedImage.getIndex(). The catalog is memory-mapped out of the
+ * APK, and the audio and video names are resolved to media ids (their ids in the content pack,
+ * see ContentPack) once, into plain int arrays.
+ * Model placements are computed once too, see TransformTable. Exhibits added at runtime (see
+ * ExhibitOverlay) come after the bundled ones.
+ */
+public class Exhibits {
+
+    private static final String TAG = "Exhibits";
+
+    // Stored uncompressed in the APK (see aaptOptions in build.gradle) so it can be mapped.
+    private static final String CATALOG_ASSET = "exhibits.cat";
+
+    private static Exhibits instance;
+
+    private final ExhibitCatalog catalog;
+    private final TransformTable transforms;
+    private final ZoneMap zones;
+    private final int bundledCount;
+    private final int[] musicIds;
+    private final int[] videoIds;
+    // Dense id of each exhibit's audio clip (exhibits sharing a clip share the id), -1 for none.
+    private final int[] musicClips;
+    private int musicClipCount;
+    private final int missingWidthCount;
+
+    // Loads the catalog the first time it is needed. Safe to call from any thread.
+    public static synchronized Exhibits get(Context context) {
+        if (instance == null) {
+            try {
+                ExhibitCatalog bundled = mapCatalog(context);
+                ExhibitCatalog catalog = new ExhibitOverlay(context).merge(bundled);
+                instance = new Exhibits(context.getApplicationContext(), catalog, bundled.size());
+            } catch (IOException e) {
+                // The build generates and checks the catalog, so this only happens with a broken APK.
+                throw new IllegalStateException("Unable to load " + CATALOG_ASSET, e);
+            }
+        }
+        return instance;
+    }
+
+    // Makes the next get() load the catalog again, e.g. after exhibits were added.
+    public static synchronized void reload() {
+        instance = null;
+    }
+
+    private Exhibits(Context context, ExhibitCatalog catalog, int bundledCount) {
+        this.catalog = catalog;
+        this.bundledCount = bundledCount;
+        this.transforms = TransformTable.from(catalog);
+        this.zones = ZoneMap.from(catalog);
+        int count = catalog.size();
+        musicIds = new int[count];
+        videoIds = new int[count];
+        musicClips = new int[count];
+        ContentPack pack = ContentPack.get(context);
+        SparseIntArray clipByMediaId = new SparseIntArray();
+        for (int i = 0; i < count; i++) {
+            musicIds[i] = mediaId(pack, catalog.musicName(i));
+            videoIds[i] = mediaId(pack, catalog.videoName(i));
+            musicClips[i] = -1;
+            if (musicIds[i] != 0) {
+                int clip = clipByMediaId.get(musicIds[i], -1);
+                if (clip == -1) {
+                    clip = musicClipCount++;
+                    clipByMediaId.put(musicIds[i], clip);
+                }
+                musicClips[i] = clip;
+            }
+        }
+        Log.d(TAG, "Loaded " + count + " exhibits");
+
+        // Images without a physical width take longer to be detected, report them once at startup.
+        List<String> unmeasured = ExhibitCatalogCompiler.missingWidths(catalog);
+        missingWidthCount = unmeasured.size();
+        Metrics.getInstance().counter("exhibits.missing_width").set(missingWidthCount);
+        if (missingWidthCount > 0) {
+            Log.w(TAG, missingWidthCount + " of " + count + " exhibits have no physical width: " + unmeasured);
+        }
+    }
+
+    public ExhibitCatalog catalog() {
+        return catalog;
+    }
+
+    // Position, rotation and scale of each exhibit's model.
+    public TransformTable transforms() {
+        return transforms;
+    }
+
+    // Exhibits of each zone database and of the entrance database.
+    public ZoneMap zones() {
+        return zones;
+    }
+
+    public int count() {
+        return catalog.size();
+    }
+
+    // Exhibits shipped in the APK, the first ones of the catalog. Their images are in the assets.
+    public int bundledCount() {
+        return bundledCount;
+    }
+
+    // Image name in the database (without .jpg), also used as the model name.
+    public String name(int index) {
+        return catalog.name(index);
+    }
+
+    public boolean playsVideo(int index) {
+        return catalog.playsVideo(index);
+    }
+
+    // Measured width of the printed image in meters, or 0 if unknown (see width_m in exhibits.csv).
+    public float physicalWidth(int index) {
+        return catalog.physicalWidth(index);
+    }
+
+    // Number of exhibits without a physical width.
+    public int missingWidthCount() {
+        return missingWidthCount;
+    }
+
+    // Media id of the exhibit's audio, or 0 if it has none.
+    public int musicId(int index) {
+        return musicIds[index];
+    }
+
+    // Dense id (0 until musicClipCount()) of the exhibit's audio clip, or -1 if it has none.
+    public int musicClip(int index) {
+        return musicClips[index];
+    }
+
+    // Number of distinct audio clips used by the exhibits.
+    public int musicClipCount() {
+        return musicClipCount;
+    }
+
+    // Media id of the exhibit's video, or 0 if it has none.
+    public int videoId(int index) {
+        return videoIds[index];
+    }
+
+    private static ExhibitCatalog mapCatalog(Context context) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(CATALOG_ASSET);
+             FileInputStream in = fd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+            return ExhibitCatalog.read(buffer);
+        }
+    }
+
+    private static int mediaId(ContentPack pack, String name) {
+        if (name == null) {
+            return 0;
+        }
+        int id = pack.id("raw/" + name);
+        if (id == 0) {
+            Log.w(TAG, "No content/raw file named " + name);
+        }
+        return id;
+    }
+}
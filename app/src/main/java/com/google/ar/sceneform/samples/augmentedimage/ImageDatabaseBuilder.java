@@ -0,0 +1,249 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import com.google.ar.core.AugmentedImageDatabase;
+import com.google.ar.core.Session;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the AugmentedImageDatabase from the exhibit images in the APK, for when the prebuilt
+ * database isn't used (AugmentedImageFragment.usePreloadedDatabase).
+ *
+ * Images are decoded on a small pool, a few ahead of the one being added, and downsampled to the
+ * resolution ARCore needs instead of full size. ARCore only takes ARGB_8888 bitmaps (it converts
+ * to grayscale itself), so decoded bitmaps are reused through inBitmap instead. Adding to the
+ * database stays in exhibit order on the calling thread, since the index of each image matters.
+ *
+ * The built database is serialized to files/imagedb/, named by a hash of the image names, widths
+ * and contents, so later launches only deserialize it. prefetch() starts the hashing before the
+ * session exists, so it is usually done by the time the session is configured.
+ */
+public class ImageDatabaseBuilder {
+
+    private static final String TAG = "ImageDatabaseBuilder";
+
+    // ARCore wants at least 300 px; a bit more keeps features of small prints.
+    private static final int MIN_IMAGE_SIDE = 480;
+    // Images decoded ahead of the one being added, bounds the bitmaps alive at once.
+    private static final int DECODE_AHEAD = 4;
+    private static final String CACHE_DIR = "imagedb";
+
+    private final AssetManager assets;
+    private final Exhibits exhibits;
+    private final File cacheDir;
+    private final ExecutorService pool;
+    // Bitmaps whose pixels ARCore has copied, reused for the next decodes.
+    private final ConcurrentLinkedQueue<Bitmap> reusable = new ConcurrentLinkedQueue<>();
+
+    private Future<String> hash;
+    private final List<Future<Bitmap>> decodes = new ArrayList<>();
+
+    public ImageDatabaseBuilder(Context context) {
+        this.assets = context.getAssets();
+        this.exhibits = Exhibits.get(context);
+        this.cacheDir = new File(context.getFilesDir(), CACHE_DIR);
+        int threads = Math.max(1, Math.min(DECODE_AHEAD, Runtime.getRuntime().availableProcessors() - 1));
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    // Starts hashing the images in the background. Calling it again does nothing.
+    public synchronized void prefetch() {
+        if (hash != null) {
+            return;
+        }
+        hash = pool.submit(this::contentHash);
+    }
+
+    /**
+     * Returns the database, deserialized from the cache when the images haven't changed, otherwise
+     * built (and cached in the background). Blocks, call it where the session is configured.
+     */
+    public AugmentedImageDatabase build(Session session) throws IOException {
+        long startNanos = System.nanoTime();
+        prefetch();
+        String key = await(hash);
+        File cached = new File(cacheDir, key + ".imgdb");
+        if (cached.isFile()) {
+            try (InputStream in = new FileInputStream(cached)) {
+                AugmentedImageDatabase database = AugmentedImageDatabase.deserialize(session, in);
+                Metrics.getInstance().counter("imagedb.cache_hits").incrementAndGet();
+                Metrics.getInstance().histogram("imagedb.load_us").recordSinceNanos(startNanos);
+                Log.d(TAG, "Loaded cached image database " + cached.getName());
+                return database;
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Cached image database is unusable, rebuilding", e);
+                cached.delete();
+            }
+        }
+        Metrics.getInstance().counter("imagedb.cache_misses").incrementAndGet();
+
+        AugmentedImageDatabase database = new AugmentedImageDatabase(session);
+        // Exhibits added at runtime are appended by ExhibitOverlay.
+        int count = exhibits.bundledCount();
+        for (int i = 0; i < Math.min(DECODE_AHEAD, count); i++) {
+            submitDecode(i);
+        }
+        for (int i = 0; i < count; i++) {
+            Bitmap bitmap = await(decodes.get(i));
+            decodes.set(i, null);
+            if (i + DECODE_AHEAD < count) {
+                submitDecode(i + DECODE_AHEAD);
+            }
+            if (bitmap == null) {
+                throw new IOException("Unable to decode " + exhibits.name(i) + ".jpg");
+            }
+            // In catalog order, so the database indices match the exhibit indices.
+            String imageName = exhibits.name(i) + ".jpg";
+            float widthInMeters = exhibits.physicalWidth(i);
+            if (widthInMeters > 0) {
+                database.addImage(imageName, bitmap, widthInMeters);
+            } else {
+                database.addImage(imageName, bitmap);
+            }
+            // ARCore has copied the pixels, the bitmap can take the next image.
+            reusable.offer(bitmap);
+        }
+        decodes.clear();
+        reusable.clear();
+        Metrics.getInstance().histogram("imagedb.build_us").recordSinceNanos(startNanos);
+        Log.d(TAG, "Built image database of " + count + " images in "
+                + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+
+        pool.execute(() -> writeCache(database, cached));
+        return database;
+    }
+
+    // Stops the decoding threads. The builder can't be used afterwards.
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void submitDecode(int index) {
+        String imageName = exhibits.name(index) + ".jpg";
+        Future<Bitmap> decode = pool.submit(() -> decode(imageName));
+        if (index < decodes.size()) {
+            decodes.set(index, decode);
+        } else {
+            decodes.add(decode);
+        }
+    }
+
+    // Decodes an image downsampled by a power of two, keeping the short side at least MIN_IMAGE_SIDE.
+    private Bitmap decode(String imageName) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = assets.open(imageName)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        int shortSide = Math.min(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (shortSide / (sampleSize * 2) >= MIN_IMAGE_SIDE) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        options.inBitmap = reusable.poll();
+        try (InputStream in = assets.open(imageName)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // The reused bitmap was too small for this image.
+            options.inBitmap = null;
+            try (InputStream in = assets.open(imageName)) {
+                return BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+    }
+
+    // SHA-256 of every exhibit's image name, width and image bytes, in catalog order.
+    private String contentHash() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[16 * 1024];
+        for (int i = 0; i < exhibits.bundledCount(); i++) {
+            String imageName = exhibits.name(i) + ".jpg";
+            digest.update(imageName.getBytes(StandardCharsets.UTF_8));
+            digest.update(Float.toString(exhibits.physicalWidth(i)).getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = assets.open(imageName)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // Serializes the database under its hash and deletes the databases of older images.
+    private void writeCache(AugmentedImageDatabase database, File cached) {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            Log.w(TAG, "Unable to create " + cacheDir);
+            return;
+        }
+        File partial = new File(cacheDir, cached.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            database.serialize(out);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to cache the image database", e);
+            partial.delete();
+            return;
+        }
+        if (!partial.renameTo(cached)) {
+            partial.delete();
+            return;
+        }
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.equals(cached)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building the image database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Periodically appends a snapshot of Metrics to an app-private file, one JSON object per line.
+ *
+ * The file is files/metrics/metrics.jsonl; once it grows past MAX_FILE_BYTES it is renamed to
+ * metrics.jsonl.1 (replacing the previous one), so a kiosk never keeps more than two files. Pull
+ * them with: adb shell run-as com.google.ar.sceneform.samples.augmentedimage cat files/metrics/metrics.jsonl
+ *
+ * Snapshots are written on a background thread, never on the frame thread.
+ */
+public class MetricsExporter {
+
+    private static final String TAG = "MetricsExporter";
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 60_000;
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+
+    private final File file;
+    private final File previousFile;
+    private final long intervalMillis;
+    private HandlerThread thread;
+    private Handler handler;
+
+    private final Runnable periodicExport = new Runnable() {
+        @Override
+        public void run() {
+            write();
+            handler.postDelayed(this, intervalMillis);
+        }
+    };
+
+    public MetricsExporter(Context context) {
+        this(context, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public MetricsExporter(Context context, long intervalMillis) {
+        File dir = new File(context.getFilesDir(), "metrics");
+        this.file = new File(dir, "metrics.jsonl");
+        this.previousFile = new File(dir, "metrics.jsonl.1");
+        this.intervalMillis = intervalMillis;
+    }
+
+    // Starts writing a snapshot every interval. Call from onResume().
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.postDelayed(periodicExport, intervalMillis);
+    }
+
+    // Writes a last snapshot and stops. Call from onPause().
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        handler.removeCallbacks(periodicExport);
+        handler.post(this::write);
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    private void write() {
+        String snapshot = Metrics.getInstance().toJson(System.currentTimeMillis());
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Unable to create " + dir);
+            return;
+        }
+        if (file.length() > MAX_FILE_BYTES && !file.renameTo(previousFile)) {
+            Log.w(TAG, "Unable to rotate " + file);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(snapshot);
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write metrics", e);
+        }
+    }
+}
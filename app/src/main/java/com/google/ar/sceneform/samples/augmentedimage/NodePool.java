@@ -0,0 +1,93 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reuses AugmentedImageNodes, with their child nodes, across detections.
+ *
+ * When an image stops tracking (or its video is stopped) its node is released here instead of
+ * being dropped: it is taken out of the scene, it lets go of its anchor (see AnchorManager) and
+ * its renderables are cleared, and the next detected image gets it back instead of a brand-new
+ * node tree. At most maxIdle nodes are kept; nodes released beyond that are left to the garbage
+ * collector.
+ *
+ * Must be used on the main thread, like the scene graph.
+ */
+public class NodePool {
+
+    // More than the images ever tracked at once in one room.
+    public static final int DEFAULT_MAX_IDLE = 8;
+
+    private final int maxIdle;
+    private final ArrayDeque<AugmentedImageNode> idle;
+
+    private final AtomicLong created = Metrics.getInstance().counter("nodes.created");
+    private final AtomicLong reused = Metrics.getInstance().counter("nodes.reused");
+    private final AtomicLong discarded = Metrics.getInstance().counter("nodes.discarded");
+
+    public NodePool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    public NodePool(int maxIdle) {
+        this.maxIdle = maxIdle;
+        this.idle = new ArrayDeque<>(maxIdle);
+    }
+
+    // Returns a node bound to the exhibit, reusing an idle one when there is one.
+    public AugmentedImageNode acquire(Context context, int exhibitIndex) {
+        AugmentedImageNode node = idle.pollFirst();
+        if (node == null) {
+            created.incrementAndGet();
+            return new AugmentedImageNode(context, exhibitIndex);
+        }
+        node.pooled = false;
+        node.bind(context, exhibitIndex);
+        reused.incrementAndGet();
+        return node;
+    }
+
+    // Takes the node out of the scene and keeps it for reuse. Releasing a node twice is harmless.
+    public void release(AugmentedImageNode node) {
+        if (node == null || node.pooled) {
+            return;
+        }
+        node.recycle();
+        if (idle.size() < maxIdle) {
+            node.pooled = true;
+            idle.addFirst(node);
+        } else {
+            discarded.incrementAndGet();
+        }
+    }
+
+    // Drops the idle nodes, e.g. from onTrimMemory().
+    public void clear() {
+        idle.clear();
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    public long createdCount() {
+        return created.get();
+    }
+
+    public long reusedCount() {
+        return reused.get();
+    }
+
+    public long discardedCount() {
+        return discarded.get();
+    }
+
+    @Override
+    public String toString() {
+        return "NodePool idle=" + idle.size() + "/" + maxIdle + " created=" + created.get()
+                + " reused=" + reused.get() + " discarded=" + discarded.get();
+    }
+}
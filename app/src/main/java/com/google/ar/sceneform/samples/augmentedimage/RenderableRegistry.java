@@ -0,0 +1,165 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseArray;
+import com.google.ar.sceneform.rendering.ModelRenderable;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.IntLruCache;
+import com.google.ar.sceneform.samples.augmentedimage.core.LodLevels;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared registry of the ModelRenderables used by AugmentedImageNode, keyed by exhibit index and
+ * level of detail (see LodLevels). A level the model has no simplified version for gets the
+ * closest finer level that exists, down to the full model.
+ *
+ * Every exhibit model is built at most once at a time: a second request for a model that is still
+ * loading gets the same future back. Finished models are kept in an LRU bounded by the size of
+ * their .sfb files, so re-detecting an exhibit reuses the renderable instead of rebuilding it.
+ * The frame corners and the video quad are shared by every video exhibit and are never evicted.
+ * Models are read from the content pack, or from the content server's download when there is one,
+ * see ContentRepository. Exhibit names are looked up in the current catalog (see Exhibits.get()) on
+ * every request, so exhibits added at runtime are found after Exhibits.reload(); an exhibit without
+ * a model of its own gets no renderable.
+ *
+ * Sceneform builds renderables on the main thread, so this class is only used from there.
+ */
+@SuppressWarnings({"AndroidApiChecker"})
+public class RenderableRegistry {
+
+    private static final String TAG = "RenderableRegistry";
+
+    // Roughly the largest set of models we want resident at once on the gallery phones.
+    private static final long DEFAULT_BUDGET_BYTES = 48L * 1024 * 1024;
+
+    private static RenderableRegistry instance;
+
+    // Keyed by key(exhibitIndex, level). Grows when exhibits are added at runtime.
+    private final IntLruCache<ModelRenderable> exhibitRenderables;
+    // Loads that have started but not finished yet, so concurrent requests share one build.
+    private final SparseArray<CompletableFuture<ModelRenderable>> inFlight = new SparseArray<>();
+    // Models shared by all exhibits (frame corners, video quad). Never evicted.
+    private final Map<String, CompletableFuture<ModelRenderable>> sharedRenderables = new HashMap<>();
+    // Build time of every model; each .sfb also gets its own "renderable.load_us.<name>".
+    private final Histogram loadTime = Metrics.getInstance().histogram("renderable.load_us");
+
+    public static RenderableRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new RenderableRegistry(Exhibits.get(context).count(), DEFAULT_BUDGET_BYTES);
+        }
+        return instance;
+    }
+
+    RenderableRegistry(int exhibitCount, long budgetBytes) {
+        exhibitRenderables = new IntLruCache<>(exhibitCount * LodLevels.COUNT, budgetBytes);
+        exhibitRenderables.setEvictionListener(
+                (key, renderable) -> Log.d(TAG, "Evicted level " + key % LodLevels.COUNT
+                        + " of the model for exhibit " + key / LodLevels.COUNT));
+    }
+
+    /**
+     * Returns the model for the exhibit at exhibitIndex, at the level of detail or the closest finer
+     * one the exhibit has. The future is already complete when the model is cached, and is shared
+     * with any load of the same model that is still in progress. It completes with null when the
+     * exhibit has no model in the pack or the content cache, e.g. one added at runtime.
+     */
+    public CompletableFuture<ModelRenderable> getExhibitRenderable(Context context, int exhibitIndex, int level) {
+        ContentRepository content = ContentRepository.get(context);
+        String modelName = Exhibits.get(context).name(exhibitIndex);
+        if (content.modelBytes(modelName) == 0) {
+            Log.w(TAG, "No model for exhibit " + exhibitIndex + ": " + modelName);
+            return CompletableFuture.completedFuture(null);
+        }
+        while (level > 0 && content.modelBytes(LodLevels.modelName(modelName, level)) == 0) {
+            level--;
+        }
+        int key = key(exhibitIndex, level);
+        ModelRenderable cached = exhibitRenderables.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<ModelRenderable> pending = inFlight.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        String levelName = LodLevels.modelName(modelName, level);
+        long weightBytes = content.modelBytes(levelName);
+        Log.d(TAG, "Loading model for exhibit " + exhibitIndex + ": " + levelName);
+
+        CompletableFuture<ModelRenderable> load = build(context, levelName, content.modelSource(levelName));
+        inFlight.put(key, load);
+
+        // handle() is registered before returning, so callers chaining on the same future see the
+        // model in the cache by the time their own callbacks run.
+        load.handle((renderable, throwable) -> {
+            inFlight.remove(key);
+            if (throwable != null) {
+                Log.e(TAG, "Unable to load " + levelName, throwable);
+            } else {
+                exhibitRenderables.put(key, renderable, weightBytes);
+            }
+            return null;
+        });
+        return load;
+    }
+
+    // Returns a model shared by every exhibit, e.g. "frame_upper_left" or "chroma_key_video".
+    public CompletableFuture<ModelRenderable> getSharedRenderable(Context context, String modelName) {
+        CompletableFuture<ModelRenderable> renderable = sharedRenderables.get(modelName);
+        if (renderable == null || renderable.isCompletedExceptionally()) {
+            renderable = build(context, modelName, ContentRepository.get(context).modelSource(modelName));
+            sharedRenderables.put(modelName, renderable);
+        }
+        return renderable;
+    }
+
+    // Starts building modelName from source (see ContentRepository), recording how long it takes.
+    private CompletableFuture<ModelRenderable> build(Context context, String modelName,
+                                                     Callable<InputStream> source) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<ModelRenderable> load =
+                ModelRenderable.builder()
+                        .setSource(context, source)
+                        .build();
+        load.thenAccept(renderable -> {
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            loadTime.record(micros);
+            Metrics.getInstance().histogram("renderable.load_us." + modelName).record(micros);
+        });
+        return load;
+    }
+
+    private static int key(int exhibitIndex, int level) {
+        return exhibitIndex * LodLevels.COUNT + level;
+    }
+
+    // Drops every cached exhibit model, e.g. from onTrimMemory(). Shared models are kept.
+    public void trimMemory() {
+        exhibitRenderables.clear();
+    }
+
+    public long hitCount() {
+        return exhibitRenderables.hitCount();
+    }
+
+    public long missCount() {
+        return exhibitRenderables.missCount();
+    }
+
+    public long cachedBytes() {
+        return exhibitRenderables.sizeBytes();
+    }
+
+    @Override
+    public String toString() {
+        return exhibitRenderables.toString() + ", loading=" + inFlight.size();
+    }
+}
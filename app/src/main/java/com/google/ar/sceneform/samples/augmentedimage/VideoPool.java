@@ -0,0 +1,210 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.util.Log;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.rendering.ExternalTexture;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded pool of video decoders (MediaPlayer) and the ExternalTextures they draw into.
+ *
+ * A slot is keyed by the media id (see Exhibits) of the clip it holds, the variant of the exhibit's
+ * video this device plays (see VideoVariantSelector), so exhibits sharing a clip (most of the
+ * Video_list entries are beachcroc, fancyballroom or skater) reuse a prepared decoder. When every
+ * slot is taken, the least recently used idle slot is reset and loaded with the new clip, keeping
+ * both its MediaPlayer and its ExternalTexture. Textures are only created for exhibits that play
+ * video, and never more than MAX_SLOTS of them, so GPU memory stays flat over a long session.
+ *
+ * Must be used on the main thread: ExternalTexture needs the GL thread and prepare callbacks are
+ * delivered there.
+ */
+public class VideoPool {
+
+    private static final String TAG = "VideoPool";
+
+    // One slot per distinct gallery clip. Each slot holds a hardware decoder and a texture.
+    private static final int MAX_SLOTS = 3;
+
+    // A decoder and its texture, currently loaded with one clip.
+    public static class Slot {
+        public final MediaPlayer player;
+        public final ExternalTexture texture;
+        private int mediaId;
+        private boolean prepared;
+        // The decoder hit an error and was reset; acquire() loads the clip again.
+        private boolean failed;
+        private boolean inUse;
+        // Run once the current clip is prepared, see whenPrepared().
+        private Runnable onPrepared;
+        private long loadStartNanos;
+
+        private Slot(MediaPlayer player, ExternalTexture texture) {
+            this.player = player;
+            this.texture = texture;
+        }
+
+        public boolean isPrepared() {
+            return prepared;
+        }
+
+        // Runs action now if the clip is prepared, otherwise as soon as it is.
+        public void whenPrepared(Runnable action) {
+            if (prepared) {
+                action.run();
+            } else {
+                onPrepared = action;
+            }
+        }
+    }
+
+    private final Exhibits exhibits;
+    // Downloaded clips, used instead of the bundled ones when present.
+    private final ContentRepository content;
+    private final VideoVariantSelector variants;
+    // Media id -> slot, least recently used first.
+    private final LinkedHashMap<Integer, Slot> slots = new LinkedHashMap<>(MAX_SLOTS + 1, 0.75f, true);
+    private final Histogram prepareTime = Metrics.getInstance().histogram("video.prepare_us");
+
+    public VideoPool(Context context) {
+        this.exhibits = Exhibits.get(context);
+        this.content = ContentRepository.get(context);
+        this.variants = new VideoVariantSelector(context);
+    }
+
+    // Prepares decoders for the clips of the video exhibits ahead of time, up to MAX_SLOTS. The
+    // first time on a device model, also starts benchmarking which video variants it plays.
+    public void warm() {
+        variants.probe();
+        for (int i = 0; i < exhibits.count() && slots.size() < MAX_SLOTS; i++) {
+            if (!exhibits.playsVideo(i)) {
+                continue;
+            }
+            int mediaId = variants.select(exhibits.videoId(i));
+            if (mediaId != 0 && !slots.containsKey(mediaId)) {
+                Slot slot = newOrRecycledSlot();
+                if (slot != null) {
+                    load(slot, mediaId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a slot with the exhibit's clip, rewound and ready to start once prepared, or null if
+     * the exhibit has no video or every slot is playing.
+     */
+    public Slot acquire(int exhibitIndex) {
+        int mediaId = variants.select(exhibits.videoId(exhibitIndex));
+        if (mediaId == 0) {
+            return null;
+        }
+        Slot slot = slots.get(mediaId);
+        if (slot == null) {
+            slot = newOrRecycledSlot();
+            if (slot == null) {
+                Log.w(TAG, "No free video slot for exhibit " + exhibitIndex);
+                return null;
+            }
+            if (!load(slot, mediaId)) {
+                return null;
+            }
+        } else if (slot.failed) {
+            if (!load(slot, mediaId)) {
+                return null;
+            }
+        } else if (slot.prepared) {
+            slot.player.seekTo(0);
+        }
+        slot.inUse = true;
+        return slot;
+    }
+
+    // Stops the slot's clip and makes the slot available again. The decoder stays prepared.
+    public void release(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        slot.inUse = false;
+        slot.onPrepared = null;
+        if (slot.prepared) {
+            if (slot.player.isPlaying()) {
+                slot.player.pause();
+            }
+            slot.player.seekTo(0);
+        }
+    }
+
+    // Releases every decoder and texture surface. Call when the activity is destroyed.
+    public void releaseAll() {
+        for (Slot slot : slots.values()) {
+            slot.player.release();
+            slot.texture.getSurface().release();
+        }
+        slots.clear();
+    }
+
+    private Slot newOrRecycledSlot() {
+        if (slots.size() < MAX_SLOTS) {
+            Slot slot = new Slot(new MediaPlayer(), new ExternalTexture());
+            slot.player.setOnPreparedListener(mp -> {
+                slot.prepared = true;
+                prepareTime.recordSinceNanos(slot.loadStartNanos);
+                Runnable action = slot.onPrepared;
+                slot.onPrepared = null;
+                if (action != null) {
+                    action.run();
+                }
+            });
+            slot.player.setOnErrorListener((mp, what, extra) -> {
+                Log.e(TAG, "Video " + slot.mediaId + " failed: " + what + "/" + extra);
+                // The player stays in the Error state until it is reset. The clip is loaded again by
+                // the next acquire(), rather than right away, so a broken file doesn't loop.
+                slot.player.reset();
+                slot.prepared = false;
+                slot.failed = true;
+                slot.onPrepared = null;
+                return true;
+            });
+            return slot;
+        }
+        // Reuse the least recently used slot nobody is watching.
+        for (Slot slot : slots.values()) {
+            if (!slot.inUse) {
+                slots.remove(slot.mediaId);
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    // Loads mediaId into the slot's decoder, keeping the decoder and texture. On failure the slot
+    // is released and dropped from the pool.
+    private boolean load(Slot slot, int mediaId) {
+        slot.player.reset();
+        slot.prepared = false;
+        slot.failed = false;
+        slot.onPrepared = null;
+        slot.mediaId = mediaId;
+        try {
+            content.setDataSource(slot.player, mediaId);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Unable to open video " + mediaId, e);
+            slot.player.release();
+            slot.texture.getSurface().release();
+            // A failed slot that was loaded again is still in the pool.
+            slots.remove(mediaId, slot);
+            return false;
+        }
+        // reset() drops the surface and the looping flag, so set them again.
+        slot.player.setSurface(slot.texture.getSurface());
+        slot.player.setLooping(true);
+        slot.loadStartNanos = System.nanoTime();
+        slot.player.prepareAsync();
+        slots.put(mediaId, slot);
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.MaterialFactory;
+import com.google.ar.sceneform.rendering.ModelRenderable;
+import com.google.ar.sceneform.rendering.ShapeFactory;
+import com.google.ar.sceneform.rendering.Texture;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Poster frames of the exhibit videos: the first frame of each clip, chroma-keyed the way the
+ * video is (see the extractVideoPosters task). AugmentedImageNode shows the poster on the video
+ * quad as soon as the video is placed and swaps to the live ExternalTexture once the decoder has
+ * its first frame, so visitors see the picture instead of an empty frame while the decoder starts.
+ *
+ * Posters are small PNGs (360p) decoded on a background thread and kept as renderables, one per
+ * clip; there are only a few distinct gallery clips. Sceneform builds renderables on the main
+ * thread, so this class is only used from there.
+ */
+@SuppressWarnings({"AndroidApiChecker"})
+public class VideoPosters {
+
+    private static final String TAG = "VideoPosters";
+
+    // The poster quad matches the chroma_key_video model: 1 x 1, standing on its bottom edge, so the
+    // video node's scale fits both.
+    private static final Vector3 QUAD_SIZE = new Vector3(1f, 1f, 0f);
+    private static final Vector3 QUAD_CENTER = new Vector3(0f, 0.5f, 0f);
+
+    private static VideoPosters instance;
+
+    // A poster and the shape of the video it stands in for.
+    public static class Poster {
+        public final ModelRenderable renderable;
+        // Width over height of the video.
+        public final float aspectRatio;
+
+        Poster(ModelRenderable renderable, float aspectRatio) {
+            this.renderable = renderable;
+            this.aspectRatio = aspectRatio;
+        }
+    }
+
+    // The catalog is looked up through it on each use (see Exhibits.get()), as Exhibits.reload()
+    // replaces it.
+    private final Context context;
+    private final ContentPack pack;
+    private final ContentRepository content;
+    // Clip media id -> poster, built or being built.
+    private final SparseArray<CompletableFuture<Poster>> posters = new SparseArray<>();
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final Executor mainThread = new Handler(Looper.getMainLooper())::post;
+    private final Histogram loadTime = Metrics.getInstance().histogram("video.poster_load_us");
+
+    public static VideoPosters getInstance(Context context) {
+        if (instance == null) {
+            instance = new VideoPosters(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private VideoPosters(Context context) {
+        this.context = context;
+        this.pack = ContentPack.get(context);
+        this.content = ContentRepository.get(context);
+    }
+
+    /**
+     * Returns the poster of the exhibit's video, complete once it is built, or null if the exhibit
+     * has no video or the video has no poster. The first call starts building it.
+     */
+    public CompletableFuture<Poster> get(int exhibitIndex) {
+        int clipId = Exhibits.get(context).videoId(exhibitIndex);
+        if (clipId == 0) {
+            return null;
+        }
+        CompletableFuture<Poster> poster = posters.get(clipId);
+        if (poster == null || poster.isCompletedExceptionally()) {
+            String videoKey = pack.key(clipId);
+            if (!content.hasPoster(videoKey)) {
+                return null;
+            }
+            poster = load(videoKey, content.posterSource(videoKey));
+            posters.put(clipId, poster);
+        }
+        return poster;
+    }
+
+    // Starts building the exhibit's poster, e.g. as soon as its image is detected.
+    public void prefetch(int exhibitIndex) {
+        get(exhibitIndex);
+    }
+
+    private CompletableFuture<Poster> load(String videoKey, Callable<InputStream> source) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<Poster> poster = CompletableFuture
+                .supplyAsync(() -> decode(source), decoder)
+                .thenComposeAsync(bitmap -> Texture.builder()
+                        .setSource(bitmap)
+                        .build()
+                        .thenCompose(texture -> MaterialFactory.makeTransparentWithTexture(context, texture))
+                        .thenApply(material -> new Poster(
+                                ShapeFactory.makeCube(QUAD_SIZE, QUAD_CENTER, material),
+                                (float) bitmap.getWidth() / bitmap.getHeight())), mainThread);
+        poster.handle((built, throwable) -> {
+            if (throwable != null) {
+                Log.w(TAG, "Unable to load the poster of " + videoKey, throwable);
+            } else {
+                loadTime.recordSinceNanos(startNanos);
+            }
+            return null;
+        });
+        return poster;
+    }
+
+    // Runs on the decoder thread.
+    private static Bitmap decode(Callable<InputStream> source) {
+        Bitmap bitmap;
+        try (InputStream in = source.call()) {
+            bitmap = BitmapFactory.decodeStream(in);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        if (bitmap == null) {
+            throw new CompletionException(new IOException("Not an image"));
+        }
+        return bitmap;
+    }
+}
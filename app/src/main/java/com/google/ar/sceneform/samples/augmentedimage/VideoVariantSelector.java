@@ -0,0 +1,267 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.Range;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.samples.augmentedimage.core.VideoVariants;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks which variant of each exhibit video this device plays (see VideoVariants), so a phone that
+ * can't decode the originals next to the AR rendering gets a smaller encode instead of dropping
+ * frames.
+ *
+ * The limit is the tallest height that (1) a hardware H.264 decoder reports it can decode at
+ * FRAME_RATE, (2) isn't wider than needed for the display, and (3) decodes at MIN_DECODE_FPS or
+ * more in a short benchmark. (1) and (2) are cheap and give the limit until (3), which decodes a
+ * couple of seconds of video on a background thread, has run. The result of the benchmark is saved
+ * per Build.MODEL, so it runs once per device model and app install.
+ *
+ * select() may be called from any thread.
+ */
+public class VideoVariantSelector {
+
+    private static final String TAG = "VideoVariantSelector";
+
+    private static final String PREFERENCES = "video_variants";
+    // Bump when the probe changes, so devices probe again.
+    private static final int PROBE_VERSION = 1;
+    private static final String MIME = MediaFormat.MIMETYPE_VIDEO_AVC;
+    // The gallery clips are 30 fps.
+    private static final int FRAME_RATE = 30;
+    // Decoding has to keep up with twice the frame rate, to leave the rest of the frame to ARCore
+    // and Sceneform.
+    private static final float MIN_DECODE_FPS = 2f * FRAME_RATE;
+    private static final int BENCHMARK_FRAMES = 60;
+    private static final long BENCHMARK_TIMEOUT_MILLIS = 4000;
+    private static final long TIMEOUT_US = 10_000;
+
+    private final Exhibits exhibits;
+    private final ContentPack pack;
+    private final ContentRepository content;
+    private final SharedPreferences preferences;
+    private final String preferenceKey = "max_height." + PROBE_VERSION + "." + Build.MODEL;
+    private volatile int maxHeight;
+    private boolean probed;
+
+    private final AtomicLong maxHeightGauge = Metrics.getInstance().counter("video.max_height");
+    private final Histogram benchmarkTime = Metrics.getInstance().histogram("video.benchmark_us");
+
+    public VideoVariantSelector(Context context) {
+        this.exhibits = Exhibits.get(context);
+        this.pack = ContentPack.get(context);
+        this.content = ContentRepository.get(context);
+        this.preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        int saved = preferences.getInt(preferenceKey, 0);
+        if (saved != 0) {
+            maxHeight = saved;
+            probed = true;
+        } else {
+            DisplayMetrics display = context.getResources().getDisplayMetrics();
+            maxHeight = Math.min(codecMaxHeight(),
+                    VideoVariants.displayMaxHeight(display.widthPixels, display.heightPixels));
+        }
+        maxHeightGauge.set(maxHeight);
+        Log.d(TAG, "Video limited to " + maxHeight + "p on " + Build.MODEL + (probed ? "" : " until benchmarked"));
+    }
+
+    // Benchmarks the decoder in the background, unless this device model already was. Call once.
+    public void probe() {
+        if (probed) {
+            return;
+        }
+        probed = true;
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        worker.execute(this::benchmark);
+        worker.shutdown();
+    }
+
+    // Media id of the variant to play for a clip (see Exhibits.videoId()), 0 for none.
+    public int select(int clipId) {
+        if (clipId == 0) {
+            return 0;
+        }
+        return VideoVariants.select(pack.key(clipId), clipId, maxHeight, pack::id);
+    }
+
+    public int maxHeight() {
+        return maxHeight;
+    }
+
+    // Steps the limit down until a clip played at it decodes fast enough. Runs on a worker thread.
+    private void benchmark() {
+        long startNanos = System.nanoTime();
+        int height = maxHeight;
+        while (true) {
+            int clipId = benchmarkClip(height);
+            if (clipId == 0) {
+                // Nothing is played at this height, so there is nothing to measure.
+                break;
+            }
+            float fps = decodeFps(clipId);
+            Log.d(TAG, pack.key(clipId) + " decodes at " + fps + " fps");
+            int lower = VideoVariants.lower(height);
+            if (fps < 0 || fps >= MIN_DECODE_FPS || lower == 0) {
+                break;
+            }
+            height = lower;
+        }
+        benchmarkTime.recordSinceNanos(startNanos);
+        maxHeight = height;
+        maxHeightGauge.set(height);
+        preferences.edit().putInt(preferenceKey, height).apply();
+        Log.d(TAG, "Video limited to " + height + "p on " + Build.MODEL);
+    }
+
+    // A clip some exhibit plays at this limit, 0 if none. A clip without a variant small enough is
+    // played as is at every limit, so it doesn't tell anything about this one.
+    private int benchmarkClip(int height) {
+        for (int i = 0; i < exhibits.count(); i++) {
+            int clipId = exhibits.videoId(i);
+            if (!exhibits.playsVideo(i) || clipId == 0) {
+                continue;
+            }
+            int id = VideoVariants.select(pack.key(clipId), clipId, height, pack::id);
+            if (id != clipId || VideoVariants.playsOriginal(height)) {
+                return id;
+            }
+        }
+        return 0;
+    }
+
+    // Frames per second a decoder outputs for the clip, without rendering them, or -1 on failure.
+    private float decodeFps(int mediaId) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            content.setDataSource(extractor, mediaId);
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("video/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                return -1;
+            }
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            int frames = 0;
+            // Timed from the first frame out, so creating the codec doesn't count.
+            long firstFrameNanos = 0;
+            long deadlineNanos = System.nanoTime() + BENCHMARK_TIMEOUT_MILLIS * 1_000_000;
+            while (frames < BENCHMARK_FRAMES && System.nanoTime() < deadlineNanos) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        int size = extractor.readSampleData(codec.getInputBuffer(inputIndex), 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outputIndex >= 0) {
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                    if (frames++ == 0) {
+                        firstFrameNanos = System.nanoTime();
+                    }
+                }
+            }
+            if (frames < 2) {
+                return -1;
+            }
+            return (frames - 1) * 1e9f / (System.nanoTime() - firstFrameNanos);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to benchmark " + pack.key(mediaId), e);
+            return -1;
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    // Tallest height a hardware decoder of MIME claims to play at FRAME_RATE. Software decoders only
+    // count when there is no hardware one.
+    private static int codecMaxHeight() {
+        int hardware = 0;
+        int software = 0;
+        for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (info.isEncoder() || !supports(info, MIME)) {
+                continue;
+            }
+            MediaCodecInfo.VideoCapabilities capabilities =
+                    info.getCapabilitiesForType(MIME).getVideoCapabilities();
+            int height = 0;
+            for (int candidate : VideoVariants.HEIGHTS) {
+                if (plays(capabilities, candidate)) {
+                    height = candidate;
+                }
+            }
+            if (plays(capabilities, VideoVariants.ORIGINAL_HEIGHT)) {
+                height = VideoVariants.ORIGINAL_HEIGHT;
+            }
+            if (isSoftware(info)) {
+                software = Math.max(software, height);
+            } else {
+                hardware = Math.max(hardware, height);
+            }
+        }
+        int height = hardware != 0 ? hardware : software;
+        return height != 0 ? height : VideoVariants.HEIGHTS[0];
+    }
+
+    private static boolean plays(MediaCodecInfo.VideoCapabilities capabilities, int height) {
+        int width = VideoVariants.width(height);
+        if (!capabilities.areSizeAndRateSupported(width, height, FRAME_RATE)) {
+            return false;
+        }
+        // Measured rates, where the vendor published them; the supported ones are only a ceiling.
+        Range<Double> achievable = capabilities.getAchievableFrameRatesFor(width, height);
+        return achievable == null || achievable.getUpper() >= FRAME_RATE;
+    }
+
+    private static boolean supports(MediaCodecInfo info, String mime) {
+        for (String type : info.getSupportedTypes()) {
+            if (type.equalsIgnoreCase(mime)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The platform's own codecs are the software ones (isHardwareAccelerated() needs API 29).
+    private static boolean isSoftware(MediaCodecInfo info) {
+        String name = info.getName();
+        return name.startsWith("OMX.google.") || name.startsWith("c2.android.");
+    }
+}
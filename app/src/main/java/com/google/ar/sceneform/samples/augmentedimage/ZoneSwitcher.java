@@ -0,0 +1,153 @@
+package com.google.ar.sceneform.samples.augmentedimage;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import com.google.ar.core.AugmentedImageDatabase;
+import com.google.ar.core.Session;
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.Metrics;
+import com.google.ar.sceneform.samples.augmentedimage.core.ZoneMap;
+import com.google.ar.sceneform.samples.augmentedimage.core.ZoneSelector;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Switches the session between the full image database and the smaller database of the zone (room)
+ * the visitor is in, see the zone column of exhibits.csv and ZoneSelector.
+ *
+ * Zone databases are deserialized from assets/zones/ on a background thread and kept afterwards;
+ * only Session.configure() runs on the main thread, between two frames, so the camera feed never
+ * stops. Images of a zone database are numbered within the zone; the fragment maps them back to
+ * catalog indices and tells its OnImageDatabaseChangedListener about the switch. Zones are only
+ * switched once the fragment has the full database (see AugmentedImageFragment.useStagedDatabase).
+ *
+ * Must be used on the main thread, apart from the loading it does itself.
+ */
+public class ZoneSwitcher {
+
+    private static final String TAG = "ZoneSwitcher";
+
+    private static final String ZONE_DATABASE_DIR = "zones/";
+
+    // A zone is entered once only its exhibits were tracked for this many frames and ms...
+    private static final int ZONE_ENTER_FRAMES = 15;
+    private static final long ZONE_ENTER_MILLIS = 1500;
+    // ...and left (back to the full database) when none of its exhibits was tracked for this long.
+    private static final long ZONE_LEAVE_MILLIS = 20_000;
+    private static final long ZONE_MIN_STAY_MILLIS = 5000;
+
+    private final AssetManager assets;
+    private final AugmentedImageFragment fragment;
+    private final ZoneMap zones;
+    private final ZoneSelector selector = new ZoneSelector(
+            ZONE_ENTER_FRAMES, ZONE_ENTER_MILLIS, ZONE_LEAVE_MILLIS, ZONE_MIN_STAY_MILLIS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Loaded zone databases, indexed by zone. Only touched on the loader thread.
+    private final AugmentedImageDatabase[] databases;
+    private HandlerThread loaderThread;
+    private Handler loader;
+    private long frameMillis;
+
+    private final Histogram switchTime = Metrics.getInstance().histogram("zones.switch_us");
+    private final AtomicLong switches = Metrics.getInstance().counter("zones.switches");
+
+    public ZoneSwitcher(Context context, AugmentedImageFragment fragment) {
+        this.assets = context.getAssets();
+        this.fragment = fragment;
+        this.zones = Exhibits.get(context).zones();
+        this.databases = new AugmentedImageDatabase[zones.zoneCount()];
+        Log.d(TAG, "Zones: " + zones.names());
+    }
+
+    // The exhibit is tracked this frame.
+    public void seen(int exhibitIndex) {
+        if (fragment.hasFullImageDatabase()) {
+            selector.seen(zones.zoneOf(exhibitIndex));
+        }
+    }
+
+    // Ends the frame, and starts a switch if the visitor changed zones.
+    public void endFrame(long nowMillis) {
+        frameMillis = nowMillis;
+        if (zones.zoneCount() == 0 || !fragment.hasFullImageDatabase() || !selector.endFrame(nowMillis)) {
+            return;
+        }
+        int zone = selector.target();
+        long startNanos = System.nanoTime();
+        if (zone == ZoneMap.NO_ZONE) {
+            // The full database stays loaded in the fragment.
+            apply(zone, null, startNanos);
+            return;
+        }
+        Session session = fragment.getArSceneView().getSession();
+        if (session == null) {
+            selector.switchFailed(nowMillis);
+            return;
+        }
+        loader().post(() -> {
+            AugmentedImageDatabase database = load(session, zone);
+            mainHandler.post(() -> {
+                if (database == null) {
+                    selector.switchFailed(frameMillis);
+                } else {
+                    apply(zone, database, startNanos);
+                }
+            });
+        });
+    }
+
+    // Name of the zone the session is in, or null when it uses the full database.
+    public String currentZone() {
+        int zone = selector.current();
+        return zone == ZoneMap.NO_ZONE ? null : zones.name(zone);
+    }
+
+    // Stops the loader thread. The zone databases are loaded again when needed.
+    public void shutdown() {
+        if (loaderThread != null) {
+            loaderThread.quitSafely();
+            loaderThread = null;
+            loader = null;
+        }
+    }
+
+    private void apply(int zone, AugmentedImageDatabase database, long startNanos) {
+        int[] exhibits = zone == ZoneMap.NO_ZONE ? null : zones.members(zone);
+        if (!fragment.useImageDatabase(database, exhibits)) {
+            selector.switchFailed(frameMillis);
+            return;
+        }
+        selector.switched(zone, frameMillis);
+        switches.incrementAndGet();
+        switchTime.recordSinceNanos(startNanos);
+        Log.d(TAG, "Switched to " + (zone == ZoneMap.NO_ZONE ? "the full database" : "zone " + zones.name(zone)));
+    }
+
+    // Runs on the loader thread.
+    private AugmentedImageDatabase load(Session session, int zone) {
+        if (databases[zone] == null) {
+            String asset = ZONE_DATABASE_DIR + zones.name(zone) + ".imgdb";
+            try (InputStream in = assets.open(asset)) {
+                databases[zone] = AugmentedImageDatabase.deserialize(session, in);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Unable to load " + asset, e);
+                return null;
+            }
+        }
+        return databases[zone];
+    }
+
+    private Handler loader() {
+        if (loader == null) {
+            loaderThread = new HandlerThread(TAG);
+            loaderThread.start();
+            loader = new Handler(loaderThread.getLooper());
+        }
+        return loader;
+    }
+}
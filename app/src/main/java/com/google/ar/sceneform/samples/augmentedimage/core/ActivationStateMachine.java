@@ -0,0 +1,194 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.Arrays;
+
+/**
+ * Decides which single exhibit owns the audio/video, with dwell and hysteresis.
+ *
+ * Every frame the caller offers each visible exhibit with a score (higher is more dominant, e.g.
+ * closer to the camera) and then calls endFrame(). An exhibit only takes over once it has been the
+ * best one for dwellFrames frames AND dwellMillis, and it has to beat the score of the active
+ * exhibit (or of the waiting candidate) by switchMargin to count as best. The active exhibit is
+ * only released after it hasn't been offered for releaseMillis. Two targets in view at once
+ * (beachcroc and beachcroc_text) therefore no longer swap the players back and forth every frame.
+ *
+ * Not thread safe, use from the frame update thread. offer() and endFrame() don't allocate.
+ */
+public final class ActivationStateMachine {
+
+    public static final int NONE = -1;
+
+    // Per-exhibit states.
+    public static final int STATE_IDLE = 0;
+    // Best exhibit, waiting for the dwell to take over.
+    public static final int STATE_CANDIDATE = 1;
+    public static final int STATE_ACTIVE = 2;
+    // Active but not offered lately, deactivated after releaseMillis.
+    public static final int STATE_RELEASING = 3;
+
+    public interface Listener {
+        // The exhibit now owns the audio/video. Called after onDeactivated() of the previous one.
+        void onActivated(int exhibitIndex);
+
+        void onDeactivated(int exhibitIndex);
+    }
+
+    private final int dwellFrames;
+    private final long dwellMillis;
+    private final long releaseMillis;
+    private final float switchMargin;
+    private final Listener listener;
+
+    private byte[] states;
+
+    // Best exhibit offered in the current frame.
+    private int best = NONE;
+    private float bestScore;
+    private boolean activeOffered;
+    private float activeScore;
+    private boolean candidateOffered;
+    private float candidateScore;
+
+    private int active = NONE;
+    private long activeLastSeenMillis;
+    private int candidate = NONE;
+    private int candidateFrames;
+    private long candidateSinceMillis;
+
+    private long switchCount;
+
+    /**
+     * @param dwellFrames frames an exhibit must stay the best one before it takes over.
+     * @param dwellMillis time an exhibit must stay the best one before it takes over.
+     * @param releaseMillis time the active exhibit may go unseen before it is released.
+     * @param switchMargin how much a challenger's score must exceed the active exhibit's or candidate's.
+     */
+    public ActivationStateMachine(int exhibitCount, int dwellFrames, long dwellMillis,
+                                  long releaseMillis, float switchMargin, Listener listener) {
+        this.dwellFrames = Math.max(1, dwellFrames);
+        this.dwellMillis = Math.max(0, dwellMillis);
+        this.releaseMillis = Math.max(0, releaseMillis);
+        this.switchMargin = Math.max(0, switchMargin);
+        this.listener = listener;
+        this.states = new byte[exhibitCount];
+    }
+
+    // Reports an exhibit as visible this frame with the given dominance score.
+    public void offer(int exhibitIndex, float score) {
+        if (exhibitIndex >= states.length) {
+            states = Arrays.copyOf(states, Math.max(exhibitIndex + 1, states.length * 2));
+        }
+        if (exhibitIndex == active) {
+            activeOffered = true;
+            activeScore = score;
+            return;
+        }
+        if (exhibitIndex == candidate) {
+            candidateOffered = true;
+            candidateScore = score;
+        }
+        if (best == NONE || score > bestScore) {
+            best = exhibitIndex;
+            bestScore = score;
+        }
+    }
+
+    // Applies the offers of the frame. nowMillis must not go backwards.
+    public void endFrame(long nowMillis) {
+        // A challenger has to clearly beat the active exhibit, if that is still visible, and the
+        // candidate keeps its dwell unless it is clearly beaten too.
+        int challenger = best;
+        if (challenger != NONE && activeOffered && bestScore <= activeScore + switchMargin) {
+            challenger = NONE;
+        } else if (challenger != candidate && candidateOffered
+                && bestScore <= candidateScore + switchMargin) {
+            challenger = candidate;
+        }
+
+        if (activeOffered) {
+            activeLastSeenMillis = nowMillis;
+            setState(active, STATE_ACTIVE);
+        }
+
+        if (challenger == NONE) {
+            clearCandidate();
+        } else if (challenger != candidate) {
+            clearCandidate();
+            candidate = challenger;
+            candidateFrames = 1;
+            candidateSinceMillis = nowMillis;
+            setState(candidate, STATE_CANDIDATE);
+        } else {
+            candidateFrames++;
+        }
+
+        if (candidate != NONE && candidateFrames >= dwellFrames
+                && nowMillis - candidateSinceMillis >= dwellMillis) {
+            int previous = active;
+            int next = candidate;
+            candidate = NONE;
+            if (previous != NONE) {
+                setState(previous, STATE_IDLE);
+                listener.onDeactivated(previous);
+            }
+            active = next;
+            activeLastSeenMillis = nowMillis;
+            setState(next, STATE_ACTIVE);
+            switchCount++;
+            listener.onActivated(next);
+        } else if (active != NONE && !activeOffered) {
+            if (nowMillis - activeLastSeenMillis >= releaseMillis) {
+                int previous = active;
+                active = NONE;
+                setState(previous, STATE_IDLE);
+                listener.onDeactivated(previous);
+            } else {
+                setState(active, STATE_RELEASING);
+            }
+        }
+
+        best = NONE;
+        activeOffered = false;
+        candidateOffered = false;
+    }
+
+    // Exhibit that owns the audio/video, or NONE.
+    public int active() {
+        return active;
+    }
+
+    public int state(int exhibitIndex) {
+        return exhibitIndex < states.length ? states[exhibitIndex] : STATE_IDLE;
+    }
+
+    // Number of times an exhibit took over, to check for thrash.
+    public long switchCount() {
+        return switchCount;
+    }
+
+    // Releases the active exhibit right away (calling the listener) and forgets the candidate.
+    public void reset() {
+        clearCandidate();
+        best = NONE;
+        activeOffered = false;
+        candidateOffered = false;
+        if (active != NONE) {
+            int previous = active;
+            active = NONE;
+            setState(previous, STATE_IDLE);
+            listener.onDeactivated(previous);
+        }
+    }
+
+    private void clearCandidate() {
+        if (candidate != NONE) {
+            setState(candidate, STATE_IDLE);
+            candidate = NONE;
+        }
+        candidateFrames = 0;
+    }
+
+    private void setState(int exhibitIndex, int state) {
+        states[exhibitIndex] = (byte) state;
+    }
+}
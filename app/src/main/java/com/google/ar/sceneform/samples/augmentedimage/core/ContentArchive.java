@@ -0,0 +1,117 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of content.pack, the exhibit audio, video and models packed into one
+ * uncompressed file (see ContentArchiveWriter). All multi-byte values are big-endian.
+ *
+ *   Header (16 bytes)
+ *     0  int   MAGIC
+ *     4  int   VERSION
+ *     8  int   entry count
+ *     12 int   index size in bytes
+ *   Index, one record per entry, sorted by key
+ *     short    key length, then the key in UTF-8 ("raw/imagine", "models/Car")
+ *     long     offset of the data from the start of the archive
+ *     long     length of the data
+ *   Data, each blob aligned to ALIGNMENT
+ *
+ * Entries with the same content point at the same blob. Entries are numbered 1 to size() in
+ * index order, so 0 can mean "none" in int arrays. The data is read straight from the buffer the
+ * archive was read from (typically a mapping of the APK), never copied.
+ */
+public final class ContentArchive {
+
+    // "EXPK".
+    public static final int MAGIC = 0x4558504b;
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    // Blobs start on page boundaries, so each one maps and reads ahead on its own pages.
+    static final int ALIGNMENT = 4096;
+
+    private final ByteBuffer buffer;
+    private final String[] keys;
+    private final long[] offsets;
+    private final long[] lengths;
+    private final Map<String, Integer> ids;
+
+    private ContentArchive(ByteBuffer buffer, String[] keys, long[] offsets, long[] lengths) {
+        this.buffer = buffer;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        ids = new HashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            ids.put(keys[i], i + 1);
+        }
+    }
+
+    // Reads the index of the archive in source, from its position to its limit.
+    public static ContentArchive read(ByteBuffer source) {
+        ByteBuffer buffer = source.slice().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a content archive");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported content archive version " + version);
+        }
+        int count = buffer.getInt(8);
+        int indexSize = buffer.getInt(12);
+        if (count < 0 || indexSize < 0 || HEADER_SIZE + (long) indexSize > buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt content archive header");
+        }
+        String[] keys = new String[count];
+        long[] offsets = new long[count];
+        long[] lengths = new long[count];
+        ByteBuffer index = buffer.duplicate();
+        index.position(HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[index.getShort() & 0xffff];
+            index.get(key);
+            keys[i] = new String(key, StandardCharsets.UTF_8);
+            offsets[i] = index.getLong();
+            lengths[i] = index.getLong();
+            if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > buffer.limit()) {
+                throw new IllegalArgumentException("Entry " + keys[i] + " is outside the content archive");
+            }
+        }
+        return new ContentArchive(buffer, keys, offsets, lengths);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    // Id (1 to size()) of the entry with this key, or 0 if there is none.
+    public int id(String key) {
+        Integer id = ids.get(key);
+        return id != null ? id : 0;
+    }
+
+    public String key(int id) {
+        return keys[id - 1];
+    }
+
+    // Offset of the entry's data from the start of the archive, e.g. for a file descriptor range.
+    public long offset(int id) {
+        return offsets[id - 1];
+    }
+
+    public long length(int id) {
+        return lengths[id - 1];
+    }
+
+    // The entry's data, sharing the archive's memory.
+    public ByteBuffer slice(int id) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit((int) (offsets[id - 1] + lengths[id - 1]));
+        slice.position((int) offsets[id - 1]);
+        return slice.slice();
+    }
+}
@@ -0,0 +1,129 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes content.pack (see ContentArchive) from the files in app/content. Run by the
+ * packExhibitContent Gradle task.
+ *
+ * Files are stored once per content: two keys whose files have the same SHA-256 share a blob.
+ */
+public final class ContentArchiveWriter {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // key -> file, sorted by key so the archive doesn't depend on the order files were added in.
+    private final Map<String, File> files = new TreeMap<>();
+    // Distinct blobs, once write() has run.
+    private int blobCount;
+
+    // Adds file under key, e.g. "raw/imagine" or "models/Car".
+    public ContentArchiveWriter add(String key, File file) {
+        if (files.put(key, file) != null) {
+            throw new IllegalArgumentException("Two files for " + key);
+        }
+        return this;
+    }
+
+    // Adds every file of dir as prefix + its name without the extension, see ContentManifest.key().
+    public ContentArchiveWriter addDirectory(String prefix, File dir) {
+        File[] children = dir.listFiles(File::isFile);
+        if (children != null) {
+            for (File child : children) {
+                if (!child.getName().startsWith(".")) {
+                    add(ContentManifest.key(prefix + child.getName()), child);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes the archive to out, as a temporary file renamed into place so a failed build never
+     * leaves half an archive behind. Returns the bytes saved by storing duplicates once.
+     */
+    public long write(File out) throws IOException {
+        List<String> keys = new ArrayList<>(files.keySet());
+        // Lay the distinct blobs out after the index.
+        int indexSize = 0;
+        for (String key : keys) {
+            indexSize += 2 + key.getBytes(StandardCharsets.UTF_8).length + 8 + 8;
+        }
+        Map<String, Long> offsetBySha = new HashMap<>();
+        List<File> blobs = new ArrayList<>();
+        long[] offsets = new long[keys.size()];
+        long[] lengths = new long[keys.size()];
+        long position = align(ContentArchive.HEADER_SIZE + indexSize);
+        long saved = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            File file = files.get(keys.get(i));
+            String sha256 = ContentCache.sha256(file);
+            lengths[i] = file.length();
+            Long offset = offsetBySha.get(sha256);
+            if (offset == null) {
+                offset = position;
+                offsetBySha.put(sha256, offset);
+                blobs.add(file);
+                position = align(position + lengths[i]);
+            } else {
+                saved += lengths[i];
+            }
+            offsets[i] = offset;
+        }
+        blobCount = blobs.size();
+
+        File partial = new File(out.getPath() + ".tmp");
+        try (DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(partial), BUFFER_BYTES))) {
+            data.writeInt(ContentArchive.MAGIC);
+            data.writeInt(ContentArchive.VERSION);
+            data.writeInt(keys.size());
+            data.writeInt(indexSize);
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] key = keys.get(i).getBytes(StandardCharsets.UTF_8);
+                data.writeShort(key.length);
+                data.write(key);
+                data.writeLong(offsets[i]);
+                data.writeLong(lengths[i]);
+            }
+            for (File blob : blobs) {
+                pad(data, align(data.size()) - data.size());
+                Files.copy(blob.toPath(), data);
+            }
+        }
+        Files.move(partial.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return saved;
+    }
+
+    public int fileCount() {
+        return files.size();
+    }
+
+    public int blobCount() {
+        return blobCount;
+    }
+
+    private static long align(long position) {
+        long mask = ContentArchive.ALIGNMENT - 1;
+        return (position + mask) & ~mask;
+    }
+
+    private static void pad(OutputStream out, long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            out.write(0);
+        }
+    }
+}
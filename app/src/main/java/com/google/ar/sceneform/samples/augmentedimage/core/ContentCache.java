@@ -0,0 +1,203 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Least-recently-used disk cache of downloaded content, bounded by bytes.
+ *
+ * Files are stored under their SHA-256 (see ContentManifest), so a file shared by many exhibits is
+ * stored once, and a download into partFile() can be resumed across restarts without any risk of
+ * mixing two versions of a file. commit() only admits a file whose size and hash match, so what
+ * get() returns is always intact. Recency survives restarts through the files' modification times.
+ *
+ * Evicting a file that is still open (e.g. by a MediaPlayer) is fine: it is only unlinked.
+ * Safe to use from any thread.
+ */
+public final class ContentCache {
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final File dir;
+    private final long budgetBytes;
+    // sha256 -> size, least recently used first.
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long evictionCount;
+
+    public ContentCache(File dir, long budgetBytes) throws IOException {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("budgetBytes=" + budgetBytes);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+        File[] existing = dir.listFiles(file -> ContentManifest.isSha256(file.getName()));
+        if (existing != null) {
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            for (File file : existing) {
+                files.put(file.getName(), file.length());
+                sizeBytes += file.length();
+            }
+        }
+        trim(null);
+    }
+
+    // The cached file with this hash, marked most recently used, or null if it isn't cached.
+    public synchronized File get(String sha256) {
+        if (files.get(sha256) == null) {
+            return null;
+        }
+        File file = new File(dir, sha256);
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized boolean contains(String sha256) {
+        return files.containsKey(sha256);
+    }
+
+    // Where a download of entry goes until commit(). May already hold the start of the file.
+    public File partFile(ContentManifest.Entry entry) {
+        return new File(dir, entry.sha256 + PART_SUFFIX);
+    }
+
+    /**
+     * Checks the size and hash of partFile(entry) and moves it into the cache, evicting least
+     * recently used files beyond the budget. The part file is deleted if it doesn't match.
+     */
+    public File commit(ContentManifest.Entry entry) throws IOException {
+        File part = partFile(entry);
+        if (part.length() != entry.size) {
+            throw new IOException(entry.path + ": expected " + entry.size + " bytes, got " + part.length());
+        }
+        String actual = sha256(part);
+        if (!actual.equals(entry.sha256)) {
+            part.delete();
+            throw new IOException(entry.path + ": SHA-256 mismatch, got " + actual);
+        }
+        File file = new File(dir, entry.sha256);
+        synchronized (this) {
+            if (!part.renameTo(file)) {
+                part.delete();
+                throw new IOException("Unable to write " + file);
+            }
+            Long replaced = files.put(entry.sha256, entry.size);
+            sizeBytes += entry.size - (replaced != null ? replaced : 0);
+            trim(entry.sha256);
+        }
+        return file;
+    }
+
+    // Deletes the file with this hash, if it is cached.
+    public synchronized void remove(String sha256) {
+        Long size = files.remove(sha256);
+        if (size != null) {
+            new File(dir, sha256).delete();
+            sizeBytes -= size;
+        }
+    }
+
+    // Deletes the cached and partial files whose hash isn't in keep, e.g. content no longer offered.
+    public synchronized void retainAll(Collection<String> keep) {
+        Set<String> kept = new HashSet<>(keep);
+        Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> cached = it.next();
+            if (!kept.contains(cached.getKey())) {
+                new File(dir, cached.getKey()).delete();
+                sizeBytes -= cached.getValue();
+                it.remove();
+            }
+        }
+        File[] parts = dir.listFiles(file -> file.getName().endsWith(PART_SUFFIX));
+        if (parts != null) {
+            for (File part : parts) {
+                String name = part.getName();
+                if (!kept.contains(name.substring(0, name.length() - PART_SUFFIX.length()))) {
+                    part.delete();
+                }
+            }
+        }
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized int count() {
+        return files.size();
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    // Lowercase hex SHA-256 of the file.
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[BUFFER_BYTES];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ContentCache{files=" + files.size() + ", bytes=" + sizeBytes + "/" + budgetBytes
+                + ", evictions=" + evictionCount + "}";
+    }
+
+    // Evicts least recently used files until the cache fits its budget, never keep.
+    private void trim(String keep) {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+        while (sizeBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> cached = it.next();
+            if (cached.getKey().equals(keep)) {
+                continue;
+            }
+            evicted.add(cached.getKey());
+            sizeBytes -= cached.getValue();
+            evictionCount++;
+            it.remove();
+        }
+        for (String sha256 : evicted) {
+            new File(dir, sha256).delete();
+        }
+    }
+}
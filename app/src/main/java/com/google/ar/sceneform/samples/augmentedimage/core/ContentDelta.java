@@ -0,0 +1,211 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary delta between two versions of a content file, in the manner of rsync: the new version is
+ * a sequence of COPY (a range of the old version) and INSERT (new bytes) operations.
+ *
+ *   int     MAGIC
+ *   long    size of the new version
+ *   ops     COPY:   byte 1, long offset in the old version, int length
+ *           INSERT: byte 2, int length, length bytes
+ *   byte 0  end
+ *
+ * create() runs in the build tooling with both versions in memory. apply() streams: it reads the
+ * patch once, seeks in the old file and writes the new one out as it goes, so a device never holds
+ * more than a buffer of either in memory.
+ */
+public final class ContentDelta {
+
+    // "EXD1".
+    private static final int MAGIC = 0x45584431;
+    private static final byte END = 0;
+    private static final byte COPY = 1;
+    private static final byte INSERT = 2;
+
+    // Matching granularity. Smaller finds more matches in small edits, at a bigger index.
+    static final int BLOCK_SIZE = 2048;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private ContentDelta() {}
+
+    // Writes the patch that turns base into target.
+    public static void create(byte[] base, byte[] target, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_BYTES));
+        data.writeInt(MAGIC);
+        data.writeLong(target.length);
+
+        // Weak checksum of every aligned block of base -> offsets of the blocks with it.
+        Map<Integer, List<Integer>> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+            blocks.computeIfAbsent(checksum(base, offset), k -> new ArrayList<>(1)).add(offset);
+        }
+
+        int literalStart = 0;
+        int i = 0;
+        int a = 0;
+        int b = 0;
+        boolean rolling = false;
+        while (i + BLOCK_SIZE <= target.length) {
+            if (!rolling) {
+                a = 0;
+                b = 0;
+                for (int k = 0; k < BLOCK_SIZE; k++) {
+                    int x = target[i + k] & 0xff;
+                    a += x;
+                    b += (BLOCK_SIZE - k) * x;
+                }
+                rolling = true;
+            }
+            int match = -1;
+            List<Integer> candidates = blocks.get(combine(a, b));
+            if (candidates != null) {
+                for (int offset : candidates) {
+                    if (equal(base, offset, target, i, BLOCK_SIZE)) {
+                        match = offset;
+                        break;
+                    }
+                }
+            }
+            if (match < 0) {
+                // Roll the window one byte on.
+                int leaving = target[i] & 0xff;
+                if (i + BLOCK_SIZE < target.length) {
+                    int entering = target[i + BLOCK_SIZE] & 0xff;
+                    a += entering - leaving;
+                    b += a - BLOCK_SIZE * leaving;
+                }
+                i++;
+                continue;
+            }
+            // Grow the match backwards into the pending literal, and forwards as far as it goes.
+            int start = i;
+            int baseStart = match;
+            while (start > literalStart && baseStart > 0 && base[baseStart - 1] == target[start - 1]) {
+                start--;
+                baseStart--;
+            }
+            int end = i + BLOCK_SIZE;
+            int baseEnd = match + BLOCK_SIZE;
+            while (end < target.length && baseEnd < base.length && base[baseEnd] == target[end]) {
+                end++;
+                baseEnd++;
+            }
+            writeInsert(data, target, literalStart, start);
+            data.writeByte(COPY);
+            data.writeLong(baseStart);
+            data.writeInt(end - start);
+            i = end;
+            literalStart = end;
+            rolling = false;
+        }
+        writeInsert(data, target, literalStart, target.length);
+        data.writeByte(END);
+        data.flush();
+    }
+
+    /**
+     * Writes base patched with patch to out, checking the patch is well-formed and that the result
+     * has the size the patch promises. Returns that size.
+     */
+    public static long apply(File base, InputStream patch, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(patch, BUFFER_BYTES));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a content delta");
+        }
+        long size = in.readLong();
+        long written = 0;
+        byte[] buffer = new byte[BUFFER_BYTES];
+        try (RandomAccessFile source = new RandomAccessFile(base, "r")) {
+            while (true) {
+                byte op = in.readByte();
+                if (op == END) {
+                    break;
+                } else if (op == COPY) {
+                    long offset = in.readLong();
+                    int length = in.readInt();
+                    if (offset < 0 || length < 0 || offset + length > source.length()) {
+                        throw new IOException("COPY " + offset + "+" + length + " is outside the base file");
+                    }
+                    source.seek(offset);
+                    for (int left = length; left > 0; ) {
+                        int read = source.read(buffer, 0, Math.min(buffer.length, left));
+                        if (read == -1) {
+                            throw new EOFException();
+                        }
+                        out.write(buffer, 0, read);
+                        left -= read;
+                    }
+                    written += length;
+                } else if (op == INSERT) {
+                    int length = in.readInt();
+                    if (length < 0) {
+                        throw new IOException("INSERT of " + length + " bytes");
+                    }
+                    for (int left = length; left > 0; ) {
+                        int read = in.read(buffer, 0, Math.min(buffer.length, left));
+                        if (read == -1) {
+                            throw new EOFException();
+                        }
+                        out.write(buffer, 0, read);
+                        left -= read;
+                    }
+                    written += length;
+                } else {
+                    throw new IOException("Unknown delta op " + op);
+                }
+            }
+        }
+        if (written != size) {
+            throw new IOException("Delta produced " + written + " bytes, expected " + size);
+        }
+        return size;
+    }
+
+    private static void writeInsert(DataOutputStream data, byte[] target, int from, int to) throws IOException {
+        if (to > from) {
+            data.writeByte(INSERT);
+            data.writeInt(to - from);
+            data.write(target, from, to - from);
+        }
+    }
+
+    // rsync's weak checksum of bytes[offset, offset + BLOCK_SIZE).
+    private static int checksum(byte[] bytes, int offset) {
+        int a = 0;
+        int b = 0;
+        for (int k = 0; k < BLOCK_SIZE; k++) {
+            int x = bytes[offset + k] & 0xff;
+            a += x;
+            b += (BLOCK_SIZE - k) * x;
+        }
+        return combine(a, b);
+    }
+
+    private static int combine(int a, int b) {
+        return (a & 0xffff) | (b << 16);
+    }
+
+    private static boolean equal(byte[] x, int xOffset, byte[] y, int yOffset, int length) {
+        for (int k = 0; k < length; k++) {
+            if (x[xOffset + k] != y[yOffset + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
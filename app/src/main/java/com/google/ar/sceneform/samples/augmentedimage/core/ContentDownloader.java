@@ -0,0 +1,184 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Downloads content files from a content server into a ContentCache.
+ *
+ * Transfers are resumable: bytes go to the cache's part file as they arrive, and a later attempt
+ * (after a dropped connection, or the next time the app runs) asks for the rest with a range
+ * request. A server that ignores the range answers 200 and the file starts over. Nothing reaches
+ * the cache unless its size and SHA-256 match the manifest, so a part file mixing two versions of
+ * a file is caught there and downloaded again. Files with a patch from a cached older version are
+ * rebuilt from that instead, see downloadPatched().
+ *
+ * Blocking; call from a background thread.
+ */
+public final class ContentDownloader {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+    // Attempts per file, each resuming where the previous one stopped.
+    private static final int ATTEMPTS = 3;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final String baseUrl;
+
+    private final Histogram downloadTime = Metrics.getInstance().histogram("content.download_us");
+    private final AtomicLong downloadedBytes = Metrics.getInstance().counter("content.downloaded_bytes");
+    private final AtomicLong resumedDownloads = Metrics.getInstance().counter("content.resumed_downloads");
+    private final Histogram patchTime = Metrics.getInstance().histogram("content.patch_us");
+    private final AtomicLong patchedFiles = Metrics.getInstance().counter("content.patched_files");
+
+    // baseUrl is the URL manifest.txt and the content paths are relative to.
+    public ContentDownloader(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    public ContentManifest fetchManifest() throws IOException {
+        HttpURLConnection connection = open(ContentManifest.FILE_NAME);
+        try {
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException(ContentManifest.FILE_NAME + ": HTTP " + code);
+            }
+            try (Reader in = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                return ContentManifest.parse(in);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Downloads entry into cache, resuming a partial download if there is one, and returns the
+     * cached file. Gives up with an InterruptedIOException as soon as stopped returns true; the
+     * part file is kept for next time.
+     */
+    public File download(ContentManifest.Entry entry, ContentCache cache, BooleanSupplier stopped)
+            throws IOException {
+        File cached = cache.get(entry.sha256);
+        if (cached != null) {
+            return cached;
+        }
+        long startNanos = System.nanoTime();
+        File part = cache.partFile(entry);
+        IOException failure = null;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            try {
+                if (part.length() > entry.size) {
+                    part.delete();
+                }
+                if (part.length() < entry.size) {
+                    transfer(entry, part, stopped);
+                }
+                File file = cache.commit(entry);
+                downloadTime.recordSinceNanos(startNanos);
+                return file;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Downloads patch and applies it to the older version of the file, which must be cached. The
+     * new version is written to the part file of entry, which commit() checks and renames into the
+     * cache in one step. The patch itself is dropped from the cache afterwards.
+     */
+    public File downloadPatched(ContentManifest.Entry entry, ContentManifest.Patch patch, ContentCache cache,
+                                BooleanSupplier stopped) throws IOException {
+        File base = cache.get(patch.fromSha256);
+        if (base == null) {
+            throw new FileNotFoundException(entry.path + ": the version the patch applies to isn't cached");
+        }
+        long startNanos = System.nanoTime();
+        File patchFile = download(patch.file, cache, stopped);
+        File part = cache.partFile(entry);
+        try {
+            try (InputStream in = new FileInputStream(patchFile);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(part), BUFFER_BYTES)) {
+                ContentDelta.apply(base, in, out);
+            }
+            File file = cache.commit(entry);
+            patchTime.recordSinceNanos(startNanos);
+            patchedFiles.incrementAndGet();
+            return file;
+        } catch (IOException e) {
+            part.delete();
+            throw e;
+        } finally {
+            cache.remove(patch.file.sha256);
+        }
+    }
+
+    // Appends the rest of the file to part, or rewrites it if the server doesn't do ranges.
+    private void transfer(ContentManifest.Entry entry, File part, BooleanSupplier stopped) throws IOException {
+        long offset = part.length();
+        HttpURLConnection connection = open(entry.path);
+        try {
+            if (offset > 0) {
+                connection.setRequestProperty("Range", "bytes=" + offset + "-");
+            }
+            int code = connection.getResponseCode();
+            boolean append;
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                String range = connection.getHeaderField("Content-Range");
+                if (range == null || !range.startsWith("bytes " + offset + "-")) {
+                    throw new IOException(entry.path + ": unexpected Content-Range " + range);
+                }
+                append = true;
+                resumedDownloads.incrementAndGet();
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                append = false;
+            } else {
+                if (code == 416) {
+                    // Range Not Satisfiable: the part file isn't the start of what the server has.
+                    part.delete();
+                }
+                throw new IOException(entry.path + ": HTTP " + code);
+            }
+            byte[] buffer = new byte[BUFFER_BYTES];
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = new FileOutputStream(part, append)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    downloadedBytes.addAndGet(read);
+                    if (stopped.getAsBoolean()) {
+                        throw new InterruptedIOException(entry.path + ": stopped");
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        // Ranges count bytes of the file itself, so transparent gzip must stay off.
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return connection;
+    }
+}
@@ -0,0 +1,230 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The exhibit content (audio, video and .sfb models) a content server offers: one line per file,
+ * with its SHA-256 and size, under a version number the server bumps whenever anything changes.
+ *
+ *   # comment
+ *   version 3
+ *   <sha256> <size> raw/imagine.mp3
+ *   <sha256> <size> models/Car.sfb
+ *   patch <from sha256> <to sha256> <patch sha256> <size> patches/<from>-<to>.delta
+ *
+ * Paths are relative to the server's base URL and mirror app/content, which ships in the APK as
+ * content.pack: raw/ holds the audio and video, models/ the .sfb models. Files are looked up by
+ * key(), the path without its extension (also the key in the pack), since the catalog names files
+ * without one, or by exhibit index through the catalog (see exhibitEntries()), the way Image_list
+ * is.
+ *
+ * A patch line offers a ContentDelta that turns an older version of a file into the current one,
+ * so a device holding the older version only downloads what changed.
+ */
+public final class ContentManifest {
+
+    public static final String FILE_NAME = "manifest.txt";
+
+    private static final String VERSION = "version";
+    private static final String PATCH = "patch";
+
+    // One file of the content.
+    public static final class Entry {
+        public final String path;
+        public final String sha256;
+        public final long size;
+
+        public Entry(String path, String sha256, long size) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+    }
+
+    // A ContentDelta from one version of a file to another.
+    public static final class Patch {
+        public final String fromSha256;
+        public final String toSha256;
+        // The patch file itself, downloaded like any other file.
+        public final Entry file;
+
+        public Patch(String fromSha256, String toSha256, Entry file) {
+            this.fromSha256 = fromSha256;
+            this.toSha256 = toSha256;
+            this.file = file;
+        }
+    }
+
+    private final int version;
+    private final List<Entry> entries;
+    private final List<Patch> patches;
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final Set<String> hashes = new HashSet<>();
+    // Target sha256 -> patches to it.
+    private final Map<String, List<Patch>> patchesTo = new HashMap<>();
+
+    public ContentManifest(int version, List<Entry> entries) {
+        this(version, entries, Collections.<Patch>emptyList());
+    }
+
+    public ContentManifest(int version, List<Entry> entries, List<Patch> patches) {
+        this.version = version;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.patches = Collections.unmodifiableList(new ArrayList<>(patches));
+        for (Entry entry : entries) {
+            if (byKey.put(key(entry.path), entry) != null) {
+                throw new IllegalArgumentException("Two files for " + key(entry.path));
+            }
+            hashes.add(entry.sha256);
+        }
+        for (Patch patch : patches) {
+            patchesTo.computeIfAbsent(patch.toSha256, k -> new ArrayList<>(1)).add(patch);
+        }
+    }
+
+    public int version() {
+        return version;
+    }
+
+    // Every file, in manifest order.
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    // The file for a key such as "raw/imagine" or "models/Car", or null if there is none.
+    public Entry get(String key) {
+        return byKey.get(key);
+    }
+
+    // Whether some file of this manifest has this hash.
+    public boolean hasFile(String sha256) {
+        return hashes.contains(sha256);
+    }
+
+    // Patches producing the file with this hash, empty if there are none.
+    public List<Patch> patchesTo(String sha256) {
+        List<Patch> found = patchesTo.get(sha256);
+        return found != null ? found : Collections.<Patch>emptyList();
+    }
+
+    public List<Patch> patches() {
+        return patches;
+    }
+
+    // Files of the exhibit at index in catalog (audio, video, model), those the server has.
+    public List<Entry> exhibitEntries(ExhibitCatalog catalog, int index) {
+        List<Entry> found = new ArrayList<>(3);
+        addIfPresent(found, catalog.musicName(index) != null ? "raw/" + catalog.musicName(index) : null);
+        addIfPresent(found, catalog.videoName(index) != null ? "raw/" + catalog.videoName(index) : null);
+        addIfPresent(found, "models/" + catalog.name(index));
+        return found;
+    }
+
+    // Indices of the exhibits of catalog with a file that differs between older and this manifest.
+    public int[] changedExhibits(ExhibitCatalog catalog, ContentManifest older) {
+        int[] changed = new int[catalog.size()];
+        int count = 0;
+        for (int i = 0; i < catalog.size(); i++) {
+            for (Entry entry : exhibitEntries(catalog, i)) {
+                Entry old = older.get(key(entry.path));
+                if (old == null || !old.sha256.equals(entry.sha256)) {
+                    changed[count++] = i;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    // path without its extension, e.g. "raw/imagine" for "raw/imagine.mp3".
+    public static String key(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') ? path.substring(0, dot) : path;
+    }
+
+    public static ContentManifest parse(Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        int version = -1;
+        List<Entry> entries = new ArrayList<>();
+        List<Patch> patches = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+", 3);
+            try {
+                if (fields.length == 2 && fields[0].equals(VERSION)) {
+                    version = Integer.parseInt(fields[1]);
+                } else if (fields[0].equals(PATCH)) {
+                    patches.add(parsePatch(line));
+                } else if (fields.length == 3 && isSha256(fields[0])) {
+                    entries.add(new Entry(fields[2], fields[0], Long.parseLong(fields[1])));
+                } else {
+                    throw new IllegalArgumentException("expected \"<sha256> <size> <path>\"");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("manifest line " + lineNumber + ": " + e.getMessage() + ": " + line);
+            }
+        }
+        if (version < 0) {
+            throw new IOException("manifest has no version line");
+        }
+        return new ContentManifest(version, entries, patches);
+    }
+
+    public void writeTo(Writer out) throws IOException {
+        out.write(VERSION + " " + version + "\n");
+        for (Entry entry : entries) {
+            out.write(entry.sha256 + " " + entry.size + " " + entry.path + "\n");
+        }
+        for (Patch patch : patches) {
+            out.write(PATCH + " " + patch.fromSha256 + " " + patch.toSha256 + " " + patch.file.sha256
+                    + " " + patch.file.size + " " + patch.file.path + "\n");
+        }
+        out.flush();
+    }
+
+    private void addIfPresent(List<Entry> found, String key) {
+        Entry entry = key != null ? byKey.get(key) : null;
+        if (entry != null) {
+            found.add(entry);
+        }
+    }
+
+    private static Patch parsePatch(String line) {
+        String[] fields = line.split("\\s+", 6);
+        if (fields.length != 6 || !isSha256(fields[1]) || !isSha256(fields[2]) || !isSha256(fields[3])) {
+            throw new IllegalArgumentException(
+                    "expected \"patch <from sha256> <to sha256> <patch sha256> <size> <path>\"");
+        }
+        return new Patch(fields[1], fields[2], new Entry(fields[5], fields[3], Long.parseLong(fields[4])));
+    }
+
+    static boolean isSha256(String hex) {
+        if (hex.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < hex.length(); i++) {
+            char c = hex.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
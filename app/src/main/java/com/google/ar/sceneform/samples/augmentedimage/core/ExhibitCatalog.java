@@ -0,0 +1,200 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of the compiled exhibit catalog (exhibits.cat), indexed by AugmentedImage.getIndex().
+ *
+ * The catalog is a fixed-size record per exhibit followed by a shared string table, so it can be
+ * memory-mapped straight out of the APK and read without building an object per exhibit.
+ * The file is produced at build time by ExhibitCatalogCompiler from app/exhibits/exhibits.csv.
+ *
+ * Layout (big endian):
+ *   header   magic, version, count, recordSize, stringsOffset, stringsLength (6 ints)
+ *   records  count * recordSize bytes, see the RECORD_* offsets below
+ *   strings  u16 UTF-8 length followed by the bytes, referenced by offset from the records
+ */
+public final class ExhibitCatalog {
+
+    public static final int MAGIC = 0x45584354; // "EXCT"
+    public static final int VERSION = 4;
+    public static final int HEADER_SIZE = 24;
+
+    // Byte offsets of the fields inside one record.
+    static final int RECORD_NAME = 0;
+    static final int RECORD_MUSIC = 4;
+    static final int RECORD_VIDEO = 8;
+    static final int RECORD_FLAGS = 12;
+    static final int RECORD_POSITION = 16;
+    static final int RECORD_ROTATION = 28;
+    // Added in version 2.
+    static final int RECORD_SCALE = 44;
+    // Added in version 3.
+    static final int RECORD_WIDTH = 48;
+    // Added in version 4.
+    static final int RECORD_ZONE = 52;
+    public static final int RECORD_SIZE = 56;
+
+    // Scale of the models in version 1 catalogs, which had no scale field.
+    public static final float DEFAULT_SCALE = 0.1f;
+
+    // Marks a string field that is not set (e.g. no video).
+    static final int NO_STRING = -1;
+
+    public static final int FLAG_PLAYS_VIDEO = 1;
+    // Near the door, in the small database the app starts with.
+    public static final int FLAG_ENTRANCE = 2;
+
+    private final ByteBuffer buffer;
+    private final int version;
+    private final int count;
+    private final int recordSize;
+    private final int recordsOffset;
+    private final int stringsOffset;
+
+    private ExhibitCatalog(ByteBuffer buffer, int version, int count, int recordSize, int stringsOffset) {
+        this.buffer = buffer;
+        this.version = version;
+        this.count = count;
+        this.recordSize = recordSize;
+        this.recordsOffset = HEADER_SIZE;
+        this.stringsOffset = stringsOffset;
+    }
+
+    /**
+     * Wraps a catalog buffer, usually a mapped asset. Only the header is validated here; the
+     * buffer is read lazily afterwards and must not be modified.
+     */
+    public static ExhibitCatalog read(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        buffer.position(0);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an exhibit catalog");
+        }
+        int version = buffer.getInt(4);
+        int count = buffer.getInt(8);
+        int recordSize = buffer.getInt(12);
+        int stringsOffset = buffer.getInt(16);
+        int stringsLength = buffer.getInt(20);
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported exhibit catalog version " + version);
+        }
+        if (count < 0 || recordSize < recordSize(version)
+                || (long) HEADER_SIZE + (long) count * recordSize > stringsOffset
+                || (long) stringsOffset + stringsLength > buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt exhibit catalog header");
+        }
+        return new ExhibitCatalog(buffer, version, count, recordSize, stringsOffset);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Image name in the database, without the .jpg extension. Also names the exhibit's model.
+    public String name(int index) {
+        return string(index, RECORD_NAME);
+    }
+
+    // Name of the exhibit's audio in content/raw, or null.
+    public String musicName(int index) {
+        return string(index, RECORD_MUSIC);
+    }
+
+    // Name of the exhibit's video in content/raw, or null.
+    public String videoName(int index) {
+        return string(index, RECORD_VIDEO);
+    }
+
+    public int flags(int index) {
+        return buffer.getInt(record(index) + RECORD_FLAGS);
+    }
+
+    public boolean playsVideo(int index) {
+        return (flags(index) & FLAG_PLAYS_VIDEO) != 0;
+    }
+
+    public boolean isEntrance(int index) {
+        return (flags(index) & FLAG_ENTRANCE) != 0;
+    }
+
+    // component is 0, 1 or 2 for x, y, z.
+    public float position(int index, int component) {
+        return buffer.getFloat(record(index) + RECORD_POSITION + 4 * checkComponent(component, 3));
+    }
+
+    // component is 0, 1 or 2 for the axis x, y, z and 3 for the angle in degrees.
+    public float rotation(int index, int component) {
+        return buffer.getFloat(record(index) + RECORD_ROTATION + 4 * checkComponent(component, 4));
+    }
+
+    // Uniform scale of the exhibit's model.
+    public float scale(int index) {
+        return version < 2 ? DEFAULT_SCALE : buffer.getFloat(record(index) + RECORD_SCALE);
+    }
+
+    // Measured width of the printed image in meters, or 0 if it hasn't been measured.
+    public float physicalWidth(int index) {
+        return version < 3 ? 0f : buffer.getFloat(record(index) + RECORD_WIDTH);
+    }
+
+    // Zone (room) of the exhibit, which has its own image database, or null if it is in no zone.
+    public String zone(int index) {
+        return version < 4 ? null : string(index, RECORD_ZONE);
+    }
+
+    // Linear search by image name (with or without .jpg). Returns -1 when the name is unknown.
+    public int indexOf(String name) {
+        String plainName = name.endsWith(".jpg") ? name.substring(0, name.length() - 4) : name;
+        for (int i = 0; i < count; i++) {
+            if (plainName.equals(name(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Exhibit " + index + " of " + count);
+        }
+        return recordsOffset + index * recordSize;
+    }
+
+    private String string(int index, int field) {
+        int offset = buffer.getInt(record(index) + field);
+        if (offset == NO_STRING) {
+            return null;
+        }
+        int position = stringsOffset + offset;
+        int length = buffer.getShort(position) & 0xffff;
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position + 2);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Smallest record of each version; later versions only append fields.
+    private static int recordSize(int version) {
+        switch (version) {
+            case 1:
+                return RECORD_SCALE;
+            case 2:
+                return RECORD_WIDTH;
+            case 3:
+                return RECORD_ZONE;
+            default:
+                return RECORD_SIZE;
+        }
+    }
+
+    private static int checkComponent(int component, int components) {
+        if (component < 0 || component >= components) {
+            throw new IndexOutOfBoundsException("component " + component);
+        }
+        return component;
+    }
+}
@@ -0,0 +1,311 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Compiles app/exhibits/exhibits.csv into the exhibits.cat asset and checks it against the image
+ * list the database was built from. Run by the generateExhibitCatalog Gradle task, so a missing
+ * row or an out-of-order image fails the build instead of the first frame that sees the image.
+ */
+public final class ExhibitCatalogCompiler {
+
+    // ARCore can't hold more images than this in one AugmentedImageDatabase.
+    public static final int MAX_EXHIBITS = 1000;
+
+    private static final String[] REQUIRED_COLUMNS = {
+            "name", "music", "video", "plays_video",
+            "position_x", "position_y", "position_z",
+            "rotation_axis_x", "rotation_axis_y", "rotation_axis_z", "rotation_angle"
+    };
+
+    private ExhibitCatalogCompiler() {}
+
+    // Compiles csv into catalog, checking it against imageList. Throws with every problem found.
+    public static ExhibitCatalog compile(File csv, File imageList, File catalog) throws IOException {
+        ExhibitCatalogWriter writer;
+        try (BufferedReader reader = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8)) {
+            writer = parse(reader, csv.getName());
+        }
+        List<String> imageNames;
+        try (BufferedReader reader = Files.newBufferedReader(imageList.toPath(), StandardCharsets.UTF_8)) {
+            imageNames = readImageList(reader);
+        }
+        ExhibitCatalog compiled = ExhibitCatalog.read(ByteBuffer.wrap(writer.toByteArray()));
+        verify(compiled, imageNames, csv.getName(), imageList.getName());
+
+        File parent = catalog.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        try (OutputStream out = new FileOutputStream(catalog)) {
+            writer.writeTo(out);
+        }
+        return compiled;
+    }
+
+    // Parses the csv rows. Columns are looked up by header name, so their order doesn't matter.
+    public static ExhibitCatalogWriter parse(Reader csv, String fileName) throws IOException {
+        BufferedReader reader = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+        ExhibitCatalogWriter writer = new ExhibitCatalogWriter();
+        List<String> errors = new ArrayList<>();
+        Map<String, Integer> columns = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] cells = trimmed.split(",", -1);
+            if (columns == null) {
+                columns = new HashMap<>();
+                for (int i = 0; i < cells.length; i++) {
+                    columns.put(cells[i].trim(), i);
+                }
+                for (String required : REQUIRED_COLUMNS) {
+                    if (!columns.containsKey(required)) {
+                        errors.add(fileName + ":" + lineNumber + ": missing column '" + required + "'");
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            if (cells.length != columns.size()) {
+                errors.add(fileName + ":" + lineNumber + ": expected " + columns.size()
+                        + " columns but found " + cells.length);
+                continue;
+            }
+            try {
+                writer.add(parseRow(cells, columns));
+            } catch (IllegalArgumentException e) {
+                errors.add(fileName + ":" + lineNumber + ": " + e.getMessage());
+            }
+        }
+        if (columns == null && errors.isEmpty()) {
+            errors.add(fileName + ": no header row");
+        }
+        if (writer.size() > MAX_EXHIBITS) {
+            errors.add(fileName + ": " + writer.size() + " exhibits, ARCore supports at most " + MAX_EXHIBITS);
+        }
+        throwIfAny(errors);
+        return writer;
+    }
+
+    /**
+     * Writes an arcoreimg image list ("name.jpg|path|width") for the catalog, taking the images from
+     * imageDir. The width is left out for exhibits that haven't been measured. Build the prebuilt
+     * database from this list so it carries the physical sizes too.
+     */
+    public static void writeImageList(ExhibitCatalog catalog, File imageDir, Writer out) throws IOException {
+        writeImageList(catalog, i -> true, imageDir, out);
+    }
+
+    // Same, for the database of one zone: only its exhibits, in catalog order. A null zone lists all.
+    public static void writeImageList(ExhibitCatalog catalog, String zone, File imageDir, Writer out)
+            throws IOException {
+        writeImageList(catalog, i -> zone == null || zone.equals(catalog.zone(i)), imageDir, out);
+    }
+
+    // Same, for the exhibits include accepts (e.g. catalog::isEntrance), in catalog order.
+    public static void writeImageList(ExhibitCatalog catalog, IntPredicate include, File imageDir, Writer out)
+            throws IOException {
+        for (int i = 0; i < catalog.size(); i++) {
+            if (!include.test(i)) {
+                continue;
+            }
+            String fileName = catalog.name(i) + ".jpg";
+            out.write(fileName);
+            out.write('|');
+            out.write(new File(imageDir, fileName).getAbsolutePath());
+            float width = catalog.physicalWidth(i);
+            if (width > 0) {
+                out.write('|');
+                out.write(Float.toString(width));
+            }
+            out.write('\n');
+        }
+    }
+
+    // Names of the exhibits whose physical width hasn't been measured, in catalog order.
+    public static List<String> missingWidths(ExhibitCatalog catalog) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (!(catalog.physicalWidth(i) > 0)) {
+                names.add(catalog.name(i));
+            }
+        }
+        return names;
+    }
+
+    // Names of the zones, in the order they first appear in the catalog.
+    public static List<String> zones(ExhibitCatalog catalog) {
+        List<String> zones = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            String zone = catalog.zone(i);
+            if (zone != null && !zones.contains(zone)) {
+                zones.add(zone);
+            }
+        }
+        return zones;
+    }
+
+    // Reads the image names, in database order, from an arcoreimg image list ("name.jpg|path[|width]").
+    public static List<String> readImageList(BufferedReader reader) throws IOException {
+        List<String> names = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String name = trimmed.split("\\|", -1)[0].trim();
+            names.add(name.endsWith(".jpg") ? name.substring(0, name.length() - 4) : name);
+        }
+        return names;
+    }
+
+    // Checks that the catalog has exactly one exhibit per database image, in database order.
+    public static void verify(ExhibitCatalog catalog, List<String> imageNames, String catalogName, String imageListName) {
+        List<String> errors = new ArrayList<>();
+        if (catalog.size() != imageNames.size()) {
+            errors.add(catalogName + " has " + catalog.size() + " exhibits but " + imageListName
+                    + " has " + imageNames.size() + " images");
+        }
+        int common = Math.min(catalog.size(), imageNames.size());
+        for (int i = 0; i < common; i++) {
+            if (!catalog.name(i).equals(imageNames.get(i))) {
+                errors.add("exhibit " + i + " is '" + catalog.name(i) + "' in " + catalogName
+                        + " but '" + imageNames.get(i) + "' in " + imageListName);
+            }
+        }
+        for (int i = 0; i < catalog.size(); i++) {
+            if (catalog.playsVideo(i) && catalog.videoName(i) == null) {
+                errors.add("exhibit " + i + " (" + catalog.name(i) + ") plays video but has no video");
+            }
+        }
+        throwIfAny(errors);
+    }
+
+    // Checks that the database of a zone has exactly the zone's exhibits, in catalog order.
+    public static void verifyZone(ExhibitCatalog catalog, String zone, List<String> imageNames, String imageListName) {
+        verifySubset(catalog, i -> zone.equals(catalog.zone(i)), "zone '" + zone + "'", imageNames, imageListName);
+    }
+
+    // Checks that the entrance database has exactly the entrance exhibits, in catalog order.
+    public static void verifyEntrance(ExhibitCatalog catalog, List<String> imageNames, String imageListName) {
+        verifySubset(catalog, catalog::isEntrance, "the entrance", imageNames, imageListName);
+    }
+
+    private static void verifySubset(ExhibitCatalog catalog, IntPredicate include, String subsetName,
+                                     List<String> imageNames, String imageListName) {
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (include.test(i)) {
+                members.add(catalog.name(i));
+            }
+        }
+        if (!members.equals(imageNames)) {
+            throwIfAny(Collections.singletonList(subsetName + " has exhibits " + members
+                    + " but " + imageListName + " has images " + imageNames));
+        }
+    }
+
+    private static ExhibitCatalogWriter.Entry parseRow(String[] cells, Map<String, Integer> columns) {
+        ExhibitCatalogWriter.Entry entry = new ExhibitCatalogWriter.Entry();
+        entry.name = cell(cells, columns, "name");
+        entry.musicName = cell(cells, columns, "music");
+        entry.videoName = cell(cells, columns, "video");
+        if (parseBoolean(cell(cells, columns, "plays_video"), "plays_video")) {
+            entry.flags |= ExhibitCatalog.FLAG_PLAYS_VIDEO;
+        }
+        // Optional, false when the column is missing.
+        if (columns.containsKey("entrance") && parseBoolean(cell(cells, columns, "entrance"), "entrance")) {
+            entry.flags |= ExhibitCatalog.FLAG_ENTRANCE;
+        }
+        entry.position[0] = parseFloat(cells, columns, "position_x");
+        entry.position[1] = parseFloat(cells, columns, "position_y");
+        entry.position[2] = parseFloat(cells, columns, "position_z");
+        entry.rotation[0] = parseFloat(cells, columns, "rotation_axis_x");
+        entry.rotation[1] = parseFloat(cells, columns, "rotation_axis_y");
+        entry.rotation[2] = parseFloat(cells, columns, "rotation_axis_z");
+        entry.rotation[3] = parseFloat(cells, columns, "rotation_angle");
+        // Optional, older sheets have no scale column.
+        if (columns.containsKey("scale") && !cell(cells, columns, "scale").isEmpty()) {
+            entry.scale = parseFloat(cells, columns, "scale");
+            if (!(entry.scale > 0)) {
+                throw new IllegalArgumentException("scale must be positive: " + entry.scale);
+            }
+        }
+        // Optional, left empty until the print has been measured.
+        if (columns.containsKey("width_m") && !cell(cells, columns, "width_m").isEmpty()) {
+            entry.widthMeters = parseFloat(cells, columns, "width_m");
+            if (!(entry.widthMeters > 0)) {
+                throw new IllegalArgumentException("width_m must be positive: " + entry.widthMeters);
+            }
+        }
+        // Optional, names the zone database (zones/<zone>.imgdb) the exhibit is in.
+        if (columns.containsKey("zone") && !cell(cells, columns, "zone").isEmpty()) {
+            entry.zone = cell(cells, columns, "zone");
+            if (!entry.zone.matches("[a-z0-9_]+")) {
+                throw new IllegalArgumentException("zone must be lowercase letters, digits and '_': '"
+                        + entry.zone + "'");
+            }
+        }
+        if (entry.name.isEmpty()) {
+            throw new IllegalArgumentException("empty name");
+        }
+        return entry;
+    }
+
+    private static String cell(String[] cells, Map<String, Integer> columns, String column) {
+        return cells[columns.get(column)].trim();
+    }
+
+    private static float parseFloat(String[] cells, Map<String, Integer> columns, String column) {
+        String value = cell(cells, columns, column);
+        try {
+            return value.isEmpty() ? 0f : Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: '" + value + "'");
+        }
+    }
+
+    private static boolean parseBoolean(String value, String column) {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value) || value.isEmpty()) {
+            return false;
+        }
+        throw new IllegalArgumentException(column + " must be true or false: '" + value + "'");
+    }
+
+    private static void throwIfAny(List<String> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Exhibit catalog is invalid:");
+        for (String error : errors) {
+            message.append("\n  ").append(error);
+        }
+        throw new IllegalArgumentException(message.toString());
+    }
+}
@@ -0,0 +1,130 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes exhibit entries in the ExhibitCatalog format. Used by the build to compile exhibits.csv.
+ */
+public final class ExhibitCatalogWriter {
+
+    // One exhibit as written to the catalog. Only used while building, never on the frame path.
+    public static final class Entry {
+        public String name;
+        public String musicName;
+        public String videoName;
+        public int flags;
+        public final float[] position = new float[3];
+        public final float[] rotation = new float[4];
+        public float scale = ExhibitCatalog.DEFAULT_SCALE;
+        // Physical width of the print in meters, 0 if unknown.
+        public float widthMeters;
+        // Zone of the exhibit, null if none.
+        public String zone;
+
+        // Copies exhibit index out of an existing catalog.
+        public static Entry copyOf(ExhibitCatalog catalog, int index) {
+            Entry entry = new Entry();
+            entry.name = catalog.name(index);
+            entry.musicName = catalog.musicName(index);
+            entry.videoName = catalog.videoName(index);
+            entry.flags = catalog.flags(index);
+            for (int i = 0; i < 3; i++) {
+                entry.position[i] = catalog.position(index, i);
+            }
+            for (int i = 0; i < 4; i++) {
+                entry.rotation[i] = catalog.rotation(index, i);
+            }
+            entry.scale = catalog.scale(index);
+            entry.widthMeters = catalog.physicalWidth(index);
+            entry.zone = catalog.zone(index);
+            return entry;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public ExhibitCatalogWriter add(Entry entry) {
+        if (entry.name == null || entry.name.isEmpty()) {
+            throw new IllegalArgumentException("Exhibit " + entries.size() + " has no name");
+        }
+        entries.add(entry);
+        return this;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeTo(bytes);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        // Strings are deduplicated, most exhibits share a handful of clips.
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+        Map<String, Integer> stringOffsets = new HashMap<>();
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        for (Entry entry : entries) {
+            recordsOut.writeInt(intern(entry.name, stringOffsets, stringsOut));
+            recordsOut.writeInt(intern(entry.musicName, stringOffsets, stringsOut));
+            recordsOut.writeInt(intern(entry.videoName, stringOffsets, stringsOut));
+            recordsOut.writeInt(entry.flags);
+            for (float value : entry.position) {
+                recordsOut.writeFloat(value);
+            }
+            for (float value : entry.rotation) {
+                recordsOut.writeFloat(value);
+            }
+            recordsOut.writeFloat(entry.scale);
+            recordsOut.writeFloat(entry.widthMeters);
+            recordsOut.writeInt(intern(entry.zone, stringOffsets, stringsOut));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(ExhibitCatalog.MAGIC);
+        data.writeInt(ExhibitCatalog.VERSION);
+        data.writeInt(entries.size());
+        data.writeInt(ExhibitCatalog.RECORD_SIZE);
+        data.writeInt(ExhibitCatalog.HEADER_SIZE + records.size());
+        data.writeInt(strings.size());
+        records.writeTo(data);
+        strings.writeTo(data);
+        data.flush();
+    }
+
+    private static int intern(String value, Map<String, Integer> offsets, DataOutputStream strings)
+            throws IOException {
+        if (value == null || value.isEmpty()) {
+            return ExhibitCatalog.NO_STRING;
+        }
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            if (utf8.length > 0xffff) {
+                throw new IllegalArgumentException("String too long for the catalog: " + value);
+            }
+            offset = strings.size();
+            strings.writeShort(utf8.length);
+            strings.write(utf8);
+            offsets.put(value, offset);
+        }
+        return offset;
+    }
+}
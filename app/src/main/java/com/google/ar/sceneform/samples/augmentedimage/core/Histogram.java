@@ -0,0 +1,152 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative long values (usually microseconds) with fixed buckets.
+ *
+ * Buckets are log-linear: every power of two is split into SUB_BUCKETS buckets, so a recorded
+ * value is off by at most 25% and the bucket index is a couple of shifts, no search. record() only
+ * does atomic increments, so it never allocates or blocks and can be called from any thread,
+ * including the frame update thread. Snapshots (percentiles, toJson()) read the counters without
+ * stopping writers, so they can be off by the values recorded meanwhile.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any non-negative long.
+    static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // Records a value. Negative values are recorded as 0.
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    // Records the time since startNanos (from System.nanoTime()) in microseconds.
+    public void recordSinceNanos(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long sum() {
+        return sum.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public long mean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0 to 100), or 0 if nothing was recorded.
+    public long percentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Appends the histogram as a JSON object: count, sum, mean, max, p50, p90, p99 and the
+     * non-empty buckets as [lowerBound, count] pairs.
+     */
+    public void toJson(StringBuilder out) {
+        out.append("{\"count\":").append(count())
+                .append(",\"sum\":").append(sum())
+                .append(",\"mean\":").append(mean())
+                .append(",\"max\":").append(max())
+                .append(",\"p50\":").append(percentile(50))
+                .append(",\"p90\":").append(percentile(90))
+                .append(",\"p99\":").append(percentile(99))
+                .append(",\"buckets\":[");
+        boolean first = true;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = buckets.get(i);
+            if (bucketCount != 0) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append('[').append(bucketLowerBound(i)).append(',').append(bucketCount).append(']');
+            }
+        }
+        out.append("]}");
+    }
+
+    @Override
+    public String toString() {
+        return name + " count=" + count() + " p50=" + percentile(50) + " p99=" + percentile(99)
+                + " max=" + max();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long bucketUpperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? bucketLowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
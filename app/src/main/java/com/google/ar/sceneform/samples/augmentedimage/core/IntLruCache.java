@@ -0,0 +1,223 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.Arrays;
+
+/**
+ * Least-recently-used cache keyed by small non-negative ints (exhibit indices), with a byte budget.
+ *
+ * Keys address the backing arrays directly and the recency list is threaded through int arrays,
+ * so get/put never allocate once the key space has been sized.
+ */
+public final class IntLruCache<V> {
+
+    // Called for every entry pushed out by the budget (not for explicit removes).
+    public interface EvictionListener<V> {
+        void onEvicted(int key, V value);
+    }
+
+    private static final int NONE = -1;
+
+    private Object[] values;
+    private long[] weights;
+    private int[] prev;
+    private int[] next;
+
+    // Most recently used entry is the head, the eviction candidate is the tail.
+    private int head = NONE;
+    private int tail = NONE;
+
+    private final long budgetBytes;
+    private long sizeBytes;
+    private int count;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private EvictionListener<V> evictionListener;
+
+    public IntLruCache(int keyCapacity, long budgetBytes) {
+        if (keyCapacity < 0 || budgetBytes <= 0) {
+            throw new IllegalArgumentException("keyCapacity=" + keyCapacity + " budgetBytes=" + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        values = new Object[keyCapacity];
+        weights = new long[keyCapacity];
+        prev = new int[keyCapacity];
+        next = new int[keyCapacity];
+        Arrays.fill(prev, NONE);
+        Arrays.fill(next, NONE);
+    }
+
+    public synchronized void setEvictionListener(EvictionListener<V> listener) {
+        evictionListener = listener;
+    }
+
+    // Returns the cached value and marks it most recently used, or null on a miss.
+    @SuppressWarnings("unchecked")
+    public synchronized V get(int key) {
+        if (key < 0 || key >= values.length || values[key] == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        moveToHead(key);
+        return (V) values[key];
+    }
+
+    // Same as get() but does not touch the counters or the recency order.
+    @SuppressWarnings("unchecked")
+    public synchronized V peek(int key) {
+        return key >= 0 && key < values.length ? (V) values[key] : null;
+    }
+
+    public synchronized boolean contains(int key) {
+        return key >= 0 && key < values.length && values[key] != null;
+    }
+
+    /**
+     * Inserts or replaces the value for key, then evicts least recently used entries until the
+     * cache fits its budget again. The entry just inserted is never evicted, even if it alone is
+     * larger than the budget.
+     */
+    public synchronized void put(int key, V value, long weightBytes) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        if (key < 0) {
+            throw new IllegalArgumentException("key=" + key);
+        }
+        ensureKeyCapacity(key + 1);
+        if (values[key] != null) {
+            sizeBytes -= weights[key];
+            unlink(key);
+            count--;
+        }
+        values[key] = value;
+        weights[key] = Math.max(0, weightBytes);
+        sizeBytes += weights[key];
+        count++;
+        linkAtHead(key);
+        trimToBudget(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(int key) {
+        if (key < 0 || key >= values.length || values[key] == null) {
+            return null;
+        }
+        V value = (V) values[key];
+        unlink(key);
+        sizeBytes -= weights[key];
+        values[key] = null;
+        weights[key] = 0;
+        count--;
+        return value;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(weights, 0);
+        Arrays.fill(prev, NONE);
+        Arrays.fill(next, NONE);
+        head = NONE;
+        tail = NONE;
+        sizeBytes = 0;
+        count = 0;
+    }
+
+    // Grows the key space, e.g. when exhibits are added at runtime.
+    public synchronized void ensureKeyCapacity(int keyCapacity) {
+        if (keyCapacity <= values.length) {
+            return;
+        }
+        int newCapacity = Math.max(keyCapacity, values.length * 2);
+        int oldCapacity = values.length;
+        values = Arrays.copyOf(values, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        prev = Arrays.copyOf(prev, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        Arrays.fill(prev, oldCapacity, newCapacity, NONE);
+        Arrays.fill(next, oldCapacity, newCapacity, NONE);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IntLruCache{entries=" + count + ", bytes=" + sizeBytes + "/" + budgetBytes
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private void trimToBudget(int keep) {
+        while (sizeBytes > budgetBytes && tail != NONE && tail != keep) {
+            int victim = tail;
+            V value = (V) values[victim];
+            remove(victim);
+            evictionCount++;
+            if (evictionListener != null) {
+                evictionListener.onEvicted(victim, value);
+            }
+        }
+    }
+
+    private void moveToHead(int key) {
+        if (head == key) {
+            return;
+        }
+        unlink(key);
+        linkAtHead(key);
+    }
+
+    private void linkAtHead(int key) {
+        prev[key] = NONE;
+        next[key] = head;
+        if (head != NONE) {
+            prev[head] = key;
+        }
+        head = key;
+        if (tail == NONE) {
+            tail = key;
+        }
+    }
+
+    private void unlink(int key) {
+        int p = prev[key];
+        int n = next[key];
+        if (p != NONE) {
+            next[p] = n;
+        } else if (head == key) {
+            head = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        } else if (tail == key) {
+            tail = p;
+        }
+        prev[key] = NONE;
+        next[key] = NONE;
+    }
+}
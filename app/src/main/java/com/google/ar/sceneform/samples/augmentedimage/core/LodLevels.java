@@ -0,0 +1,47 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+/**
+ * Levels of detail of the exhibit models. Level 0 is the model as made, models/<name>; levels 1
+ * and up are simplified versions, models/<name>_lod1 and so on, generated from the OBJ sources by
+ * the simplifyModels task. A model may lack some levels, when simplifying didn't save enough.
+ *
+ * A model switches to a coarser level once the camera is farther than that level's distance, and
+ * back once it is closer by HYSTERESIS, so a visitor standing near a threshold doesn't make the
+ * model flip between levels. With several models placed at once, each counts as farther away
+ * (see effectiveDistance()), as each takes a smaller share of the screen and of the frame time.
+ */
+public final class LodLevels {
+
+    public static final int COUNT = 3;
+    // Cells along the longest side of the model that the simplifier merges vertices in, per level.
+    public static final int[] GRID_CELLS = {0, 40, 16};
+    // Camera distance in meters from which each level is used.
+    static final float[] DISTANCES = {0f, 1.2f, 2.5f};
+    // Share of a threshold the distance has to pass it by before the level changes.
+    static final float HYSTERESIS = 0.15f;
+
+    private LodLevels() {}
+
+    // Model name of the level, e.g. "beachcroc_lod1".
+    public static String modelName(String name, int level) {
+        return level == 0 ? name : name + "_lod" + level;
+    }
+
+    // Level to use at distanceMeters for a model currently shown at level current.
+    public static int level(float distanceMeters, int current) {
+        int level = Math.max(0, Math.min(current, COUNT - 1));
+        while (level < COUNT - 1 && distanceMeters > DISTANCES[level + 1] * (1 + HYSTERESIS)) {
+            level++;
+        }
+        while (level > 0 && distanceMeters < DISTANCES[level] * (1 - HYSTERESIS)) {
+            level--;
+        }
+        return level;
+    }
+
+    // Distance to pick the level at when placedModels models are in the scene: each of n models on
+    // screen gets about 1/n of it, as if it was sqrt(n) times as far away.
+    public static float effectiveDistance(float distanceMeters, int placedModels) {
+        return placedModels <= 1 ? distanceMeters : distanceMeters * (float) Math.sqrt(placedModels);
+    }
+}
@@ -0,0 +1,108 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named histograms and counters for the whole app.
+ *
+ * Look a metric up once (a field, or when a model or clip is first loaded) and keep the returned
+ * Histogram or AtomicLong: recording into it is lock-free and allocation-free, the lookup isn't.
+ * toJson() writes a snapshot of everything as one line of JSON, see MetricsExporter.
+ *
+ * Names are dotted, ending with the unit, e.g. "frame.update_us" or "renderable.load_us.Bell_Ponds".
+ */
+public final class Metrics {
+
+    private static final Metrics instance = new Metrics();
+
+    // Sorted so snapshots list the metrics in a stable order.
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+    private final Map<String, AtomicLong> counters = new TreeMap<>();
+
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    // Returns the histogram with this name, creating it the first time.
+    public synchronized Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram(name);
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    // Returns the counter with this name, creating it the first time.
+    public synchronized AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counter = new AtomicLong();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    // Clears every histogram and counter, keeping them registered.
+    public synchronized void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+    }
+
+    /**
+     * Appends a snapshot of every metric as a single-line JSON object:
+     * {"time":..., "histograms":{name:{...}}, "counters":{name:value}}.
+     */
+    public synchronized void toJson(StringBuilder out, long timeMillis) {
+        out.append("{\"time\":").append(timeMillis).append(",\"histograms\":{");
+        boolean first = true;
+        for (Histogram histogram : histograms.values()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendString(out, histogram.name());
+            out.append(':');
+            histogram.toJson(out);
+        }
+        out.append("},\"counters\":{");
+        first = true;
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendString(out, entry.getKey());
+            out.append(':').append(entry.getValue().get());
+        }
+        out.append("}}");
+    }
+
+    public String toJson(long timeMillis) {
+        StringBuilder out = new StringBuilder();
+        toJson(out, timeMillis);
+        return out.toString();
+    }
+
+    // Names come from exhibit and clip names, so quote the few characters JSON needs quoted.
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
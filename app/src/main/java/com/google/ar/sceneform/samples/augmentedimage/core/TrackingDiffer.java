@@ -0,0 +1,90 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.Arrays;
+
+/**
+ * Turns the per-frame tracking states of the augmented images into transitions.
+ *
+ * ARCore reports every updated image every frame, mostly with the same state as last frame. The
+ * differ keeps the last state of each exhibit in a byte array indexed by exhibit index and only
+ * calls the listener when a state actually changes, so the media and scene code run once per
+ * transition instead of once per frame. update() does not allocate.
+ */
+public final class TrackingDiffer {
+
+    // Never reported by ARCore: the image hasn't been seen since start (or reset()).
+    public static final int STATE_NONE = 0;
+    // Detected but not tracked yet, or tracking was lost for a while (TrackingState.PAUSED).
+    public static final int STATE_PAUSED = 1;
+    public static final int STATE_TRACKING = 2;
+    public static final int STATE_STOPPED = 3;
+
+    public interface Listener {
+        // Called for every change of state. from is STATE_NONE the first time an image is seen.
+        void onTransition(int exhibitIndex, int from, int to);
+    }
+
+    private final Listener listener;
+    private byte[] states;
+    private int trackingCount;
+    private long transitionCount;
+
+    public TrackingDiffer(int exhibitCount, Listener listener) {
+        this.listener = listener;
+        this.states = new byte[exhibitCount];
+    }
+
+    /**
+     * Records the state ARCore reported for an exhibit this frame, calling the listener if it
+     * differs from the last state. Returns true if there was a transition.
+     */
+    public boolean update(int exhibitIndex, int state) {
+        if (exhibitIndex >= states.length) {
+            states = Arrays.copyOf(states, Math.max(exhibitIndex + 1, states.length * 2));
+        }
+        int from = states[exhibitIndex];
+        if (from == state) {
+            return false;
+        }
+        states[exhibitIndex] = (byte) state;
+        if (from == STATE_TRACKING) {
+            trackingCount--;
+        } else if (state == STATE_TRACKING) {
+            trackingCount++;
+        }
+        transitionCount++;
+        listener.onTransition(exhibitIndex, from, state);
+        return true;
+    }
+
+    public int state(int exhibitIndex) {
+        return exhibitIndex < states.length ? states[exhibitIndex] : STATE_NONE;
+    }
+
+    // Number of exhibits currently TRACKING.
+    public int trackingCount() {
+        return trackingCount;
+    }
+
+    public long transitionCount() {
+        return transitionCount;
+    }
+
+    // Forgets the state of one exhibit without calling the listener, so the next update() reports it
+    // as newly seen (e.g. after its node was dropped while it was still tracked).
+    public void forget(int exhibitIndex) {
+        if (exhibitIndex >= states.length) {
+            return;
+        }
+        if (states[exhibitIndex] == STATE_TRACKING) {
+            trackingCount--;
+        }
+        states[exhibitIndex] = STATE_NONE;
+    }
+
+    // Forgets every state without calling the listener, e.g. when the image database changes.
+    public void reset() {
+        Arrays.fill(states, (byte) STATE_NONE);
+        trackingCount = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+/**
+ * Placement of every exhibit's model, computed once from the catalog into packed float arrays.
+ *
+ * The catalog stores the rotation as an axis (any float direction) and an angle in degrees, which is
+ * what is convenient to tune in exhibits.csv. The quaternion is computed here once per exhibit, with
+ * the same math as Sceneform's Quaternion.axisAngle(), so placing a node is only copying floats.
+ * A zero axis means no rotation.
+ */
+public final class TransformTable {
+
+    private final int count;
+    // x, y, z per exhibit.
+    private final float[] positions;
+    // x, y, z, w per exhibit, normalized.
+    private final float[] rotations;
+    private final float[] scales;
+
+    private TransformTable(int count) {
+        this.count = count;
+        positions = new float[count * 3];
+        rotations = new float[count * 4];
+        scales = new float[count];
+    }
+
+    public static TransformTable from(ExhibitCatalog catalog) {
+        TransformTable table = new TransformTable(catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            for (int c = 0; c < 3; c++) {
+                table.positions[i * 3 + c] = catalog.position(i, c);
+            }
+            axisAngle(catalog.rotation(i, 0), catalog.rotation(i, 1), catalog.rotation(i, 2),
+                    catalog.rotation(i, 3), table.rotations, i * 4);
+            table.scales[i] = catalog.scale(i);
+        }
+        return table;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public float positionX(int index) {
+        return positions[index * 3];
+    }
+
+    public float positionY(int index) {
+        return positions[index * 3 + 1];
+    }
+
+    public float positionZ(int index) {
+        return positions[index * 3 + 2];
+    }
+
+    public float rotationX(int index) {
+        return rotations[index * 4];
+    }
+
+    public float rotationY(int index) {
+        return rotations[index * 4 + 1];
+    }
+
+    public float rotationZ(int index) {
+        return rotations[index * 4 + 2];
+    }
+
+    public float rotationW(int index) {
+        return rotations[index * 4 + 3];
+    }
+
+    public float scale(int index) {
+        return scales[index];
+    }
+
+    // Writes the unit quaternion rotating by degrees around (x, y, z) into out at offset.
+    static void axisAngle(float x, float y, float z, float degrees, float[] out, int offset) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            out[offset] = 0;
+            out[offset + 1] = 0;
+            out[offset + 2] = 0;
+            out[offset + 3] = 1;
+            return;
+        }
+        double halfAngle = Math.toRadians(degrees) / 2;
+        float sin = (float) Math.sin(halfAngle) / length;
+        out[offset] = x * sin;
+        out[offset + 1] = y * sin;
+        out[offset + 2] = z * sin;
+        out[offset + 3] = (float) Math.cos(halfAngle);
+    }
+}
@@ -0,0 +1,83 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Resolution variants of the exhibit videos. Next to a clip such as raw/beachcroc, content/raw may
+ * hold pre-encoded variants raw/beachcroc_360p, raw/beachcroc_480p and raw/beachcroc_720p (see the
+ * encodeVideoVariants task), and a device plays the tallest variant it can decode smoothly.
+ *
+ * Heights are the limits of what a device plays: one limited to 480 plays the 480p variant, or the
+ * 360p one if the clip has no 480p variant. A device handling ORIGINAL_HEIGHT plays the original
+ * clips, as does any device for a clip without a variant small enough.
+ */
+public final class VideoVariants {
+
+    // Heights variants are encoded at, ascending.
+    public static final int[] HEIGHTS = {360, 480, 720};
+    // The gallery clips are at most 1080p.
+    public static final int ORIGINAL_HEIGHT = 1080;
+    // Variants are 16:9, like the gallery clips.
+    private static final int ASPECT_WIDTH = 16;
+    private static final int ASPECT_HEIGHT = 9;
+
+    private VideoVariants() {}
+
+    // Key of the variant of clipKey (e.g. "raw/beachcroc") at height.
+    public static String key(String clipKey, int height) {
+        return clipKey + "_" + height + "p";
+    }
+
+    // Width of a 16:9 video of this height, rounded up to even as encoders want.
+    public static int width(int height) {
+        int width = (height * ASPECT_WIDTH + ASPECT_HEIGHT - 1) / ASPECT_HEIGHT;
+        return width + (width & 1);
+    }
+
+    // Lowest height whose video is at least as wide as the screen's short side: the video quad never
+    // covers more than the width of the screen, so taller variants only add decode work.
+    public static int displayMaxHeight(int displayWidth, int displayHeight) {
+        int shortSide = Math.min(displayWidth, displayHeight);
+        for (int height : HEIGHTS) {
+            if (width(height) >= shortSide) {
+                return height;
+            }
+        }
+        return ORIGINAL_HEIGHT;
+    }
+
+    // Whether a device limited to maxHeight plays the original clips.
+    public static boolean playsOriginal(int maxHeight) {
+        return maxHeight >= ORIGINAL_HEIGHT;
+    }
+
+    // Next limit to try below maxHeight, or 0 if there is none.
+    public static int lower(int maxHeight) {
+        for (int i = HEIGHTS.length - 1; i >= 0; i--) {
+            if (HEIGHTS[i] < Math.min(maxHeight, ORIGINAL_HEIGHT)) {
+                return HEIGHTS[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Id of the clip to play for clipKey (whose own id is clipId) on a device limited to maxHeight:
+     * the tallest variant at or below it, or the clip itself. ids maps a key to its id, 0 if there
+     * is no such file.
+     */
+    public static int select(String clipKey, int clipId, int maxHeight, ToIntFunction<String> ids) {
+        if (playsOriginal(maxHeight)) {
+            return clipId;
+        }
+        for (int i = HEIGHTS.length - 1; i >= 0; i--) {
+            if (HEIGHTS[i] <= maxHeight) {
+                int id = ids.applyAsInt(key(clipKey, HEIGHTS[i]));
+                if (id != 0) {
+                    return id;
+                }
+            }
+        }
+        return clipId;
+    }
+}
@@ -0,0 +1,104 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The zones of the catalog and the exhibits in each, as int arrays.
+ *
+ * The database of a zone holds only its exhibits, in catalog order, so image j of that database is
+ * exhibit members(zone)[j]. The same goes for the entrance database and entrance(). The full
+ * database holds every exhibit, in catalog order.
+ */
+public final class ZoneMap {
+
+    // Zone index of exhibits without a zone, and of the full database.
+    public static final int NO_ZONE = -1;
+
+    private final String[] names;
+    private final int[] zoneOf;
+    private final int[][] members;
+    private final int[] entrance;
+
+    private ZoneMap(String[] names, int[] zoneOf, int[][] members, int[] entrance) {
+        this.names = names;
+        this.zoneOf = zoneOf;
+        this.members = members;
+        this.entrance = entrance;
+    }
+
+    public static ZoneMap from(ExhibitCatalog catalog) {
+        List<String> names = ExhibitCatalogCompiler.zones(catalog);
+        int[] zoneOf = new int[catalog.size()];
+        int[] counts = new int[names.size()];
+        int entranceCount = 0;
+        for (int i = 0; i < catalog.size(); i++) {
+            if (catalog.isEntrance(i)) {
+                entranceCount++;
+            }
+            String zone = catalog.zone(i);
+            zoneOf[i] = zone == null ? NO_ZONE : names.indexOf(zone);
+            if (zoneOf[i] != NO_ZONE) {
+                counts[zoneOf[i]]++;
+            }
+        }
+        int[][] members = new int[names.size()][];
+        for (int z = 0; z < members.length; z++) {
+            members[z] = new int[counts[z]];
+            counts[z] = 0;
+        }
+        int[] entrance = new int[entranceCount];
+        entranceCount = 0;
+        for (int i = 0; i < zoneOf.length; i++) {
+            if (zoneOf[i] != NO_ZONE) {
+                members[zoneOf[i]][counts[zoneOf[i]]++] = i;
+            }
+            if (catalog.isEntrance(i)) {
+                entrance[entranceCount++] = i;
+            }
+        }
+        return new ZoneMap(names.toArray(new String[0]), zoneOf, members, entrance);
+    }
+
+    public int zoneCount() {
+        return names.length;
+    }
+
+    public String name(int zone) {
+        return names[zone];
+    }
+
+    // Index of the named zone, or NO_ZONE.
+    public int indexOf(String name) {
+        for (int z = 0; z < names.length; z++) {
+            if (names[z].equals(name)) {
+                return z;
+            }
+        }
+        return NO_ZONE;
+    }
+
+    // Zone of the exhibit, or NO_ZONE.
+    public int zoneOf(int exhibitIndex) {
+        return zoneOf[exhibitIndex];
+    }
+
+    // Exhibits of the zone in database order. Not a copy, don't modify it.
+    public int[] members(int zone) {
+        return members[zone];
+    }
+
+    // Exhibits of the entrance database in database order. Not a copy, don't modify it.
+    public int[] entrance() {
+        return entrance;
+    }
+
+    // Names of all zones, for logging.
+    public List<String> names() {
+        List<String> list = new ArrayList<>(names.length);
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,155 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+/**
+ * Decides which image database the session should use, from the zones of the tracked exhibits.
+ *
+ * The session starts on the full database (ZoneMap.NO_ZONE). Once the exhibits tracked in
+ * enterFrames frames over at least enterMillis all belong to one zone, and no other zone (nor an
+ * exhibit without a zone, which only the full database has) showed up in between, the selector
+ * asks for that zone's database. In a zone only its exhibits can be
+ * detected, so when none has been tracked for leaveMillis it asks for the full database again, to
+ * find out where the visitor went. Switches are at least minStayMillis apart, so a visitor standing
+ * in a doorway doesn't make it flap.
+ *
+ * Call seen() for every tracked exhibit of a frame, then endFrame(). When endFrame() returns true,
+ * switch to target() and report the result with switched() or switchFailed(). Doesn't allocate.
+ */
+public final class ZoneSelector {
+
+    private final int enterFrames;
+    private final long enterMillis;
+    private final long leaveMillis;
+    private final long minStayMillis;
+
+    private int current = ZoneMap.NO_ZONE;
+    private int target = ZoneMap.NO_ZONE;
+    private boolean pending;
+    private long switchedAtMillis = Long.MIN_VALUE / 2;
+    private long currentSeenMillis;
+    private int switchCount;
+
+    private int candidate = ZoneMap.NO_ZONE;
+    private int candidateFrames;
+    private long candidateSinceMillis;
+    private long candidateSeenMillis;
+
+    // Zone seen this frame, and whether another zone, or an exhibit without one, was seen too.
+    private int frameZone = ZoneMap.NO_ZONE;
+    private boolean frameMixed;
+
+    public ZoneSelector(int enterFrames, long enterMillis, long leaveMillis, long minStayMillis) {
+        this.enterFrames = enterFrames;
+        this.enterMillis = enterMillis;
+        this.leaveMillis = leaveMillis;
+        this.minStayMillis = minStayMillis;
+    }
+
+    // An exhibit of zone (NO_ZONE if it has none) is tracked this frame. An exhibit without a zone
+    // keeps the session on the full database, as no zone database could detect it.
+    public void seen(int zone) {
+        if (zone == ZoneMap.NO_ZONE) {
+            frameMixed = true;
+        } else if (frameZone == ZoneMap.NO_ZONE) {
+            frameZone = zone;
+        } else if (frameZone != zone) {
+            frameMixed = true;
+        }
+    }
+
+    // Returns true when the session should switch to target().
+    public boolean endFrame(long nowMillis) {
+        int zone = frameMixed ? ZoneMap.NO_ZONE : frameZone;
+        boolean mixed = frameMixed;
+        frameZone = ZoneMap.NO_ZONE;
+        frameMixed = false;
+        if (pending) {
+            return false;
+        }
+
+        if (current != ZoneMap.NO_ZONE) {
+            if (zone == current) {
+                currentSeenMillis = nowMillis;
+            }
+            if (nowMillis - currentSeenMillis >= leaveMillis && canSwitch(nowMillis)) {
+                return request(ZoneMap.NO_ZONE);
+            }
+            return false;
+        }
+
+        if (mixed) {
+            candidate = ZoneMap.NO_ZONE;
+        } else if (zone != ZoneMap.NO_ZONE) {
+            if (zone != candidate) {
+                candidate = zone;
+                candidateFrames = 0;
+                candidateSinceMillis = nowMillis;
+            }
+            candidateFrames++;
+            candidateSeenMillis = nowMillis;
+        } else if (candidate != ZoneMap.NO_ZONE && nowMillis - candidateSeenMillis > enterMillis) {
+            // The candidate's exhibits went out of view before it was settled.
+            candidate = ZoneMap.NO_ZONE;
+        }
+        if (candidate != ZoneMap.NO_ZONE && candidateFrames >= enterFrames
+                && nowMillis - candidateSinceMillis >= enterMillis && canSwitch(nowMillis)) {
+            return request(candidate);
+        }
+        return false;
+    }
+
+    // The session now uses the database of zone (NO_ZONE for the full database).
+    public void switched(int zone, long nowMillis) {
+        current = zone;
+        pending = false;
+        switchedAtMillis = nowMillis;
+        currentSeenMillis = nowMillis;
+        candidate = ZoneMap.NO_ZONE;
+        switchCount++;
+    }
+
+    // The requested switch didn't happen, the session still uses current().
+    public void switchFailed(long nowMillis) {
+        pending = false;
+        // Wait as if it had switched, instead of retrying every frame.
+        switchedAtMillis = nowMillis;
+        currentSeenMillis = nowMillis;
+        candidate = ZoneMap.NO_ZONE;
+    }
+
+    public int current() {
+        return current;
+    }
+
+    public int target() {
+        return target;
+    }
+
+    public boolean isSwitching() {
+        return pending;
+    }
+
+    public int switchCount() {
+        return switchCount;
+    }
+
+    public void reset() {
+        current = ZoneMap.NO_ZONE;
+        target = ZoneMap.NO_ZONE;
+        pending = false;
+        switchedAtMillis = Long.MIN_VALUE / 2;
+        candidate = ZoneMap.NO_ZONE;
+        frameZone = ZoneMap.NO_ZONE;
+        frameMixed = false;
+        switchCount = 0;
+    }
+
+    private boolean canSwitch(long nowMillis) {
+        return nowMillis - switchedAtMillis >= minStayMillis;
+    }
+
+    private boolean request(int zone) {
+        target = zone;
+        pending = true;
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.google.ar.sceneform.samples.augmentedimage.benchmarks;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.Histogram;
+import com.google.ar.sceneform.samples.augmentedimage.core.IntLruCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The model/intro caches (IntLruCache, as used by RenderableRegistry and AudioIntroCache) and
+ * metric recording, which both sit on the frame path.
+ */
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+    private static final int EXHIBITS = 76;
+    private static final long MODEL_BYTES = 1024 * 1024;
+
+    // Every model fits: lookups are hits.
+    private IntLruCache<Object> warmCache;
+    // Room for a quarter of the models: every put evicts.
+    private IntLruCache<Object> smallCache;
+    private Histogram histogram;
+    private final Object model = new Object();
+    private int key;
+
+    @Setup
+    public void setUp() {
+        warmCache = new IntLruCache<>(EXHIBITS, EXHIBITS * MODEL_BYTES);
+        smallCache = new IntLruCache<>(EXHIBITS, EXHIBITS / 4 * MODEL_BYTES);
+        for (int i = 0; i < EXHIBITS; i++) {
+            warmCache.put(i, model, MODEL_BYTES);
+            smallCache.put(i, model, MODEL_BYTES);
+        }
+        histogram = new Histogram("benchmark_us");
+    }
+
+    private int nextKey() {
+        key = key + 1 == EXHIBITS ? 0 : key + 1;
+        return key;
+    }
+
+    @Benchmark
+    public Object lruHit() {
+        return warmCache.get(nextKey());
+    }
+
+    @Benchmark
+    public void lruPutEvicting() {
+        smallCache.put(nextKey(), model, MODEL_BYTES);
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(nextKey() * 137);
+    }
+}
@@ -0,0 +1,57 @@
+package com.google.ar.sceneform.samples.augmentedimage.benchmarks;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Exhibit lookups by database index, as done for every detected image (Exhibits, AugmentedImageNode).
+ */
+@State(Scope.Thread)
+public class ExhibitCatalogBenchmark {
+
+    private ExhibitCatalog catalog;
+    private int index;
+    private String lastName;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = ExhibitFixture.loadCatalog();
+        lastName = catalog.name(catalog.size() - 1) + ".jpg";
+    }
+
+    // Walks through the exhibits so the lookups don't all hit the same cache line.
+    private int nextIndex() {
+        index = index + 1 == catalog.size() ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public boolean playsVideo() {
+        return catalog.playsVideo(nextIndex());
+    }
+
+    // The placement of a model: three position floats and the rotation axis and angle.
+    @Benchmark
+    public float placement() {
+        int i = nextIndex();
+        return catalog.position(i, 0) + catalog.position(i, 1) + catalog.position(i, 2)
+                + catalog.rotation(i, 0) + catalog.rotation(i, 1) + catalog.rotation(i, 2)
+                + catalog.rotation(i, 3);
+    }
+
+    // Decodes the name from the string table, as done to build the model path.
+    @Benchmark
+    public String name() {
+        return catalog.name(nextIndex());
+    }
+
+    // Worst case of the linear search by image file name.
+    @Benchmark
+    public int indexOfLast() {
+        return catalog.indexOf(lastName);
+    }
+}
@@ -0,0 +1,32 @@
+package com.google.ar.sceneform.samples.augmentedimage.benchmarks;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogCompiler;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Loads the real exhibit catalog (app/exhibits/exhibits.csv) the way the app sees it: compiled to
+ * the binary format and read back from a direct buffer, like the memory-mapped asset.
+ */
+final class ExhibitFixture {
+
+    private ExhibitFixture() {
+    }
+
+    static ExhibitCatalog loadCatalog() throws IOException {
+        File csv = new File(System.getProperty("exhibits.csv", "../app/exhibits/exhibits.csv"));
+        byte[] bytes;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(csv.toPath()), StandardCharsets.UTF_8)) {
+            bytes = ExhibitCatalogCompiler.parse(reader, csv.getName()).toByteArray();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return ExhibitCatalog.read(buffer);
+    }
+}
@@ -0,0 +1,79 @@
+package com.google.ar.sceneform.samples.augmentedimage.benchmarks;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ActivationStateMachine;
+import com.google.ar.sceneform.samples.augmentedimage.core.TrackingDiffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-frame work of AugmentedImageActivity.onUpdateFrame: diffing the tracking state of every
+ * updated image, and offering the tracked ones to the activation state machine.
+ */
+@State(Scope.Thread)
+public class TrackingBenchmark {
+
+    private static final int EXHIBITS = 76;
+    // Images ARCore typically reports per frame in a busy room.
+    private static final int VISIBLE = 4;
+
+    private TrackingDiffer differ;
+    private ActivationStateMachine activation;
+    private long frame;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        differ = new TrackingDiffer(EXHIBITS, (exhibitIndex, from, to) -> blackhole.consume(to));
+        activation = new ActivationStateMachine(EXHIBITS, 10, 300, 3000, 0.1f,
+                new ActivationStateMachine.Listener() {
+                    @Override
+                    public void onActivated(int exhibitIndex) {
+                        blackhole.consume(exhibitIndex);
+                    }
+
+                    @Override
+                    public void onDeactivated(int exhibitIndex) {
+                        blackhole.consume(exhibitIndex);
+                    }
+                });
+        for (int i = 0; i < VISIBLE; i++) {
+            differ.update(i, TrackingDiffer.STATE_TRACKING);
+        }
+    }
+
+    // The common frame: every visible image reports the same state as last frame.
+    @Benchmark
+    public int diffSteadyFrame() {
+        for (int i = 0; i < VISIBLE; i++) {
+            differ.update(i, TrackingDiffer.STATE_TRACKING);
+        }
+        return differ.trackingCount();
+    }
+
+    // A frame where one image flips between PAUSED and TRACKING, calling the listener.
+    @Benchmark
+    public int diffTransitionFrame() {
+        int state = (frame++ & 1) == 0 ? TrackingDiffer.STATE_PAUSED : TrackingDiffer.STATE_TRACKING;
+        differ.update(0, state);
+        for (int i = 1; i < VISIBLE; i++) {
+            differ.update(i, TrackingDiffer.STATE_TRACKING);
+        }
+        return differ.trackingCount();
+    }
+
+    // Two images at about the same distance, the case the hysteresis is there for.
+    @Benchmark
+    public int activationFrame() {
+        long now = frame++ * 16;
+        float jitter = (frame & 1) == 0 ? 0.05f : -0.05f;
+        activation.offer(0, -1f + jitter);
+        activation.offer(1, -1f - jitter);
+        for (int i = 2; i < VISIBLE; i++) {
+            activation.offer(i, -4f);
+        }
+        activation.endFrame(now);
+        return activation.active();
+    }
+}
@@ -0,0 +1,123 @@
+package com.google.ar.sceneform.samples.augmentedimage.benchmarks;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.TransformTable;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The transform math of AugmentedImageNode.setImage() and createVideo(): a Vector3 for the
+ * position, Quaternion.axisAngle() from the catalog rotation and Quaternion.multiply() with the
+ * node rotation, once per model and four times per video frame.
+ *
+ * Sceneform's math classes ship in an Android library, so Vec3 and Quat below repeat what
+ * com.google.ar.sceneform.math.Vector3/Quaternion do (including the allocations). The *FromTable
+ * benchmarks are the same placements read from the precomputed TransformTable, as the app does now.
+ */
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private ExhibitCatalog catalog;
+    private TransformTable transforms;
+    private final Vec3 scratchVector = new Vec3(0, 0, 0);
+    private final Quat scratchRotation = new Quat(0, 0, 0, 1);
+    private int index;
+    private final Vec3 nodeWorldPosition = new Vec3(0.1f, -0.2f, -1.0f);
+    private final Quat nodeRotation = new Quat(0, 0, 0, 1);
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = ExhibitFixture.loadCatalog();
+        transforms = TransformTable.from(catalog);
+    }
+
+    private int nextIndex() {
+        index = index + 1 == catalog.size() ? 0 : index + 1;
+        return index;
+    }
+
+    // setImage(): world position of the model and its rotation.
+    @Benchmark
+    public void setImageTransform(Blackhole blackhole) {
+        int i = nextIndex();
+        Vec3 position = new Vec3(
+                nodeWorldPosition.x + catalog.position(i, 0),
+                nodeWorldPosition.y + catalog.position(i, 1),
+                nodeWorldPosition.z + catalog.position(i, 2));
+        Quat rotation = Quat.axisAngle(
+                new Vec3(catalog.rotation(i, 0), catalog.rotation(i, 1), catalog.rotation(i, 2)),
+                catalog.rotation(i, 3));
+        blackhole.consume(position);
+        blackhole.consume(Quat.multiply(nodeRotation, rotation));
+    }
+
+    // createVideo(): the four frame corners, each with its own axisAngle()/multiply().
+    @Benchmark
+    public Quat createVideoTransforms() {
+        int i = nextIndex();
+        Quat result = null;
+        for (int corner = 0; corner < 4; corner++) {
+            Quat rotation = Quat.axisAngle(
+                    new Vec3(catalog.rotation(i, 0), catalog.rotation(i, 1), catalog.rotation(i, 2)),
+                    catalog.rotation(i, 3));
+            result = Quat.multiply(nodeRotation, rotation);
+        }
+        return result;
+    }
+
+    public static final class Vec3 {
+        float x;
+        float y;
+        float z;
+
+        Vec3(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        Vec3 normalized() {
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            return length == 0 ? new Vec3(0, 0, 0) : new Vec3(x / length, y / length, z / length);
+        }
+    }
+
+    public static final class Quat {
+        float x;
+        float y;
+        float z;
+        float w;
+
+        Quat(float x, float y, float z, float w) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.w = w;
+        }
+
+        static Quat axisAngle(Vec3 axis, float degrees) {
+            Vec3 normalized = axis.normalized();
+            double halfAngle = Math.toRadians(degrees) / 2;
+            float sin = (float) Math.sin(halfAngle);
+            return new Quat(normalized.x * sin, normalized.y * sin, normalized.z * sin,
+                    (float) Math.cos(halfAngle)).normalized();
+        }
+
+        static Quat multiply(Quat lhs, Quat rhs) {
+            return new Quat(
+                    lhs.w * rhs.x + lhs.x * rhs.w + lhs.y * rhs.z - lhs.z * rhs.y,
+                    lhs.w * rhs.y - lhs.x * rhs.z + lhs.y * rhs.w + lhs.z * rhs.x,
+                    lhs.w * rhs.z + lhs.x * rhs.y - lhs.y * rhs.x + lhs.z * rhs.w,
+                    lhs.w * rhs.w - lhs.x * rhs.x - lhs.y * rhs.y - lhs.z * rhs.z);
+        }
+
+        Quat normalized() {
+            float length = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+            return new Quat(x / length, y / length, z / length, w / length);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.google.ar.sceneform.samples.augmentedimage.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+/**
+ * Checks that the per-frame work of AugmentedImageActivity.onUpdateFrame (TrackingDiffer.update(),
+ * ActivationStateMachine.offer() and endFrame()) allocates nothing once the frames repeat.
+ */
+public class FrameAllocationTest {
+
+    private static final int EXHIBITS = 76;
+    // Images ARCore typically reports per frame in a busy room.
+    private static final int VISIBLE = 4;
+    // Enough frames for the JIT to compile the loop, so only the steady state is measured.
+    private static final int WARMUP_FRAMES = 50_000;
+    private static final int MEASURED_FRAMES = 10_000;
+
+    private long frame;
+    private long transitions;
+    private long activations;
+
+    @Test
+    public void steadyStateFrameAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        TrackingDiffer differ = new TrackingDiffer(EXHIBITS, (exhibitIndex, from, to) -> transitions++);
+        ActivationStateMachine activation = new ActivationStateMachine(EXHIBITS, 10, 300, 3000, 0.1f,
+                new ActivationStateMachine.Listener() {
+                    @Override
+                    public void onActivated(int exhibitIndex) {
+                        activations++;
+                    }
+
+                    @Override
+                    public void onDeactivated(int exhibitIndex) {
+                    }
+                });
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            runFrame(differ, activation);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        // The first call may set up the counter; only the frames are measured below.
+        threads.getThreadAllocatedBytes(threadId);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            runFrame(differ, activation);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("bytes allocated over " + MEASURED_FRAMES + " frames", 0, allocated);
+        // The closest image took over once and kept the audio/video.
+        assertEquals(1, activations);
+        assertEquals(VISIBLE, transitions);
+    }
+
+    // Every visible image tracked as last frame, the two closest at about the same distance.
+    private void runFrame(TrackingDiffer differ, ActivationStateMachine activation) {
+        long nowMillis = frame++ * 16;
+        float jitter = (frame & 1) == 0 ? 0.05f : -0.05f;
+        for (int i = 0; i < VISIBLE; i++) {
+            differ.update(i, TrackingDiffer.STATE_TRACKING);
+        }
+        activation.offer(0, -1f + jitter);
+        activation.offer(1, -1f - jitter);
+        for (int i = 2; i < VISIBLE; i++) {
+            activation.offer(i, -4f);
+        }
+        activation.endFrame(nowMillis);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threads : null;
+    }
+}
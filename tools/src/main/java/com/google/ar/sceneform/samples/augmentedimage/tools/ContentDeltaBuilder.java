@@ -0,0 +1,138 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentCache;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentDelta;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Makes a new version of the content from a content directory and the versions devices may still
+ * have, so they only download what changed:
+ *
+ *   ContentDeltaBuilder <newContentDir> <oldContentDir>...
+ *
+ * Every file of the new version whose counterpart (same key) in an old version differs gets a
+ * ContentDelta in newContentDir/patches/, unless the patch would save too little to be worth it.
+ * newContentDir/manifest.txt is written with the files, the patches and a version one above the
+ * newest old version. Old directories without a manifest count as version 1.
+ */
+public final class ContentDeltaBuilder {
+
+    // A patch is only kept if it is at most this share of the file it produces.
+    static final double MAX_PATCH_RATIO = 0.6;
+
+    private ContentDeltaBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ContentDeltaBuilder <newContentDir> <oldContentDir>...");
+            System.exit(2);
+        }
+        File newDir = new File(args[0]);
+        List<ContentManifest.Entry> entries = ContentDirectory.scan(newDir);
+        File patchDir = new File(newDir, ContentDirectory.PATCH_DIR);
+        deleteRecursively(patchDir);
+        if (!patchDir.mkdirs()) {
+            throw new IOException("Unable to create " + patchDir);
+        }
+
+        int version = 0;
+        List<ContentManifest.Patch> patches = new ArrayList<>();
+        // from-to pairs already patched, when several old versions share a file.
+        Set<String> made = new HashSet<>();
+        for (int i = 1; i < args.length; i++) {
+            File oldDir = new File(args[i]);
+            ContentManifest old = ContentDirectory.manifest(oldDir);
+            version = Math.max(version, old.version());
+            long changedBytes = 0;
+            long patchBytes = 0;
+            int changed = 0;
+            for (ContentManifest.Entry entry : entries) {
+                ContentManifest.Entry before = old.get(ContentManifest.key(entry.path));
+                if (before == null || before.sha256.equals(entry.sha256)) {
+                    continue;
+                }
+                changed++;
+                changedBytes += entry.size;
+                ContentManifest.Patch patch = findPatch(patches, before.sha256, entry.sha256);
+                if (patch == null && made.add(before.sha256 + entry.sha256)) {
+                    patch = makePatch(new File(oldDir, before.path), new File(newDir, entry.path), before, entry,
+                            patchDir);
+                    if (patch != null) {
+                        patches.add(patch);
+                    }
+                }
+                if (patch == null) {
+                    patchBytes += entry.size;
+                    System.out.printf(Locale.ROOT, "  %-48s %10d bytes, no useful patch%n", entry.path, entry.size);
+                } else {
+                    patchBytes += patch.file.size;
+                    System.out.printf(Locale.ROOT, "  %-48s %10d bytes, patch %d bytes (%.1f%%)%n", entry.path,
+                            entry.size, patch.file.size, 100.0 * patch.file.size / Math.max(1, entry.size));
+                }
+            }
+            System.out.printf(Locale.ROOT, "From version %d (%s): %d files changed, %d bytes to download"
+                    + " instead of %d%n", old.version(), oldDir, changed, patchBytes, changedBytes);
+        }
+
+        ContentManifest manifest = new ContentManifest(version + 1, entries, patches);
+        File manifestFile = new File(newDir, ContentManifest.FILE_NAME);
+        try (Writer out = Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write("# Exhibit content version " + manifest.version() + ", made by ContentDeltaBuilder\n");
+            manifest.writeTo(out);
+        }
+        System.out.println("Wrote " + manifestFile + ": version " + manifest.version() + ", "
+                + entries.size() + " files, " + patches.size() + " patches");
+    }
+
+    // Writes the patch from before to entry into patchDir, or returns null if it isn't worth it.
+    private static ContentManifest.Patch makePatch(File oldFile, File newFile, ContentManifest.Entry before,
+                                                   ContentManifest.Entry entry, File patchDir) throws IOException {
+        if (!oldFile.isFile()) {
+            return null;
+        }
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        ContentDelta.create(Files.readAllBytes(oldFile.toPath()), Files.readAllBytes(newFile.toPath()), delta);
+        if (delta.size() > entry.size * MAX_PATCH_RATIO) {
+            return null;
+        }
+        String name = before.sha256 + "-" + entry.sha256 + ".delta";
+        File patchFile = new File(patchDir, name);
+        Files.write(patchFile.toPath(), delta.toByteArray());
+        ContentManifest.Entry file = new ContentManifest.Entry(
+                ContentDirectory.PATCH_DIR + "/" + name, ContentCache.sha256(patchFile), patchFile.length());
+        return new ContentManifest.Patch(before.sha256, entry.sha256, file);
+    }
+
+    private static ContentManifest.Patch findPatch(List<ContentManifest.Patch> patches, String from, String to) {
+        for (ContentManifest.Patch patch : patches) {
+            if (patch.fromSha256.equals(from) && patch.toSha256.equals(to)) {
+                return patch;
+            }
+        }
+        return null;
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentCache;
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A directory laid out like the content server: raw/..., models/..., optionally patches/... and the
+ * manifest.txt describing them.
+ */
+final class ContentDirectory {
+
+    static final String PATCH_DIR = "patches";
+
+    private ContentDirectory() {
+    }
+
+    // root's manifest.txt, or a manifest of every file under root (version 1) if there is none.
+    static ContentManifest manifest(File root) throws IOException {
+        File file = new File(root, ContentManifest.FILE_NAME);
+        if (!file.isFile()) {
+            return new ContentManifest(1, scan(root));
+        }
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return ContentManifest.parse(in);
+        }
+    }
+
+    // Every content file under root, hashed, paths relative to root. The manifest and patches aren't.
+    static List<ContentManifest.Entry> scan(File root) throws IOException {
+        List<ContentManifest.Entry> entries = new ArrayList<>();
+        addEntries(root, "", entries);
+        return entries;
+    }
+
+    private static void addEntries(File dir, String prefix, List<ContentManifest.Entry> entries) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String path = prefix + file.getName();
+            if (file.getName().startsWith(".")
+                    || path.equals(ContentManifest.FILE_NAME) || path.equals(PATCH_DIR)) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                addEntries(file, path + "/", entries);
+            } else {
+                entries.add(new ContentManifest.Entry(path, ContentCache.sha256(file), file.length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the exhibit content server, serving a directory laid out like the content
+ * (raw/..., models/...) over plain HTTP, e.g. for a phone on the same network:
+ *
+ *   ContentServer <contentDir> [port]
+ *
+ * Serves contentDir/manifest.txt if there is one (see ContentDeltaBuilder), otherwise a manifest
+ * of every file under contentDir (version 1), hashed at startup. Single byte ranges are answered with 206, which is all
+ * ContentDownloader asks for; anything else gets the whole file.
+ */
+public final class ContentServer {
+
+    static final int DEFAULT_PORT = 8642;
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final File root;
+    private final byte[] manifest;
+    private final HttpServer server;
+
+    private ContentServer(File root, int port) throws IOException {
+        this.root = root.getCanonicalFile();
+        StringWriter manifestText = new StringWriter();
+        ContentDirectory.manifest(root).writeTo(manifestText);
+        this.manifest = manifestText.toString().getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    // Starts serving root on port (0 for any free port).
+    public static ContentServer start(File root, int port) throws IOException {
+        ContentServer contentServer = new ContentServer(root, port);
+        contentServer.server.start();
+        return contentServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ContentServer <contentDir> [port]");
+            System.exit(2);
+        }
+        File root = new File(args[0]);
+        if (!root.isDirectory()) {
+            throw new IOException("Not a directory: " + root);
+        }
+        ContentServer contentServer = start(root, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+        System.out.println("Serving " + root + " on port " + contentServer.port()
+                + " (build the app with -PcontentBaseUrl=http://<this machine>:" + contentServer.port() + "/)");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                send(exchange, 405, "text/plain", new byte[0]);
+                return;
+            }
+            String path = URI.create(exchange.getRequestURI().getRawPath()).getPath();
+            if (path.equals("/" + ContentManifest.FILE_NAME)) {
+                send(exchange, 200, "text/plain; charset=utf-8", manifest);
+                return;
+            }
+            File file = new File(root, path).getCanonicalFile();
+            if (!file.getPath().startsWith(root.getPath() + File.separator) || !file.isFile()) {
+                send(exchange, 404, "text/plain", new byte[0]);
+                return;
+            }
+            sendFile(exchange, file, method.equals("HEAD"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendFile(HttpExchange exchange, File file, boolean headOnly) throws IOException {
+        long length = file.length();
+        long from = 0;
+        long to = length - 1;
+        int code = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range != null ? RANGE.matcher(range.trim()) : null;
+        if (matcher != null && matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            if (matcher.group(1).isEmpty()) {
+                // bytes=-n: the last n bytes.
+                from = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            } else {
+                from = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(to, Long.parseLong(matcher.group(2)));
+                }
+            }
+            if (from >= length || from > to) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + length);
+                send(exchange, 416, "text/plain", new byte[0]);
+                return;
+            }
+            code = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + length);
+        }
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        long count = to - from + 1;
+        exchange.sendResponseHeaders(code, headOnly || count == 0 ? -1 : count);
+        if (headOnly) {
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r");
+             OutputStream out = exchange.getResponseBody()) {
+            in.seek(from);
+            byte[] buffer = new byte[BUFFER_BYTES];
+            while (count > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                count -= read;
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
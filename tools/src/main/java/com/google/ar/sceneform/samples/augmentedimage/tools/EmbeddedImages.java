@@ -0,0 +1,108 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the PNG and JPEG images inside a binary file, such as the textures a .sfb carries, by their
+ * signatures. Only the headers are read: enough for the size of each image, not to decode it.
+ */
+final class EmbeddedImages {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private EmbeddedImages() {
+    }
+
+    // {offset, length, width, height} of each image found, in file order.
+    static List<int[]> find(byte[] bytes) {
+        List<int[]> images = new ArrayList<>();
+        int i = 0;
+        while (i < bytes.length - 8) {
+            int[] image = null;
+            if (startsWith(bytes, i, PNG)) {
+                image = png(bytes, i);
+            } else if ((bytes[i] & 0xff) == 0xff && (bytes[i + 1] & 0xff) == 0xd8 && (bytes[i + 2] & 0xff) == 0xff) {
+                image = jpeg(bytes, i);
+            }
+            if (image != null) {
+                images.add(image);
+                i += image[1];
+            } else {
+                i++;
+            }
+        }
+        return images;
+    }
+
+    // Walks the chunks up to IEND; the first one, IHDR, holds the size.
+    private static int[] png(byte[] bytes, int start) {
+        int pos = start + PNG.length;
+        int width = 0;
+        int height = 0;
+        while (pos + 12 <= bytes.length) {
+            int length = readInt(bytes, pos);
+            if (length < 0 || pos + 12L + length > bytes.length) {
+                return null;
+            }
+            String type = new String(bytes, pos + 4, 4, StandardCharsets.US_ASCII);
+            if (type.equals("IHDR") && length >= 8) {
+                width = readInt(bytes, pos + 8);
+                height = readInt(bytes, pos + 12);
+            }
+            pos += 12 + length;
+            if (type.equals("IEND")) {
+                return width > 0 && height > 0 ? new int[] {start, pos - start, width, height} : null;
+            }
+        }
+        return null;
+    }
+
+    // Walks the segments up to the start of scan for the frame size, then scans for the end marker.
+    private static int[] jpeg(byte[] bytes, int start) {
+        int pos = start + 2;
+        int width = 0;
+        int height = 0;
+        while (pos + 4 <= bytes.length && (bytes[pos] & 0xff) == 0xff) {
+            int marker = bytes[pos + 1] & 0xff;
+            int length = ((bytes[pos + 2] & 0xff) << 8) | (bytes[pos + 3] & 0xff);
+            // SOF0-SOF15, except DHT (c4), JPG (c8) and DAC (cc).
+            if (marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc
+                    && pos + 9 <= bytes.length) {
+                height = ((bytes[pos + 5] & 0xff) << 8) | (bytes[pos + 6] & 0xff);
+                width = ((bytes[pos + 7] & 0xff) << 8) | (bytes[pos + 8] & 0xff);
+            }
+            pos += 2 + length;
+            if (marker == 0xda) {
+                break;
+            }
+        }
+        if (width == 0 || height == 0) {
+            return null;
+        }
+        for (; pos + 1 < bytes.length; pos++) {
+            if ((bytes[pos] & 0xff) == 0xff && (bytes[pos + 1] & 0xff) == 0xd9) {
+                return new int[] {start, pos + 2 - start, width, height};
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        if (offset + prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xff) << 24) | ((bytes[pos + 1] & 0xff) << 16) | ((bytes[pos + 2] & 0xff) << 8)
+                | (bytes[pos + 3] & 0xff);
+    }
+}
@@ -0,0 +1,41 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs ffmpeg for the tools that derive files from the exhibit videos.
+ */
+final class Ffmpeg {
+
+    private Ffmpeg() {
+    }
+
+    /**
+     * Runs ffmpeg -i input, then options, into a temporary file that is renamed to output once
+     * ffmpeg succeeds, so an interrupted run leaves nothing behind.
+     */
+    static void run(String ffmpeg, File input, File output, String... options)
+            throws IOException, InterruptedException {
+        // Keeps the extension, ffmpeg picks the output format by it.
+        String name = output.getName();
+        File partial = new File(output.getParentFile(), name.substring(0, name.lastIndexOf('.')) + ".tmp"
+                + name.substring(name.lastIndexOf('.')));
+        List<String> command = new ArrayList<>(Arrays.asList(ffmpeg, "-y", "-loglevel", "error",
+                "-i", input.getPath()));
+        command.addAll(Arrays.asList(options));
+        command.add(partial.getPath());
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int status = process.waitFor();
+        if (status != 0) {
+            partial.delete();
+            throw new IOException("ffmpeg failed with status " + status + " on " + input);
+        }
+        Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,225 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * How trackable one target image is likely to be, estimated the way feature-based trackers such
+ * as ARCore's see it: the image is taken to grayscale at about the resolution ARCore works with,
+ * and scored on
+ *   - feature density: FAST-9 corners per 10,000 pixels,
+ *   - coverage: the share of an 8x8 grid holding corners, since features bunched in one corner
+ *     are lost as soon as that corner is out of view,
+ *   - texture: the entropy of the gray levels and the mean gradient.
+ * The score (0-100) is a heuristic for ranking our own targets against each other, not ARCore's
+ * arcoreimg eval-img score, though the two tend to agree on the bad ones.
+ */
+final class ImageQuality {
+
+    // ARCore needs at least 300 px, and doesn't gain much above this.
+    static final int MIN_SIDE = 300;
+    private static final int ANALYSIS_SIDE = 480;
+    // Gray-level difference a circle pixel needs to count as brighter or darker, as in ORB.
+    private static final int FAST_THRESHOLD = 20;
+    private static final int FAST_ARC = 9;
+    private static final int GRID = 8;
+    // Levels at which each part of the score is full.
+    private static final double FULL_DENSITY = 25;
+    private static final double FULL_ENTROPY = 7;
+    private static final double FULL_GRADIENT = 20;
+    // Below this score, a target is reported as weak.
+    static final int WEAK_SCORE = 50;
+
+    private static final int[] CIRCLE_X = {0, 1, 2, 3, 3, 3, 2, 1, 0, -1, -2, -3, -3, -3, -2, -1};
+    private static final int[] CIRCLE_Y = {-3, -3, -2, -1, 0, 1, 2, 3, 3, 3, 2, 1, 0, -1, -2, -3};
+
+    final String name;
+    final File file;
+    final int width;
+    final int height;
+    final int corners;
+    // Corners per 10,000 pixels of the analyzed image.
+    final double density;
+    // Share (0-1) of the grid cells with at least two corners.
+    final double coverage;
+    // Entropy of the gray levels, in bits (0-8).
+    final double entropy;
+    // Mean Sobel gradient magnitude, in gray levels.
+    final double gradient;
+    final int score;
+    final long hash;
+
+    private ImageQuality(String name, File file, int width, int height, int corners, double density,
+                         double coverage, double entropy, double gradient, long hash) {
+        this.name = name;
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.corners = corners;
+        this.density = density;
+        this.coverage = coverage;
+        this.entropy = entropy;
+        this.gradient = gradient;
+        this.hash = hash;
+        double weighted = 0.4 * Math.min(1, density / FULL_DENSITY)
+                + 0.3 * coverage
+                + 0.15 * Math.min(1, entropy / FULL_ENTROPY)
+                + 0.15 * Math.min(1, gradient / FULL_GRADIENT);
+        this.score = (int) Math.round(100 * weighted);
+    }
+
+    static ImageQuality analyze(String name, File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Not a readable image: " + file);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) ANALYSIS_SIDE / Math.min(width, height));
+        int w = Math.max(1, (int) Math.round(width * scale));
+        int h = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage gray = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, 0, 0, w, h, null);
+        graphics.dispose();
+        int[] pixels = gray.getRaster().getPixels(0, 0, w, h, (int[]) null);
+
+        boolean[] isCorner = fastCorners(pixels, w, h);
+        int corners = 0;
+        int[] cellCorners = new int[GRID * GRID];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (isCorner[y * w + x]) {
+                    corners++;
+                    cellCorners[(y * GRID / h) * GRID + x * GRID / w]++;
+                }
+            }
+        }
+        int coveredCells = 0;
+        for (int count : cellCorners) {
+            if (count >= 2) {
+                coveredCells++;
+            }
+        }
+        return new ImageQuality(name, file, width, height, corners,
+                corners * 10_000.0 / (w * h), (double) coveredCells / cellCorners.length,
+                entropy(pixels), meanGradient(pixels, w, h), PerceptualHash.of(pixels, w, h));
+    }
+
+    // Problems worth fixing before the image is printed, empty if none.
+    List<String> warnings() {
+        List<String> warnings = new ArrayList<>();
+        if (Math.min(width, height) < MIN_SIDE) {
+            warnings.add("smaller than " + MIN_SIDE + " px");
+        }
+        if (density < FULL_DENSITY / 4) {
+            warnings.add("few features");
+        }
+        if (coverage < 0.5) {
+            warnings.add("features bunched up");
+        }
+        if (entropy < 5) {
+            warnings.add("flat colors");
+        }
+        return warnings;
+    }
+
+    // FAST-9 corners with 3x3 non-maximum suppression.
+    private static boolean[] fastCorners(int[] pixels, int w, int h) {
+        int[] scores = new int[w * h];
+        for (int y = 3; y < h - 3; y++) {
+            for (int x = 3; x < w - 3; x++) {
+                scores[y * w + x] = fastScore(pixels, w, x, y);
+            }
+        }
+        boolean[] corners = new boolean[w * h];
+        for (int y = 4; y < h - 4; y++) {
+            for (int x = 4; x < w - 4; x++) {
+                int score = scores[y * w + x];
+                if (score == 0) {
+                    continue;
+                }
+                boolean max = true;
+                for (int dy = -1; dy <= 1 && max; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int other = scores[(y + dy) * w + x + dx];
+                        // Ties go to the first pixel in scan order.
+                        if (other > score || (other == score && (dy < 0 || (dy == 0 && dx < 0)))) {
+                            max = false;
+                            break;
+                        }
+                    }
+                }
+                corners[y * w + x] = max;
+            }
+        }
+        return corners;
+    }
+
+    // Sum of the differences beyond the threshold if (x, y) is a corner, otherwise 0.
+    private static int fastScore(int[] pixels, int w, int x, int y) {
+        int center = pixels[y * w + x];
+        int brighterRun = 0;
+        int darkerRun = 0;
+        boolean corner = false;
+        // Once around the circle and FAST_ARC - 1 pixels more, so runs crossing the start count.
+        for (int i = 0; i < 16 + FAST_ARC - 1 && !corner; i++) {
+            int k = i % 16;
+            int value = pixels[(y + CIRCLE_Y[k]) * w + x + CIRCLE_X[k]];
+            brighterRun = value > center + FAST_THRESHOLD ? brighterRun + 1 : 0;
+            darkerRun = value < center - FAST_THRESHOLD ? darkerRun + 1 : 0;
+            corner = brighterRun >= FAST_ARC || darkerRun >= FAST_ARC;
+        }
+        if (!corner) {
+            return 0;
+        }
+        int score = 0;
+        for (int k = 0; k < 16; k++) {
+            int difference = Math.abs(pixels[(y + CIRCLE_Y[k]) * w + x + CIRCLE_X[k]] - center);
+            score += Math.max(0, difference - FAST_THRESHOLD);
+        }
+        return Math.max(1, score);
+    }
+
+    private static double entropy(int[] pixels) {
+        int[] histogram = new int[256];
+        for (int value : pixels) {
+            histogram[value]++;
+        }
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = (double) count / pixels.length;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+        }
+        return entropy;
+    }
+
+    private static double meanGradient(int[] pixels, int w, int h) {
+        if (w < 3 || h < 3) {
+            return 0;
+        }
+        double sum = 0;
+        for (int y = 1; y < h - 1; y++) {
+            for (int x = 1; x < w - 1; x++) {
+                int i = y * w + x;
+                int gx = pixels[i - w + 1] + 2 * pixels[i + 1] + pixels[i + w + 1]
+                        - pixels[i - w - 1] - 2 * pixels[i - 1] - pixels[i + w - 1];
+                int gy = pixels[i + w - 1] + 2 * pixels[i + w] + pixels[i + w + 1]
+                        - pixels[i - w - 1] - 2 * pixels[i - w] - pixels[i - w + 1];
+                // Sobel weights add up to 4.
+                sum += Math.sqrt(gx * gx + gy * gy) / 4;
+            }
+        }
+        return sum / ((w - 2) * (h - 2));
+    }
+}
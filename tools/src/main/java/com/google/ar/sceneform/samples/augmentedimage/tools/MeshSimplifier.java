@@ -0,0 +1,282 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogCompiler;
+import com.google.ar.sceneform.samples.augmentedimage.core.LodLevels;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the simplified levels of detail of the exhibit models (see LodLevels):
+ *
+ *   MeshSimplifier <modelDir> <exhibits.csv>
+ *
+ * Each <name>.obj of modelDir that an exhibit shows as its model gets a <name>_lod<level>.obj next
+ * to it, simplified by vertex clustering: the model's bounding box is cut into a grid of
+ * LodLevels.GRID_CELLS cells along its longest side, the vertices of each cell are merged into
+ * their average, and the triangles that collapse are dropped. Texture coordinates and normals are
+ * kept per corner, and the materials (mtllib and usemtl) are kept as they are.
+ *
+ * A level is only written if it has at most MAX_TRIANGLE_RATIO of the triangles of the previous
+ * one; models that are simple already keep fewer levels. Levels newer than their source are kept.
+ */
+public final class MeshSimplifier {
+
+    static final double MAX_TRIANGLE_RATIO = 0.7;
+
+    // Geometry of an OBJ file. Faces are kept as the corner tokens ("v/vt/vn") with absolute indices.
+    static final class Mesh {
+        final List<float[]> vertices = new ArrayList<>();
+        final List<String> texCoords = new ArrayList<>();
+        final List<String> normals = new ArrayList<>();
+        // Every other line, in order; faces are null entries with their corners in faces.
+        final List<String> lines = new ArrayList<>();
+        final List<String[]> faces = new ArrayList<>();
+
+        int triangleCount() {
+            int count = 0;
+            for (String[] face : faces) {
+                count += face.length - 2;
+            }
+            return count;
+        }
+    }
+
+    private MeshSimplifier() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MeshSimplifier <modelDir> <exhibits.csv>");
+            System.exit(2);
+        }
+        File modelDir = new File(args[0]);
+        File csv = new File(args[1]);
+        ExhibitCatalog catalog;
+        try (Reader reader = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8)) {
+            catalog = ExhibitCatalog.read(ByteBuffer.wrap(ExhibitCatalogCompiler.parse(reader, csv.getName()).toByteArray()));
+        }
+        // Video exhibits show the picture frame and the video, not a model of their own.
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (!catalog.playsVideo(i)) {
+                names.add(catalog.name(i));
+            }
+        }
+
+        int written = 0;
+        for (String name : names) {
+            File source = new File(modelDir, name + ".obj");
+            if (!source.isFile()) {
+                System.out.println(name + ": no " + source.getName() + ", skipped");
+                continue;
+            }
+            Mesh mesh = read(source);
+            int previousTriangles = mesh.triangleCount();
+            StringBuilder report = new StringBuilder(name).append(": ").append(previousTriangles).append(" triangles");
+            for (int level = 1; level < LodLevels.COUNT; level++) {
+                File output = new File(modelDir, LodLevels.modelName(name, level) + ".obj");
+                Mesh simplified = simplify(mesh, LodLevels.GRID_CELLS[level]);
+                int triangles = simplified.triangleCount();
+                if (triangles > previousTriangles * MAX_TRIANGLE_RATIO) {
+                    // Not worth another model; a stale one from an older source is removed.
+                    Files.deleteIfExists(output.toPath());
+                    continue;
+                }
+                if (output.lastModified() <= source.lastModified()) {
+                    write(simplified, output, source.getName(), level);
+                    written++;
+                }
+                report.append(String.format(Locale.ROOT, ", lod%d %d", level, triangles));
+                previousTriangles = triangles;
+            }
+            System.out.println(report);
+        }
+        System.out.println(names.size() + " models, " + written + " levels written");
+    }
+
+    static Mesh read(File file) throws IOException {
+        Mesh mesh = new Mesh();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            String[] tokens = trimmed.split("\\s+");
+            switch (tokens[0]) {
+                case "v":
+                    mesh.vertices.add(new float[] {
+                            Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3])});
+                    break;
+                case "vt":
+                    mesh.texCoords.add(trimmed);
+                    break;
+                case "vn":
+                    mesh.normals.add(trimmed);
+                    break;
+                case "f":
+                    String[] corners = new String[tokens.length - 1];
+                    for (int i = 1; i < tokens.length; i++) {
+                        corners[i - 1] = absolute(tokens[i], mesh);
+                    }
+                    if (corners.length >= 3) {
+                        mesh.faces.add(corners);
+                        mesh.lines.add(null);
+                    }
+                    break;
+                case "l":
+                    // Line elements don't render as surfaces; they are left out of every level.
+                    break;
+                default:
+                    mesh.lines.add(line);
+            }
+        }
+        return mesh;
+    }
+
+    // "-1/-1/-1" -> "12/30/7": negative indices count back from the elements read so far.
+    private static String absolute(String corner, Mesh mesh) {
+        String[] parts = corner.split("/", -1);
+        int[] counts = {mesh.vertices.size(), mesh.texCoords.size(), mesh.normals.size()};
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                result.append('/');
+            }
+            if (!parts[i].isEmpty()) {
+                int index = Integer.parseInt(parts[i]);
+                result.append(index < 0 && i < counts.length ? counts[i] + 1 + index : index);
+            }
+        }
+        return result.toString();
+    }
+
+    // Merges the vertices of each grid cell and keeps the triangles that still have three corners.
+    static Mesh simplify(Mesh mesh, int cells) {
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (float[] vertex : mesh.vertices) {
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], vertex[axis]);
+                max[axis] = Math.max(max[axis], vertex[axis]);
+            }
+        }
+        float cellSize = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2])) / cells;
+        if (!(cellSize > 0)) {
+            cellSize = 1;
+        }
+
+        // Cluster of each vertex (0-based), and the sum of the positions in each cluster.
+        int[] cluster = new int[mesh.vertices.size()];
+        Map<Long, Integer> clusterOfCell = new HashMap<>();
+        List<double[]> sums = new ArrayList<>();
+        for (int i = 0; i < cluster.length; i++) {
+            float[] vertex = mesh.vertices.get(i);
+            long cell = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                cell = cell * (cells + 1) + Math.min(cells, (int) ((vertex[axis] - min[axis]) / cellSize));
+            }
+            Integer index = clusterOfCell.get(cell);
+            if (index == null) {
+                index = sums.size();
+                clusterOfCell.put(cell, index);
+                sums.add(new double[4]);
+            }
+            double[] sum = sums.get(index);
+            sum[0] += vertex[0];
+            sum[1] += vertex[1];
+            sum[2] += vertex[2];
+            sum[3]++;
+            cluster[i] = index;
+        }
+
+        Mesh simplified = new Mesh();
+        for (double[] sum : sums) {
+            simplified.vertices.add(new float[] {(float) (sum[0] / sum[3]), (float) (sum[1] / sum[3]),
+                    (float) (sum[2] / sum[3])});
+        }
+        simplified.texCoords.addAll(mesh.texCoords);
+        simplified.normals.addAll(mesh.normals);
+        // Triangles already written, by their clusters in winding order starting at the lowest.
+        Set<List<Integer>> seen = new HashSet<>();
+        int face = 0;
+        for (String line : mesh.lines) {
+            if (line != null) {
+                simplified.lines.add(line);
+                continue;
+            }
+            String[] corners = mesh.faces.get(face++);
+            // Faces are fanned into triangles, the only primitive that survives merging cleanly.
+            for (int i = 1; i + 1 < corners.length; i++) {
+                String[] triangle = {remap(corners[0], cluster), remap(corners[i], cluster),
+                        remap(corners[i + 1], cluster)};
+                int a = vertexIndex(triangle[0]);
+                int b = vertexIndex(triangle[1]);
+                int c = vertexIndex(triangle[2]);
+                if (a == b || b == c || a == c) {
+                    continue;
+                }
+                int first = Math.min(a, Math.min(b, c));
+                List<Integer> key = first == a ? Arrays.asList(a, b, c)
+                        : first == b ? Arrays.asList(b, c, a) : Arrays.asList(c, a, b);
+                if (seen.add(key)) {
+                    simplified.faces.add(triangle);
+                    simplified.lines.add(null);
+                }
+            }
+        }
+        return simplified;
+    }
+
+    // Points the vertex of a corner at its cluster, keeping the texture coordinate and normal.
+    private static String remap(String corner, int[] cluster) {
+        int slash = corner.indexOf('/');
+        int vertex = Integer.parseInt(slash < 0 ? corner : corner.substring(0, slash));
+        return (cluster[vertex - 1] + 1) + (slash < 0 ? "" : corner.substring(slash));
+    }
+
+    private static int vertexIndex(String corner) {
+        int slash = corner.indexOf('/');
+        return Integer.parseInt(slash < 0 ? corner : corner.substring(0, slash));
+    }
+
+    private static void write(Mesh mesh, File file, String sourceName, int level) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            out.write("# Level of detail " + level + " of " + sourceName + ", written by MeshSimplifier.\n");
+            for (float[] vertex : mesh.vertices) {
+                out.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f\n", vertex[0], vertex[1], vertex[2]));
+            }
+            for (String texCoord : mesh.texCoords) {
+                out.write(texCoord);
+                out.write('\n');
+            }
+            for (String normal : mesh.normals) {
+                out.write(normal);
+                out.write('\n');
+            }
+            int face = 0;
+            for (String line : mesh.lines) {
+                if (line == null) {
+                    out.write("f " + String.join(" ", mesh.faces.get(face++)) + "\n");
+                } else {
+                    out.write(line);
+                    out.write('\n');
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
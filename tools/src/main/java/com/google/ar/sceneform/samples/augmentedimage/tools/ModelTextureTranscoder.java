@@ -0,0 +1,367 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Shrinks the textures of the exhibit models and reports what they cost:
+ *
+ *   ModelTextureTranscoder <appDir> <settingsCsv> <reportFile>
+ *
+ * The textures a model's .sfa samples (sampledata/models/*.sfa) are scaled down to the max_size of
+ * the model in settingsCsv (exhibits/textures.csv), and written as JPEG when they have no
+ * transparency, into sampledata/models/textures/. The .sfa is pointed at the result, so the next
+ * build puts it in the .sfb. The originals are kept and always transcoded from, so settings can be
+ * raised again later. A texture shared by several models gets the largest of their sizes.
+ *
+ * The report lists every texture with its size in the APK and in GPU memory before and after, and
+ * what ETC2 and ASTC 6x6 would take: Sceneform 1.5 only builds textures from PNG and JPEG and
+ * uploads them as RGBA8, so those two are for comparison. It also lists the images embedded in each
+ * .sfb of content/models, which includes models without a source in sampledata/.
+ */
+public final class ModelTextureTranscoder {
+
+    static final String TEXTURE_DIR = "textures";
+    private static final String DEFAULT_MODEL = "*";
+    private static final Pattern SAMPLER_FILE =
+            Pattern.compile("(\\s*file:\\s*')(sampledata/models/[^']+\\.(?:png|jpe?g))(',?)", Pattern.CASE_INSENSITIVE);
+
+    // Longest side and JPEG quality (0 for PNG only) of a model's textures.
+    static final class Setting {
+        final int maxSize;
+        final int jpegQuality;
+
+        Setting(int maxSize, int jpegQuality) {
+            this.maxSize = maxSize;
+            this.jpegQuality = jpegQuality;
+        }
+    }
+
+    private ModelTextureTranscoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: ModelTextureTranscoder <appDir> <settingsCsv> <reportFile>");
+            System.exit(2);
+        }
+        File appDir = new File(args[0]);
+        Map<String, Setting> settings;
+        try (Reader in = Files.newBufferedReader(new File(args[1]).toPath(), StandardCharsets.UTF_8)) {
+            settings = readSettings(in);
+        }
+        File modelDir = new File(appDir, "sampledata/models");
+        File textureDir = new File(modelDir, TEXTURE_DIR);
+        File[] sfas = modelDir.listFiles((d, name) -> name.endsWith(".sfa"));
+        if (sfas == null) {
+            throw new IOException("No such directory: " + modelDir);
+        }
+        Arrays.sort(sfas);
+
+        // Original texture -> setting, the largest of the models sampling it.
+        Map<File, Setting> textures = new TreeMap<>();
+        Map<File, List<String>> users = new HashMap<>();
+        for (File sfa : sfas) {
+            String model = sfa.getName().substring(0, sfa.getName().length() - ".sfa".length());
+            Setting setting = settings.getOrDefault(model, settings.get(DEFAULT_MODEL));
+            for (String path : samplerFiles(sfa)) {
+                File original = original(appDir, path);
+                textures.merge(original, setting, (a, b) -> a.maxSize >= b.maxSize ? a : b);
+                users.computeIfAbsent(original, k -> new ArrayList<>()).add(model);
+            }
+        }
+
+        if (!textureDir.isDirectory() && !textureDir.mkdirs()) {
+            throw new IOException("Unable to create " + textureDir);
+        }
+        File reportFile = new File(args[2]);
+        reportFile.getAbsoluteFile().getParentFile().mkdirs();
+        // Transcoded path, relative to appDir, of each original that got smaller.
+        Map<File, String> replacements = new HashMap<>();
+        long[] totals = new long[6];
+        try (PrintWriter report = new PrintWriter(Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8))) {
+            report.println("Model textures (sizes in bytes; GPU sizes include mipmaps)");
+            report.printf(Locale.ROOT, "%-28s %-11s %-11s %9s %9s %10s %10s %9s %9s  %s%n", "texture", "before",
+                    "after", "file", "file now", "gpu", "gpu now", "etc2", "astc6x6", "models");
+            for (Map.Entry<File, Setting> entry : textures.entrySet()) {
+                File original = entry.getKey();
+                if (!original.isFile()) {
+                    report.println(original.getName() + ": missing");
+                    continue;
+                }
+                BufferedImage image = ImageIO.read(original);
+                if (image == null) {
+                    report.println(original.getName() + ": not an image ImageIO reads");
+                    continue;
+                }
+                Setting setting = entry.getValue();
+                BufferedImage scaled = scale(image, setting.maxSize);
+                boolean opaque = isOpaque(image);
+                boolean jpeg = opaque && setting.jpegQuality > 0;
+                String baseName = original.getName().substring(0, original.getName().lastIndexOf('.'));
+                File transcoded = new File(textureDir, baseName + (jpeg ? ".jpg" : ".png"));
+                write(scaled, transcoded, jpeg ? setting.jpegQuality : 0);
+
+                long fileBefore = original.length();
+                long fileAfter = transcoded.length();
+                long gpuBefore = rgbaBytes(image.getWidth(), image.getHeight());
+                long gpuAfter = rgbaBytes(scaled.getWidth(), scaled.getHeight());
+                if (fileAfter < fileBefore || gpuAfter < gpuBefore) {
+                    replacements.put(original, "sampledata/models/" + TEXTURE_DIR + "/" + transcoded.getName());
+                } else {
+                    // Nothing to gain, keep sampling the original.
+                    transcoded.delete();
+                    fileAfter = fileBefore;
+                    gpuAfter = gpuBefore;
+                }
+                long etc2 = etc2Bytes(scaled.getWidth(), scaled.getHeight(), opaque);
+                long astc = astcBytes(scaled.getWidth(), scaled.getHeight());
+                report.printf(Locale.ROOT, "%-28s %-11s %-11s %9d %9d %10d %10d %9d %9d  %s%n", original.getName(),
+                        image.getWidth() + "x" + image.getHeight(), scaled.getWidth() + "x" + scaled.getHeight(),
+                        fileBefore, fileAfter, gpuBefore, gpuAfter, etc2, astc, String.join(" ", users.get(original)));
+                long[] row = {fileBefore, fileAfter, gpuBefore, gpuAfter, etc2, astc};
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += row[i];
+                }
+            }
+            report.printf(Locale.ROOT, "%-52s %9d %9d %10d %10d %9d %9d%n", "total", totals[0], totals[1], totals[2],
+                    totals[3], totals[4], totals[5]);
+            report.printf(Locale.ROOT, "Saved %d bytes of texture files and %d bytes of GPU memory%n%n",
+                    totals[0] - totals[1], totals[2] - totals[3]);
+            reportEmbedded(new File(appDir, "content/models"), report);
+        }
+
+        int rewritten = 0;
+        for (File sfa : sfas) {
+            if (rewriteSamplers(appDir, sfa, replacements)) {
+                rewritten++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d textures, %d bytes saved in files and %d in GPU memory, %d .sfa files"
+                + " updated; report in %s%n", textures.size(), totals[0] - totals[1], totals[2] - totals[3],
+                rewritten, reportFile);
+    }
+
+    // Reads model,max_size,jpeg_quality rows; "#" starts a comment. The "*" row is the default.
+    static Map<String, Setting> readSettings(Reader reader) throws IOException {
+        Map<String, Setting> settings = new LinkedHashMap<>();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        boolean header = true;
+        int number = 0;
+        while ((line = in.readLine()) != null) {
+            number++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (header) {
+                header = false;
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            try {
+                int maxSize = Integer.parseInt(fields[1].trim());
+                int jpegQuality = Integer.parseInt(fields[2].trim());
+                if (maxSize < 1 || jpegQuality < 0 || jpegQuality > 100) {
+                    throw new NumberFormatException();
+                }
+                settings.put(fields[0].trim(), new Setting(maxSize, jpegQuality));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Line " + number + ": expected model,max_size,jpeg_quality: " + line);
+            }
+        }
+        if (!settings.containsKey(DEFAULT_MODEL)) {
+            throw new IOException("No default (" + DEFAULT_MODEL + ") row");
+        }
+        return settings;
+    }
+
+    // Largest power of two not above maxSize, as the longest side; never scales up.
+    static int targetSize(int longestSide, int maxSize) {
+        int size = Integer.highestOneBit(maxSize);
+        return Math.min(longestSide, size);
+    }
+
+    // Halves the image until its longest side is at most maxSize (a power of two), then scales to it.
+    static BufferedImage scale(BufferedImage image, int maxSize) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        int target = targetSize(longest, maxSize);
+        if (target == longest) {
+            return image;
+        }
+        int width = Math.max(1, (int) ((long) image.getWidth() * target / longest));
+        int height = Math.max(1, (int) ((long) image.getHeight() * target / longest));
+        BufferedImage current = image;
+        // Bilinear scaling only looks at 2x2 pixels, so going down in halves keeps it from aliasing.
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != width || current.getHeight() != height) {
+            current = draw(current, width, height);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) >>> 24) != 0xff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // RGBA8 with a full mipmap chain, as Sceneform uploads textures.
+    static long rgbaBytes(int width, int height) {
+        return (long) width * height * 4 * 4 / 3;
+    }
+
+    // ETC2 RGB8 (4 bits a pixel), or RGBA8 (8 bits) with transparency, with mipmaps.
+    static long etc2Bytes(int width, int height, boolean opaque) {
+        long blocks = (long) ((width + 3) / 4) * ((height + 3) / 4);
+        return blocks * (opaque ? 8 : 16) * 4 / 3;
+    }
+
+    // ASTC with 6x6 blocks of 16 bytes, with mipmaps.
+    static long astcBytes(int width, int height) {
+        long blocks = (long) ((width + 5) / 6) * ((height + 5) / 6);
+        return blocks * 16 * 4 / 3;
+    }
+
+    private static void write(BufferedImage image, File file, int jpegQuality) throws IOException {
+        if (jpegQuality == 0) {
+            ImageIO.write(image, "png", file);
+            return;
+        }
+        // JPEG has no alpha channel.
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality / 100f);
+        file.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Texture paths (relative to the app directory) the .sfa samples.
+    private static List<String> samplerFiles(File sfa) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String line : Files.readAllLines(sfa.toPath(), StandardCharsets.UTF_8)) {
+            Matcher matcher = SAMPLER_FILE.matcher(line);
+            if (matcher.matches()) {
+                files.add(matcher.group(2));
+            }
+        }
+        return files;
+    }
+
+    // The original of a sampled texture: itself, or the file in sampledata/models it was made from.
+    private static File original(File appDir, String path) {
+        String prefix = "sampledata/models/" + TEXTURE_DIR + "/";
+        if (!path.startsWith(prefix)) {
+            return new File(appDir, path);
+        }
+        String name = path.substring(prefix.length(), path.lastIndexOf('.'));
+        File[] candidates = new File(appDir, "sampledata/models").listFiles(
+                (d, file) -> file.startsWith(name + ".") && file.substring(name.length() + 1).matches("(?i)png|jpe?g"));
+        return candidates != null && candidates.length > 0 ? candidates[0] : new File(appDir, path);
+    }
+
+    // Points the samplers of the .sfa at the transcoded textures, or back at the originals.
+    private static boolean rewriteSamplers(File appDir, File sfa, Map<File, String> replacements) throws IOException {
+        List<String> lines = Files.readAllLines(sfa.toPath(), StandardCharsets.UTF_8);
+        boolean changed = false;
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = SAMPLER_FILE.matcher(lines.get(i));
+            if (!matcher.matches()) {
+                continue;
+            }
+            File original = original(appDir, matcher.group(2));
+            String path = replacements.getOrDefault(original,
+                    appDir.toPath().relativize(original.toPath()).toString().replace(File.separatorChar, '/'));
+            if (!path.equals(matcher.group(2))) {
+                lines.set(i, matcher.group(1) + path + matcher.group(3));
+                changed = true;
+            }
+        }
+        if (changed) {
+            Files.write(sfa.toPath(), lines, StandardCharsets.UTF_8);
+        }
+        return changed;
+    }
+
+    // Lists the PNG and JPEG images inside each .sfb, the textures the app actually ships.
+    private static void reportEmbedded(File sfbDir, PrintWriter report) throws IOException {
+        File[] sfbs = sfbDir.listFiles((d, name) -> name.endsWith(".sfb"));
+        if (sfbs == null) {
+            return;
+        }
+        Arrays.sort(sfbs);
+        report.println("Images embedded in " + sfbDir);
+        long totalBytes = 0;
+        long totalGpu = 0;
+        for (File sfb : sfbs) {
+            byte[] bytes = Files.readAllBytes(sfb.toPath());
+            List<int[]> images = EmbeddedImages.find(bytes);
+            if (images.isEmpty()) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder();
+            for (int[] image : images) {
+                // {offset, length, width, height}
+                line.append(' ').append(image[2]).append('x').append(image[3]).append(" (").append(image[1])
+                        .append(" bytes)");
+                totalBytes += image[1];
+                totalGpu += rgbaBytes(image[2], image[3]);
+            }
+            report.printf(Locale.ROOT, "%-28s %9d bytes:%s%n", sfb.getName(), sfb.length(), line);
+        }
+        report.printf(Locale.ROOT, "Embedded images: %d bytes, %d bytes in GPU memory%n", totalBytes, totalGpu);
+    }
+}
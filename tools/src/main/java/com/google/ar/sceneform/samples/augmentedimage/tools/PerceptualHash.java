@@ -0,0 +1,83 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit DCT perceptual hash (pHash) of a grayscale image. Images that look alike, such as a print
+ * and the same print with a caption added, have hashes a few bits apart, whatever their size.
+ */
+final class PerceptualHash {
+
+    private static final int SIZE = 32;
+    private static final int BITS = 8;
+    private static final double[][] COSINES = new double[BITS][SIZE];
+
+    static {
+        for (int u = 0; u < BITS; u++) {
+            for (int x = 0; x < SIZE; x++) {
+                COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * SIZE));
+            }
+        }
+    }
+
+    private PerceptualHash() {
+    }
+
+    // gray holds width * height values, row by row.
+    static long of(int[] gray, int width, int height) {
+        double[] small = shrink(gray, width, height);
+
+        // Only the 8x8 lowest frequencies of the 32x32 DCT are kept.
+        double[] dct = new double[BITS * BITS];
+        for (int u = 0; u < BITS; u++) {
+            for (int v = 0; v < BITS; v++) {
+                double sum = 0;
+                for (int y = 0; y < SIZE; y++) {
+                    double rowSum = 0;
+                    for (int x = 0; x < SIZE; x++) {
+                        rowSum += small[y * SIZE + x] * COSINES[u][x];
+                    }
+                    sum += rowSum * COSINES[v][y];
+                }
+                dct[v * BITS + u] = sum;
+            }
+        }
+
+        // The DC term only says how bright the image is, it is left out of the median.
+        double[] sorted = Arrays.copyOfRange(dct, 1, dct.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        long hash = 0;
+        for (int i = 0; i < dct.length; i++) {
+            if (dct[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Box-filters the image down to SIZE x SIZE.
+    private static double[] shrink(int[] gray, int width, int height) {
+        double[] small = new double[SIZE * SIZE];
+        for (int sy = 0; sy < SIZE; sy++) {
+            int y0 = sy * height / SIZE;
+            int y1 = Math.max(y0 + 1, (sy + 1) * height / SIZE);
+            for (int sx = 0; sx < SIZE; sx++) {
+                int x0 = sx * width / SIZE;
+                int x1 = Math.max(x0 + 1, (sx + 1) * width / SIZE);
+                long sum = 0;
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) {
+                        sum += gray[y * width + x];
+                    }
+                }
+                small[sy * SIZE + sx] = (double) sum / ((y1 - y0) * (x1 - x0));
+            }
+        }
+        return small;
+    }
+}
@@ -0,0 +1,220 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalog;
+import com.google.ar.sceneform.samples.augmentedimage.core.ExhibitCatalogCompiler;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores the target images (see ImageQuality), finds near-duplicates by perceptual hash, and writes
+ * an arcoreimg image list with paths relative to the list, so it works on any checkout.
+ *
+ *   TargetImageAnalyzer <imageDir> <exhibits.csv|-> <outputDir>
+ *
+ * With a catalog, the image list follows the catalog order (the database order the app relies on)
+ * and carries the measured widths; without one ("-"), it lists every .jpg of imageDir by name.
+ * Writes outputDir/targets.imgdb-imglist.txt and outputDir/targets-report.txt, worst targets first.
+ * The images are analyzed in parallel on a fork/join pool.
+ */
+public final class TargetImageAnalyzer {
+
+    // Hashes this many bits apart (of 64) or fewer are reported as near-duplicates.
+    static final int DUPLICATE_DISTANCE = 10;
+
+    static final String IMAGE_LIST = "targets.imgdb-imglist.txt";
+    static final String REPORT = "targets-report.txt";
+
+    private TargetImageAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: TargetImageAnalyzer <imageDir> <exhibits.csv|-> <outputDir>");
+            System.exit(2);
+        }
+        File imageDir = new File(args[0]);
+        ExhibitCatalog catalog = "-".equals(args[1]) ? null : readCatalog(new File(args[1]));
+        File outputDir = new File(args[2]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Unable to create " + outputDir);
+        }
+
+        List<String> names = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        if (catalog != null) {
+            for (int i = 0; i < catalog.size(); i++) {
+                if (new File(imageDir, catalog.name(i) + ".jpg").isFile()) {
+                    names.add(catalog.name(i));
+                } else {
+                    missing.add(catalog.name(i));
+                }
+            }
+        } else {
+            String[] files = imageDir.list((dir, name) -> name.endsWith(".jpg"));
+            if (files == null) {
+                throw new IOException("Not a directory: " + imageDir);
+            }
+            Arrays.sort(files);
+            for (String file : files) {
+                names.add(file.substring(0, file.length() - 4));
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        ImageQuality[] results = new ImageQuality[names.size()];
+        String[] errors = new String[names.size()];
+        ForkJoinPool.commonPool().invoke(new AnalyzeTask(imageDir, names, results, errors, 0, names.size()));
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        List<ImageQuality> analyzed = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                analyzed.add(results[i]);
+            } else {
+                missing.add(names.get(i) + " (" + errors[i] + ")");
+            }
+        }
+
+        File imageList = new File(outputDir, IMAGE_LIST);
+        try (Writer out = Files.newBufferedWriter(imageList.toPath(), StandardCharsets.UTF_8)) {
+            writeImageList(analyzed, catalog, outputDir.toPath(), out);
+        }
+        File report = new File(outputDir, REPORT);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8))) {
+            writeReport(analyzed, missing, millis, out);
+        }
+        System.out.println("Analyzed " + analyzed.size() + " images in " + millis + " ms on "
+                + ForkJoinPool.commonPool().getParallelism() + " threads");
+        System.out.println("Wrote " + imageList + " and " + report);
+    }
+
+    // Analyzes images [from, to), splitting the range until it is a single image.
+    static final class AnalyzeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File imageDir;
+        private final List<String> names;
+        private final ImageQuality[] results;
+        private final String[] errors;
+        private final int from;
+        private final int to;
+
+        AnalyzeTask(File imageDir, List<String> names, ImageQuality[] results, String[] errors, int from, int to) {
+            this.imageDir = imageDir;
+            this.names = names;
+            this.results = results;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new AnalyzeTask(imageDir, names, results, errors, from, middle),
+                        new AnalyzeTask(imageDir, names, results, errors, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                String name = names.get(i);
+                try {
+                    results[i] = ImageQuality.analyze(name, new File(imageDir, name + ".jpg"));
+                } catch (IOException | RuntimeException e) {
+                    errors[i] = e.getMessage();
+                }
+            }
+        }
+    }
+
+    // Pairs of images whose hashes are at most DUPLICATE_DISTANCE apart, closest first.
+    static List<ImageQuality[]> nearDuplicates(List<ImageQuality> images) {
+        List<ImageQuality[]> pairs = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            for (int j = i + 1; j < images.size(); j++) {
+                if (distance(images.get(i), images.get(j)) <= DUPLICATE_DISTANCE) {
+                    pairs.add(new ImageQuality[] {images.get(i), images.get(j)});
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingInt(pair -> distance(pair[0], pair[1])));
+        return pairs;
+    }
+
+    private static void writeImageList(List<ImageQuality> images, ExhibitCatalog catalog, Path listDir, Writer out)
+            throws IOException {
+        Path base = listDir.toAbsolutePath().normalize();
+        for (ImageQuality image : images) {
+            String path = base.relativize(image.file.toPath().toAbsolutePath().normalize()).toString();
+            out.write(image.name + ".jpg|" + path.replace(File.separatorChar, '/'));
+            float width = catalog != null ? catalog.physicalWidth(catalog.indexOf(image.name)) : 0;
+            if (width > 0) {
+                out.write("|" + width);
+            }
+            out.write('\n');
+        }
+    }
+
+    private static void writeReport(List<ImageQuality> images, List<String> missing, long millis, PrintWriter out) {
+        List<ImageQuality> ranked = new ArrayList<>(images);
+        ranked.sort(Comparator.comparingInt((ImageQuality image) -> image.score).thenComparing(image -> image.name));
+        int weak = 0;
+        for (ImageQuality image : ranked) {
+            if (image.score < ImageQuality.WEAK_SCORE) {
+                weak++;
+            }
+        }
+        List<ImageQuality[]> duplicates = nearDuplicates(images);
+
+        out.printf(Locale.ROOT, "%d target images analyzed in %d ms: %d weak (score < %d), %d near-duplicate pairs%n%n",
+                images.size(), millis, weak, ImageQuality.WEAK_SCORE, duplicates.size());
+        out.printf(Locale.ROOT, "%4s  %5s  %-32s %11s %10s %8s %7s %8s  %s%n",
+                "rank", "score", "image", "size", "corners/10k", "coverage", "entropy", "gradient", "warnings");
+        for (int i = 0; i < ranked.size(); i++) {
+            ImageQuality image = ranked.get(i);
+            out.printf(Locale.ROOT, "%4d  %5d  %-32s %11s %10.1f %7.0f%% %7.2f %8.1f  %s%n",
+                    i + 1, image.score, image.name, image.width + "x" + image.height, image.density,
+                    image.coverage * 100, image.entropy, image.gradient, String.join(", ", image.warnings()));
+        }
+
+        out.printf(Locale.ROOT, "%nNear-duplicates (hash distance <= %d of 64), likely to be confused with each other:%n",
+                DUPLICATE_DISTANCE);
+        if (duplicates.isEmpty()) {
+            out.println("  none");
+        }
+        for (ImageQuality[] pair : duplicates) {
+            out.printf(Locale.ROOT, "  %2d  %s  %s%n", distance(pair[0], pair[1]), pair[0].name, pair[1].name);
+        }
+
+        if (!missing.isEmpty()) {
+            out.printf(Locale.ROOT, "%nNot analyzed (left out of the image list):%n");
+            for (String name : missing) {
+                out.println("  " + name);
+            }
+        }
+    }
+
+    private static int distance(ImageQuality a, ImageQuality b) {
+        return PerceptualHash.distance(a.hash, b.hash);
+    }
+
+    private static ExhibitCatalog readCatalog(File csv) throws IOException {
+        try (Reader reader = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8)) {
+            return ExhibitCatalog.read(ByteBuffer.wrap(ExhibitCatalogCompiler.parse(reader, csv.getName()).toByteArray()));
+        }
+    }
+}
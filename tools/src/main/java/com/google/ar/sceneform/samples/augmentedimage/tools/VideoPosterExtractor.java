@@ -0,0 +1,56 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Extracts the poster frame of each exhibit video, shown on the video quad until the decoder has
+ * its first frame (see VideoPosters):
+ *
+ *   VideoPosterExtractor <videoDir> <posterDir> [ffmpeg]
+ *
+ * The poster of <name>.mp4 is posterDir/<name>.png: the first frame, at most POSTER_HEIGHT tall,
+ * with the chroma key color made transparent the way the video material does it. Posters newer
+ * than their video are kept.
+ */
+public final class VideoPosterExtractor {
+
+    // A poster is only on screen for the decoder start-up time, so it doesn't need the full size.
+    static final int POSTER_HEIGHT = 360;
+    // CHROMA_KEY_COLOR of AugmentedImageNode, as RGB.
+    static final String KEY_COLOR = "0x2FFF19";
+    // Distance from KEY_COLOR still keyed out, and the blend range at the edge of the key.
+    static final String KEY_SIMILARITY = "0.3";
+    static final String KEY_BLEND = "0.1";
+
+    private VideoPosterExtractor() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: VideoPosterExtractor <videoDir> <posterDir> [ffmpeg]");
+            System.exit(2);
+        }
+        File[] videos = VideoVariantEncoder.originals(new File(args[0]));
+        File posterDir = new File(args[1]);
+        String ffmpeg = args.length > 2 ? args[2] : "ffmpeg";
+        if (!posterDir.isDirectory() && !posterDir.mkdirs()) {
+            throw new IOException("Unable to create " + posterDir);
+        }
+        int extracted = 0;
+        for (File video : videos) {
+            File poster = new File(posterDir, ContentManifest.key(video.getName()) + ".png");
+            if (poster.lastModified() > video.lastModified()) {
+                continue;
+            }
+            Ffmpeg.run(ffmpeg, video, poster,
+                    "-frames:v", "1",
+                    "-vf", "scale=-2:'min(ih," + POSTER_HEIGHT + ")',colorkey=" + KEY_COLOR + ":" + KEY_SIMILARITY
+                            + ":" + KEY_BLEND + ",format=rgba");
+            System.out.println("  " + poster.getName() + ": " + poster.length() + " bytes");
+            extracted++;
+        }
+        System.out.println(videos.length + " videos, " + extracted + " posters extracted");
+    }
+}
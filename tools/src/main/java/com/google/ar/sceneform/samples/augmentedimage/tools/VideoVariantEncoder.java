@@ -0,0 +1,78 @@
+package com.google.ar.sceneform.samples.augmentedimage.tools;
+
+import com.google.ar.sceneform.samples.augmentedimage.core.ContentManifest;
+import com.google.ar.sceneform.samples.augmentedimage.core.VideoVariants;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes the smaller variants of the exhibit videos that VideoVariantSelector picks from on
+ * devices that can't decode the originals smoothly:
+ *
+ *   VideoVariantEncoder <videoDir> [ffmpeg]
+ *
+ * Every original .mp4 of videoDir gets a <name>_<height>p.mp4 next to it for each of
+ * VideoVariants.HEIGHTS, in H.264 Main profile at BITRATES, never upscaled. Variants newer than
+ * their original are kept, so running it again only encodes what changed.
+ */
+public final class VideoVariantEncoder {
+
+    // Video bitrate of each of VideoVariants.HEIGHTS, in kbit/s.
+    static final int[] BITRATES = {700, 1200, 2500};
+    private static final Pattern VARIANT = Pattern.compile(".*_\\d+p\\.mp4");
+
+    private VideoVariantEncoder() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: VideoVariantEncoder <videoDir> [ffmpeg]");
+            System.exit(2);
+        }
+        File dir = new File(args[0]);
+        String ffmpeg = args.length > 1 ? args[1] : "ffmpeg";
+        File[] files = originals(dir);
+        int encoded = 0;
+        for (File original : files) {
+            String name = ContentManifest.key(original.getName());
+            for (int i = 0; i < VideoVariants.HEIGHTS.length; i++) {
+                int height = VideoVariants.HEIGHTS[i];
+                File variant = new File(dir, VideoVariants.key(name, height) + ".mp4");
+                if (variant.lastModified() > original.lastModified()) {
+                    continue;
+                }
+                encode(ffmpeg, original, variant, height, BITRATES[i]);
+                System.out.println("  " + variant.getName() + ": " + variant.length() + " bytes ("
+                        + original.length() + " for the original)");
+                encoded++;
+            }
+        }
+        System.out.println(files.length + " videos, " + encoded + " variants encoded");
+    }
+
+    // The original videos of dir, sorted by name.
+    static File[] originals(File dir) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".mp4") && !VARIANT.matcher(name).matches());
+        if (files == null) {
+            throw new IOException("No such directory: " + dir);
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static void encode(String ffmpeg, File original, File variant, int height, int kbps)
+            throws IOException, InterruptedException {
+        Ffmpeg.run(ffmpeg, original, variant,
+                // Keeps the aspect ratio with an even width, and never makes the video taller.
+                "-vf", "scale=-2:'min(ih," + height + ")'",
+                "-c:v", "libx264", "-profile:v", "main", "-preset", "slow",
+                "-b:v", kbps + "k", "-maxrate", (kbps * 3 / 2) + "k", "-bufsize", (kbps * 2) + "k",
+                // A key frame every 2 s at 30 fps, so seeking back to the start is cheap.
+                "-g", "60",
+                "-c:a", "copy",
+                // Index first, so players start without reading to the end of the file.
+                "-movflags", "+faststart");
+    }
+}